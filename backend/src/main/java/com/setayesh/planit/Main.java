@@ -20,7 +20,7 @@ public class Main {
         TaskService service = new TaskService(repo);
         Runtime.getRuntime().addShutdownHook(new Thread(() -> {
             try {
-                service.save();
+                service.shutdown();
 
                 List<Task> archive = service.loadArchive(); // aus DB oder JSON holen
                 if (archive != null && !archive.isEmpty()) {
@@ -0,0 +1,42 @@
+package com.setayesh.planit.api;
+
+import com.setayesh.planit.core.Occurrence;
+import com.setayesh.planit.core.TaskService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.format.annotation.DateTimeFormat.ISO;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/calendar")
+@CrossOrigin(origins = "http://localhost:5173")
+public class CalendarController {
+
+    private final TaskService taskService;
+    // Longest range served in one request; each day can hold every task
+    private final int maxDays;
+
+    public CalendarController(TaskService taskService,
+            @Value("${planit.calendar.max-days:366}") int maxDays) {
+        this.taskService = taskService;
+        this.maxDays = maxDays;
+    }
+
+    // Occurrences of all active tasks in [from, to], ordered by date; 400 for
+    // a reversed range or one longer than planit.calendar.max-days
+    @GetMapping
+    public ResponseEntity<List<Occurrence>> getOccurrences(
+            @RequestParam(name = "from") @DateTimeFormat(iso = ISO.DATE) LocalDate from,
+            @RequestParam(name = "to") @DateTimeFormat(iso = ISO.DATE) LocalDate to) {
+
+        if (from.isAfter(to) || ChronoUnit.DAYS.between(from, to) >= maxDays) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(taskService.getOccurrences(from, to));
+    }
+}
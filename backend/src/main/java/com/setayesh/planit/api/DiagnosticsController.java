@@ -0,0 +1,35 @@
+package com.setayesh.planit.api;
+
+import com.setayesh.planit.storage.ConnectionPool;
+import com.setayesh.planit.storage.TaskInstanceRepository;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/diagnostics")
+@CrossOrigin(origins = "http://localhost:5173")
+public class DiagnosticsController {
+
+    private final ConnectionPool pool;
+    private final TaskInstanceRepository instanceRepo;
+
+    public DiagnosticsController(ConnectionPool pool, TaskInstanceRepository instanceRepo) {
+        this.pool = pool;
+        this.instanceRepo = instanceRepo;
+    }
+
+    // --------------------------------------------------------------------
+    // CONNECTION POOL (active, idle, wait time, timeouts)
+    // --------------------------------------------------------------------
+    @GetMapping("/pool")
+    public ConnectionPool.Stats getPoolStats() {
+        return pool.stats();
+    }
+
+    // --------------------------------------------------------------------
+    // COMPLETED-INSTANCE CACHE (size, hits, misses, evictions)
+    // --------------------------------------------------------------------
+    @GetMapping("/instance-cache")
+    public TaskInstanceRepository.CacheStats getInstanceCacheStats() {
+        return instanceRepo.cacheStats();
+    }
+}
@@ -1,6 +1,9 @@
 package com.setayesh.planit.api;
 
+import com.setayesh.planit.core.ArchiveQuery;
 import com.setayesh.planit.core.Task;
+import com.setayesh.planit.core.TaskPage;
+import com.setayesh.planit.core.TaskQuery;
 import com.setayesh.planit.core.TaskService;
 import com.setayesh.planit.core.Priority;
 import com.setayesh.planit.core.RecurrenceUtils;
@@ -8,6 +11,8 @@ import com.setayesh.planit.core.RepeatFrequency;
 import com.setayesh.planit.storage.TaskInstanceRepository;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.format.annotation.DateTimeFormat.ISO;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -29,11 +34,51 @@ public class TaskController {
     }
 
     // --------------------------------------------------------------------
-    // GET ALL TASKS
+    // GET TASKS (all, or filtered when any query parameter is given)
     // --------------------------------------------------------------------
     @GetMapping
-    public List<Task> getAllTasks() {
-        return taskService.getAll();
+    public ResponseEntity<List<Task>> getAllTasks(
+            @RequestParam(name = "groupId", required = false) Long groupId,
+            @RequestParam(name = "done", required = false) Boolean done,
+            @RequestParam(name = "archived", required = false) Boolean archived,
+            @RequestParam(name = "priority", required = false) String priority,
+            @RequestParam(name = "deadlineFrom", required = false) @DateTimeFormat(iso = ISO.DATE) LocalDate deadlineFrom,
+            @RequestParam(name = "deadlineTo", required = false) @DateTimeFormat(iso = ISO.DATE) LocalDate deadlineTo,
+            @RequestParam(name = "nextOccurrenceFrom", required = false) @DateTimeFormat(iso = ISO.DATE) LocalDate nextFrom,
+            @RequestParam(name = "nextOccurrenceTo", required = false) @DateTimeFormat(iso = ISO.DATE) LocalDate nextTo,
+            @RequestParam(name = "sort", required = false) String sort,
+            @RequestParam(name = "limit", defaultValue = "0") int limit) {
+
+        TaskQuery query;
+        try {
+            query = TaskQuery.all()
+                    .group(groupId)
+                    .done(done)
+                    .archived(archived)
+                    .priority(priority == null || priority.isBlank() ? null : Priority.valueOf(priority.toUpperCase()))
+                    .deadlineBetween(deadlineFrom, deadlineTo)
+                    .nextOccurrenceBetween(nextFrom, nextTo)
+                    .sortBy(TaskQuery.Sort.parse(sort))
+                    .limit(limit);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        if (query.equals(TaskQuery.all().sortBy(query.sort()))) {
+            return ResponseEntity.ok(taskService.getSorted(query.sort()));
+        }
+        return ResponseEntity.ok(taskService.query(query));
+    }
+
+    // Read-only sorted view; the stored list order is left alone
+    @GetMapping("/sorted")
+    public ResponseEntity<List<Task>> getSortedTasks(
+            @RequestParam(name = "by", defaultValue = "priority") String by) {
+        try {
+            return ResponseEntity.ok(taskService.getSorted(TaskQuery.Sort.parse(by)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
     }
 
     // --------------------------------------------------------------------
@@ -113,113 +158,116 @@ public class TaskController {
             @PathVariable UUID id,
             @RequestBody Map<String, Object> body) {
 
-        Task task = taskService.findById(id)
-                .orElseThrow(() -> new RuntimeException("Task not found: " + id));
-
-        // ---------------- TITLE ----------------
-        if (body.containsKey("title") && body.get("title") != null) {
-            task.setTitle(body.get("title").toString());
+        if (taskService.findById(id).isEmpty()) {
+            return ResponseEntity.notFound().build();
         }
+        List<LocalDate> completed = instanceRepo.findCompletedDates(id);
 
-        // ---------------- DEADLINE ----------------
-        if (body.containsKey("deadline")) {
-            Object d = body.get("deadline");
-            task.setDeadline(
-                    (d == null || d.toString().isBlank())
-                            ? null
-                            : LocalDate.parse(d.toString()));
-        }
+        // all field changes run under the service lock, then get saved
+        taskService.update(id, task -> {
+            // ---------------- TITLE ----------------
+            if (body.containsKey("title") && body.get("title") != null) {
+                task.setTitle(body.get("title").toString());
+            }
 
-        // ---------------- PRIORITY ----------------
-        if (body.containsKey("priority") && body.get("priority") != null) {
-            task.setPriority(
-                    Priority.valueOf(body.get("priority").toString().toUpperCase()));
-        }
+            // ---------------- DEADLINE ----------------
+            if (body.containsKey("deadline")) {
+                Object d = body.get("deadline");
+                task.setDeadline(
+                        (d == null || d.toString().isBlank())
+                                ? null
+                                : LocalDate.parse(d.toString()));
+            }
 
-        // ---------------- GROUP ----------------
-        if (body.containsKey("groupId")) {
-            task.setGroupId(parseLong(body.get("groupId")));
-        }
+            // ---------------- PRIORITY ----------------
+            if (body.containsKey("priority") && body.get("priority") != null) {
+                task.setPriority(
+                        Priority.valueOf(body.get("priority").toString().toUpperCase()));
+            }
 
-        // ---------------- DONE TOGGLE (one-time tasks only!) ----------------
-        if (body.containsKey("done") && body.get("done") != null) {
+            // ---------------- GROUP ----------------
+            if (body.containsKey("groupId")) {
+                task.setGroupId(parseLong(body.get("groupId")));
+            }
+
+            // ---------------- DONE TOGGLE (one-time tasks only!) ----------------
+            if (body.containsKey("done") && body.get("done") != null) {
 
-            boolean doneFlag = Boolean.parseBoolean(body.get("done").toString());
+                boolean doneFlag = Boolean.parseBoolean(body.get("done").toString());
 
-            if (task.getRepeatFrequency() == RepeatFrequency.NONE) {
-                // one-time → normal toggle
-                if (doneFlag)
-                    task.markDone();
-                else
-                    task.markUndone();
+                if (task.getRepeatFrequency() == RepeatFrequency.NONE) {
+                    // one-time → normal toggle
+                    if (doneFlag)
+                        task.markDone();
+                    else
+                        task.markUndone();
+                }
+                // recurring tasks → ignore here (handled by /complete/{date})
             }
-            // recurring tasks → ignore here (handled by /complete/{date})
-        }
 
-        // ---------------- START DATE ----------------
-        if (body.containsKey("startDate")) {
-            Object sd = body.get("startDate");
-            task.setStartDate(
-                    (sd == null || sd.toString().isBlank())
-                            ? null
-                            : LocalDate.parse(sd.toString()));
-        }
+            // ---------------- START DATE ----------------
+            if (body.containsKey("startDate")) {
+                Object sd = body.get("startDate");
+                task.setStartDate(
+                        (sd == null || sd.toString().isBlank())
+                                ? null
+                                : LocalDate.parse(sd.toString()));
+            }
 
-        // ---------------- REPEAT FREQ ----------------
-        if (body.containsKey("repeatFrequency")) {
-            Object f = body.get("repeatFrequency");
-            task.setRepeatFrequency(
-                    (f == null)
-                            ? RepeatFrequency.NONE
-                            : RepeatFrequency.valueOf(f.toString().toUpperCase()));
-        }
+            // ---------------- REPEAT FREQ ----------------
+            if (body.containsKey("repeatFrequency")) {
+                Object f = body.get("repeatFrequency");
+                task.setRepeatFrequency(
+                        (f == null)
+                                ? RepeatFrequency.NONE
+                                : RepeatFrequency.valueOf(f.toString().toUpperCase()));
+            }
 
-        // ---------------- REPEAT DAYS ----------------
-        if (body.containsKey("repeatDays")) {
-            task.setRepeatDays((String) body.get("repeatDays"));
-        }
+            // ---------------- REPEAT DAYS ----------------
+            if (body.containsKey("repeatDays")) {
+                task.setRepeatDays((String) body.get("repeatDays"));
+            }
 
-        // ---------------- REPEAT UNTIL ----------------
-        if (body.containsKey("repeatUntil")) {
-            Object u = body.get("repeatUntil");
-            task.setRepeatUntil(
-                    (u == null || u.toString().isBlank())
-                            ? null
-                            : LocalDate.parse(u.toString()));
-        }
+            // ---------------- REPEAT UNTIL ----------------
+            if (body.containsKey("repeatUntil")) {
+                Object u = body.get("repeatUntil");
+                task.setRepeatUntil(
+                        (u == null || u.toString().isBlank())
+                                ? null
+                                : LocalDate.parse(u.toString()));
+            }
 
-        // ---------------- REPEAT INTERVAL ----------------
-        if (body.containsKey("repeatInterval")) {
-            Object v = body.get("repeatInterval");
-            if (v == null) {
-                task.setRepeatInterval(null);
-            } else if (v instanceof Number num) {
-                task.setRepeatInterval(num.intValue());
+            // ---------------- REPEAT INTERVAL ----------------
+            if (body.containsKey("repeatInterval")) {
+                Object v = body.get("repeatInterval");
+                if (v == null) {
+                    task.setRepeatInterval(null);
+                } else if (v instanceof Number num) {
+                    task.setRepeatInterval(num.intValue());
+                }
             }
-        }
 
-        // ---------------- TIME ----------------
-        if (body.containsKey("time")) {
-            task.setTime((String) body.get("time"));
-        }
+            // ---------------- TIME ----------------
+            if (body.containsKey("time")) {
+                task.setTime((String) body.get("time"));
+            }
 
-        // ---------------- EXCLUDED DATES ----------------
-        if (body.containsKey("excludedDates")) {
-            task.setExcludedDates((String) body.get("excludedDates"));
-        }
+            // ---------------- EXCLUDED DATES ----------------
+            if (body.containsKey("excludedDates")) {
+                task.setExcludedDates((String) body.get("excludedDates"));
+            }
 
-        // ---------------- NEXT OCCURRENCE ----------------
-        // ONLY RECURRENT tasks should have nextOccurrence!
-        if (task.getRepeatFrequency() != RepeatFrequency.NONE) {
-            List<LocalDate> completed = instanceRepo.findCompletedDates(id);
-            LocalDate next = RecurrenceUtils.computeNextOccurrence(task, completed);
-            task.setNextOccurrence(next);
-        } else {
-            // one-time tasks → nextOccurrence should NOT exist
-            task.setNextOccurrence(null);
-        }
+            // ---------------- NEXT OCCURRENCE ----------------
+            // ONLY RECURRENT tasks should have nextOccurrence!
+            if (task.getRepeatFrequency() != RepeatFrequency.NONE) {
+                LocalDate next = RecurrenceUtils.computeNextOccurrence(task, completed);
+                task.setNextOccurrence(next);
+            } else {
+                // one-time tasks → nextOccurrence should NOT exist
+                task.setNextOccurrence(null);
+            }
+        });
 
-        taskService.save();
         return ResponseEntity.noContent().build();
     }
 
@@ -241,9 +289,42 @@ public class TaskController {
         return ResponseEntity.noContent().build();
     }
 
+    @PostMapping("/archive")
+    public ResponseEntity<Map<String, Integer>> archiveTasks(@RequestBody List<UUID> ids) {
+        int archived = taskService.archiveTasks(ids);
+        return ResponseEntity.ok(Map.of("archived", archived));
+    }
+
+    @PostMapping("/{id}/unarchive")
+    public ResponseEntity<Task> unarchiveTask(@PathVariable UUID id) {
+        List<Task> restored = taskService.unarchiveTasks(List.of(id));
+        if (restored.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(restored.get(0));
+    }
+
+    // Newest first, one page at a time; pass nextCursor back as cursor
     @GetMapping("/archive")
-    public List<Task> getArchivedTasks() {
-        return taskService.loadArchive();
+    public ResponseEntity<TaskPage> getArchivedTasks(
+            @RequestParam(name = "search", required = false) String search,
+            @RequestParam(name = "groupId", required = false) Long groupId,
+            @RequestParam(name = "from", required = false) @DateTimeFormat(iso = ISO.DATE) LocalDate from,
+            @RequestParam(name = "to", required = false) @DateTimeFormat(iso = ISO.DATE) LocalDate to,
+            @RequestParam(name = "cursor", required = false) String cursor,
+            @RequestParam(name = "limit", defaultValue = "0") int limit) {
+
+        try {
+            ArchiveQuery query = new ArchiveQuery(search, groupId, from, to, cursor, limit);
+            return ResponseEntity.ok(taskService.findArchivePage(query));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @GetMapping("/archive/count")
+    public Map<String, Integer> countArchivedTasks() {
+        return Map.of("count", taskService.countArchive());
     }
 
     // --------------------------------------------------------------------
@@ -265,16 +346,27 @@ public class TaskController {
 
         LocalDate d = LocalDate.parse(date);
 
-        instanceRepo.markCompleted(id, d);
+        if (taskService.findById(id).isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+
+        taskService.markInstanceCompleted(id, d);
+        return ResponseEntity.ok().build();
+    }
 
-        Task task = taskService.findById(id)
-                .orElseThrow(() -> new RuntimeException("Task not found: " + id));
+    // --------------------------------------------------------------------
+    // COMPLETE MANY INSTANCES (POST /complete, body: ["2025-02-15", ...])
+    // --------------------------------------------------------------------
+    @PostMapping("/{id}/complete")
+    public ResponseEntity<Void> markInstancesCompleted(
+            @PathVariable UUID id,
+            @RequestBody List<LocalDate> dates) {
 
-        List<LocalDate> completed = instanceRepo.findCompletedDates(id);
-        LocalDate next = RecurrenceUtils.computeNextOccurrence(task, completed);
-        task.setNextOccurrence(next);
+        if (taskService.findById(id).isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
 
-        taskService.save();
+        taskService.markInstancesCompleted(id, dates);
         return ResponseEntity.ok().build();
     }
 
@@ -288,15 +380,8 @@ public class TaskController {
 
         LocalDate d = LocalDate.parse(date);
 
+        // also recomputes and saves the next occurrence
         taskService.excludeDate(id, d);
-
-        Task task = taskService.findById(id)
-                .orElseThrow();
-        List<LocalDate> completed = instanceRepo.findCompletedDates(id);
-        LocalDate next = RecurrenceUtils.computeNextOccurrence(task, completed);
-        task.setNextOccurrence(next);
-
-        taskService.save();
         return ResponseEntity.ok().build();
     }
 
@@ -309,15 +394,9 @@ public class TaskController {
             @PathVariable String date) {
 
         LocalDate d = LocalDate.parse(date);
-        taskService.deleteFutureOccurrences(id, d);
 
-        Task task = taskService.findById(id)
-                .orElseThrow();
-        List<LocalDate> completed = instanceRepo.findCompletedDates(id);
-        LocalDate next = RecurrenceUtils.computeNextOccurrence(task, completed);
-        task.setNextOccurrence(next);
-
-        taskService.save();
+        // also recomputes and saves the next occurrence
+        taskService.deleteFutureOccurrences(id, d);
         return ResponseEntity.ok().build();
     }
 
@@ -0,0 +1,92 @@
+package com.setayesh.planit.config;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.BeanDescription;
+import com.fasterxml.jackson.databind.BeanProperty;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.Module;
+import com.fasterxml.jackson.databind.SerializationConfig;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.jsontype.TypeSerializer;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.BeanSerializerModifier;
+import com.fasterxml.jackson.databind.ser.ContextualSerializer;
+import com.fasterxml.jackson.databind.ser.ResolvableSerializer;
+import com.setayesh.planit.core.Task;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+
+@Configuration
+public class JacksonConfig {
+
+    /**
+     * Serializes every Task while holding its monitor. TaskService applies
+     * field changes under the same monitor, so a response never shows half of
+     * a multi-field edit (e.g. a new deadline with the old next occurrence).
+     */
+    @Bean
+    public Module taskLockingModule() {
+        SimpleModule module = new SimpleModule("planit-task-locking");
+        module.setSerializerModifier(new BeanSerializerModifier() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public JsonSerializer<?> modifySerializer(SerializationConfig config, BeanDescription description,
+                    JsonSerializer<?> serializer) {
+                if (!Task.class.isAssignableFrom(description.getBeanClass()))
+                    return serializer;
+                return new LockingSerializer((JsonSerializer<Object>) serializer);
+            }
+        });
+        return module;
+    }
+
+    // Delegates to Jackson's bean serializer, forwarding its resolve/contextual hooks
+    static final class LockingSerializer extends JsonSerializer<Object>
+            implements ContextualSerializer, ResolvableSerializer {
+
+        private final JsonSerializer<Object> delegate;
+
+        LockingSerializer(JsonSerializer<Object> delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void serialize(Object value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            synchronized (value) {
+                delegate.serialize(value, gen, provider);
+            }
+        }
+
+        @Override
+        public void serializeWithType(Object value, JsonGenerator gen, SerializerProvider provider,
+                TypeSerializer typeSer) throws IOException {
+            synchronized (value) {
+                delegate.serializeWithType(value, gen, provider, typeSer);
+            }
+        }
+
+        @Override
+        public void resolve(SerializerProvider provider) throws JsonMappingException {
+            if (delegate instanceof ResolvableSerializer resolvable)
+                resolvable.resolve(provider);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public JsonSerializer<?> createContextual(SerializerProvider provider, BeanProperty property)
+                throws JsonMappingException {
+            if (!(delegate instanceof ContextualSerializer contextual))
+                return this;
+            JsonSerializer<?> created = contextual.createContextual(provider, property);
+            return created == delegate ? this : new LockingSerializer((JsonSerializer<Object>) created);
+        }
+
+        @Override
+        public Class<Object> handledType() {
+            return delegate.handledType();
+        }
+    }
+}
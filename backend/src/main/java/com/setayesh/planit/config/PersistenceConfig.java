@@ -0,0 +1,50 @@
+package com.setayesh.planit.config;
+
+import com.setayesh.planit.core.OccurrenceWindow;
+import com.setayesh.planit.core.WriteBehindSettings;
+import com.setayesh.planit.storage.ConnectionPool;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Creates the single connection pool shared by all H2 repositories and the
+ * write-behind and occurrence-window settings for TaskService.
+ */
+@Configuration
+public class PersistenceConfig {
+
+    @Bean(destroyMethod = "close")
+    public ConnectionPool connectionPool(
+            @Value("${planit.database.path}") String databasePath,
+            @Value("${planit.database.pool.maximum-size:10}") int maximumSize,
+            @Value("${planit.database.pool.minimum-idle:2}") int minimumIdle,
+            @Value("${planit.database.pool.connection-timeout-ms:30000}") long connectionTimeoutMs,
+            @Value("${planit.database.pool.validation-timeout-ms:5000}") long validationTimeoutMs,
+            @Value("${planit.database.pool.leak-detection-threshold-ms:0}") long leakDetectionThresholdMs) {
+
+        return ConnectionPool.open(databasePath, new ConnectionPool.Settings(
+                maximumSize,
+                minimumIdle,
+                connectionTimeoutMs,
+                validationTimeoutMs,
+                leakDetectionThresholdMs));
+    }
+
+    @Bean
+    public WriteBehindSettings writeBehindSettings(
+            @Value("${planit.persistence.write-behind.enabled:false}") boolean enabled,
+            @Value("${planit.persistence.write-behind.delay-ms:200}") long delayMs,
+            @Value("${planit.persistence.write-behind.batch-size:100}") int batchSize) {
+
+        return new WriteBehindSettings(enabled, delayMs, batchSize);
+    }
+
+    @Bean
+    public OccurrenceWindow occurrenceWindow(
+            @Value("${planit.occurrences.days-back:90}") int daysBack,
+            @Value("${planit.occurrences.days-ahead:365}") int daysAhead) {
+
+        return new OccurrenceWindow(daysBack, daysAhead);
+    }
+}
@@ -0,0 +1,99 @@
+package com.setayesh.planit.core;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.stream.Stream;
+
+/**
+ * One page of the archive, newest first (by updatedAt, then id). Pages are
+ * addressed by an opaque keyset cursor instead of an offset, so every page
+ * costs the same. Filters are optional: case-insensitive title search, group,
+ * and an inclusive date range on the archive timestamp (updatedAt).
+ */
+public record ArchiveQuery(String search, Long groupId, LocalDate from, LocalDate to, String cursor, int limit) {
+
+    public static final int DEFAULT_LIMIT = 50;
+    public static final int MAX_LIMIT = 500;
+
+    // Archive order: newest first, id breaks ties
+    public static final Comparator<Task> ORDER = Comparator
+            .comparing(Task::getUpdatedAt)
+            .thenComparing(Task::getId)
+            .reversed();
+
+    public ArchiveQuery {
+        search = (search == null || search.isBlank() ? null : search.trim());
+        cursor = (cursor == null || cursor.isBlank() ? null : cursor);
+        limit = (limit <= 0 ? DEFAULT_LIMIT : Math.min(limit, MAX_LIMIT));
+    }
+
+    public static ArchiveQuery firstPage() {
+        return new ArchiveQuery(null, null, null, null, null, DEFAULT_LIMIT);
+    }
+
+    /**
+     * Position after the last task of the previous page.
+     */
+    public record Cursor(LocalDateTime updatedAt, UUID id) {
+
+        public static Cursor after(Task t) {
+            return new Cursor(t.getUpdatedAt(), t.getId());
+        }
+
+        public String encode() {
+            String raw = updatedAt + "|" + id;
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+        }
+
+        public static Cursor decode(String token) {
+            try {
+                String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+                int sep = raw.indexOf('|');
+                return new Cursor(LocalDateTime.parse(raw.substring(0, sep)), UUID.fromString(raw.substring(sep + 1)));
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Invalid archive cursor: " + token, e);
+            }
+        }
+
+        // True if the task sorts after this position
+        public boolean precedes(Task t) {
+            int cmp = t.getUpdatedAt().compareTo(updatedAt);
+            return cmp < 0 || (cmp == 0 && t.getId().compareTo(id) < 0);
+        }
+    }
+
+    /**
+     * Decoded cursor, or null for the first page.
+     * @throws IllegalArgumentException if the token is malformed
+     */
+    public Cursor position() {
+        return cursor == null ? null : Cursor.decode(cursor);
+    }
+
+    public boolean matches(Task t) {
+        if (groupId != null && !groupId.equals(t.getGroupId()))
+            return false;
+        if (search != null && (t.getTitle() == null
+                || !t.getTitle().toLowerCase(Locale.ROOT).contains(search.toLowerCase(Locale.ROOT))))
+            return false;
+
+        LocalDate day = t.getUpdatedAt().toLocalDate();
+        return (from == null || !day.isBefore(from)) && (to == null || !day.isAfter(to));
+    }
+
+    /**
+     * Pages the given tasks in memory.
+     */
+    public TaskPage apply(Stream<Task> tasks) {
+        Cursor position = position();
+        List<Task> rows = tasks
+                .filter(this::matches)
+                .filter(t -> position == null || position.precedes(t))
+                .sorted(ORDER)
+                .limit(limit + 1L)
+                .toList();
+        return TaskPage.of(rows, limit);
+    }
+}
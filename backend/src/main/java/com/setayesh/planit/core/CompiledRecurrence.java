@@ -0,0 +1,227 @@
+package com.setayesh.planit.core;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.Year;
+import java.time.YearMonth;
+
+/**
+ * A task's recurrence rule reduced to integers: start and until as epoch
+ * days, the interval, the effective weekday mask and the excluded days.
+ * Built by Task's constructors and recurrence setters and read through
+ * {@link Task#recurrence()}, so evaluating a date does no parsing and
+ * allocates nothing. Immutable, so readers may share it without locking.
+ *
+ * The semantics are those of Task.occursOn: the series starts at the start
+ * date (or the creation day), WEEKLY counts 7-day blocks from the start and
+ * defaults to the start's weekday, MONTHLY skips months without the start's
+ * day of month, YEARLY matches the start's day of year.
+ */
+final class CompiledRecurrence {
+
+    private final RepeatFrequency frequency;
+    private final LocalDate start;
+    private final long startDay;
+    private final long untilDay;
+    private final int interval;
+    private final int weekdayMask;
+    private final DateSet excluded;
+
+    // Start broken down for MONTHLY and YEARLY
+    private final long startMonth; // proleptic month: year * 12 + month - 1
+    private final int startDayOfMonth;
+    private final int startDayOfYear;
+
+    private CompiledRecurrence(Task t) {
+        this.frequency = t.getRepeatFrequency();
+        this.start = (t.getStartDate() != null ? t.getStartDate() : t.getCreatedAt().toLocalDate());
+        this.startDay = start.toEpochDay();
+        this.untilDay = (t.getRepeatUntil() != null ? t.getRepeatUntil().toEpochDay() : Long.MAX_VALUE);
+        this.interval = (t.getRepeatInterval() != null && t.getRepeatInterval() > 0) ? t.getRepeatInterval() : 1;
+        this.weekdayMask = (t.getRepeatDayMask() != WeekdayMask.NONE ? t.getRepeatDayMask()
+                : WeekdayMask.bit(start.getDayOfWeek()));
+        this.excluded = t.getExcludedDateSet();
+        this.startMonth = prolepticMonth(start);
+        this.startDayOfMonth = start.getDayOfMonth();
+        this.startDayOfYear = start.getDayOfYear();
+    }
+
+    static CompiledRecurrence of(Task t) {
+        return new CompiledRecurrence(t);
+    }
+
+    RepeatFrequency frequency() {
+        return frequency;
+    }
+
+    LocalDate start() {
+        return start;
+    }
+
+    long startDay() {
+        return startDay;
+    }
+
+    /** Last epoch day of the series, Long.MAX_VALUE when it does not end. */
+    long untilDay() {
+        return untilDay;
+    }
+
+    int interval() {
+        return interval;
+    }
+
+    int weekdayMask() {
+        return weekdayMask;
+    }
+
+    boolean isExcluded(long epochDay) {
+        return excluded.containsEpochDay((int) epochDay);
+    }
+
+    /**
+     * Whether the series has an occurrence on the date. Only meaningful for
+     * recurring frequencies; NONE never occurs.
+     */
+    boolean occursOn(LocalDate date) {
+        long day = date.toEpochDay();
+        if (day < startDay || day > untilDay || isExcluded(day))
+            return false;
+
+        return switch (frequency) {
+            case DAILY -> (day - startDay) % interval == 0;
+            case WEEKLY -> (weekdayMask & (1 << dayOfWeekIndex(day))) != 0
+                    && ((day - startDay) / 7) % interval == 0;
+            case MONTHLY -> date.getDayOfMonth() == startDayOfMonth
+                    && (prolepticMonth(date) - startMonth) % interval == 0;
+            case YEARLY -> date.getDayOfYear() == startDayOfYear
+                    && yearsSinceStart(date) % interval == 0;
+            default -> false;
+        };
+    }
+
+    /**
+     * First occurrence on or after the date, or null when the series ends
+     * before one.
+     */
+    LocalDate nextOnOrAfter(LocalDate date) {
+        long day = nextDayOnOrAfter(date.toEpochDay());
+        return day == Long.MAX_VALUE ? null : LocalDate.ofEpochDay(day);
+    }
+
+    /**
+     * Epoch day of the first occurrence on or after the epoch day, or
+     * Long.MAX_VALUE when there is none. The next candidate matching the
+     * pattern is computed arithmetically per frequency; an excluded
+     * candidate moves the search past it, so the loop runs at most once per
+     * excluded date.
+     */
+    long nextDayOnOrAfter(long epochDay) {
+        long day = Math.max(epochDay, startDay);
+        while (day <= untilDay) {
+            long candidate = nextCandidate(day);
+            if (candidate == Long.MAX_VALUE || candidate > untilDay)
+                return Long.MAX_VALUE;
+            if (!isExcluded(candidate))
+                return candidate;
+            day = candidate + 1;
+        }
+        return Long.MAX_VALUE;
+    }
+
+    // First day >= from (from >= startDay) that matches the pattern, ignoring exclusions
+    private long nextCandidate(long from) {
+        return switch (frequency) {
+            case DAILY -> startDay + roundUp(from - startDay, interval);
+            case WEEKLY -> nextWeekly(from);
+            case MONTHLY -> nextMonthly(LocalDate.ofEpochDay(from));
+            case YEARLY -> nextYearly(LocalDate.ofEpochDay(from));
+            default -> Long.MAX_VALUE;
+        };
+    }
+
+    // Within the current 7-day block if it is an active one, else the first
+    // selected weekday of the next active block
+    private long nextWeekly(long from) {
+        long block = (from - startDay) / 7;
+        if (block % interval == 0) {
+            long candidate = from + daysUntilSelected(from);
+            if ((candidate - startDay) / 7 == block)
+                return candidate;
+            block++;
+        }
+        long blockStart = startDay + 7 * roundUp(block, interval);
+        return blockStart + daysUntilSelected(blockStart);
+    }
+
+    // The start's day of month in the next active month that has it
+    private long nextMonthly(LocalDate from) {
+        long month = prolepticMonth(from);
+        if (from.getDayOfMonth() > startDayOfMonth)
+            month++;
+        month = startMonth + roundUp(month - startMonth, interval);
+
+        // Only days 29-31 can be missing; the active months cycle back to the
+        // start's calendar month within 12 steps (leap Februaries within 400 years)
+        while (true) {
+            YearMonth candidate = YearMonth.of((int) Math.floorDiv(month, 12), (int) Math.floorMod(month, 12) + 1);
+            if (candidate.isValidDay(startDayOfMonth))
+                return candidate.atDay(startDayOfMonth).toEpochDay();
+            if (candidate.atDay(1).toEpochDay() > untilDay)
+                return Long.MAX_VALUE;
+            month += interval;
+        }
+    }
+
+    // The start's day of year in the next year whose whole-year count from
+    // the start is a multiple of the interval
+    private long nextYearly(LocalDate from) {
+        int year = from.getYear();
+        if (from.getDayOfYear() > startDayOfYear)
+            year++;
+        // Years are counted like ChronoUnit.YEARS, which around leap days can
+        // lag the calendar year by one; jump to the first year that can match
+        if (year - 1 > start.getYear())
+            year = Math.max(year, (int) (start.getYear() + roundUp(year - 1 - start.getYear(), interval)));
+
+        while (true) {
+            if (startDayOfYear <= Year.of(year).length()) {
+                LocalDate candidate = LocalDate.ofYearDay(year, startDayOfYear);
+                if (yearsSinceStart(candidate) % interval == 0)
+                    return candidate.toEpochDay();
+                if (candidate.toEpochDay() > untilDay)
+                    return Long.MAX_VALUE;
+            }
+            year++;
+        }
+    }
+
+    private int daysUntilSelected(long epochDay) {
+        return WeekdayMask.daysUntil(weekdayMask, DayOfWeek.of(dayOfWeekIndex(epochDay) + 1));
+    }
+
+    // Smallest multiple of interval that is >= value (value >= 0)
+    private static long roundUp(long value, int interval) {
+        return (value + interval - 1) / interval * interval;
+    }
+
+    /**
+     * Whole years from the start to the date, as ChronoUnit.YEARS counts
+     * them: a day-of-year match can land before the start's month and day
+     * around leap years, which then still counts as the earlier year.
+     */
+    long yearsSinceStart(LocalDate date) {
+        long packedStart = startMonth * 32 + startDayOfMonth;
+        long packedDate = prolepticMonth(date) * 32 + date.getDayOfMonth();
+        return (packedDate - packedStart) / 32 / 12;
+    }
+
+    static long prolepticMonth(LocalDate date) {
+        return date.getYear() * 12L + date.getMonthValue() - 1;
+    }
+
+    // 0 = Monday … 6 = Sunday, matching WeekdayMask's bit order (epoch day 0 was a Thursday)
+    static int dayOfWeekIndex(long epochDay) {
+        return (int) Math.floorMod(epochDay + 3, 7);
+    }
+}
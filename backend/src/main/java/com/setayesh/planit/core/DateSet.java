@@ -0,0 +1,163 @@
+package com.setayesh.planit.core;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.StringJoiner;
+
+/**
+ * Immutable set of dates stored as a sorted array of epoch days.
+ * Lookups are a binary search; the string form is the comma-joined
+ * ISO dates used by the JSON API ("2025-01-02,2025-01-09").
+ */
+public final class DateSet {
+
+    public static final DateSet EMPTY = new DateSet(new int[0]);
+
+    private final int[] days;
+
+    private DateSet(int[] sortedDistinctDays) {
+        this.days = sortedDistinctDays;
+    }
+
+    public static DateSet ofEpochDays(int[] epochDays) {
+        if (epochDays.length == 0)
+            return EMPTY;
+        int[] sorted = epochDays.clone();
+        Arrays.sort(sorted);
+        int n = 1;
+        for (int i = 1; i < sorted.length; i++) {
+            if (sorted[i] != sorted[n - 1])
+                sorted[n++] = sorted[i];
+        }
+        return new DateSet(n == sorted.length ? sorted : Arrays.copyOf(sorted, n));
+    }
+
+    public static DateSet of(Collection<LocalDate> dates) {
+        return ofEpochDays(dates.stream().mapToInt(d -> (int) d.toEpochDay()).toArray());
+    }
+
+    /**
+     * Parses the comma-joined form. Blank or unparsable entries are skipped,
+     * matching the old behaviour where they simply never matched a date.
+     */
+    public static DateSet parse(String csv) {
+        if (csv == null || csv.isBlank())
+            return EMPTY;
+
+        String[] parts = csv.split(",");
+        int[] parsed = new int[parts.length];
+        int n = 0;
+        for (String part : parts) {
+            String s = part.trim();
+            if (s.isEmpty())
+                continue;
+            try {
+                int day = (int) LocalDate.parse(s).toEpochDay();
+                parsed[n++] = day;
+            } catch (DateTimeParseException ignored) {
+                // not a date, cannot match any occurrence
+            }
+        }
+        return ofEpochDays(Arrays.copyOf(parsed, n));
+    }
+
+    public boolean contains(LocalDate date) {
+        return containsEpochDay((int) date.toEpochDay());
+    }
+
+    public boolean containsEpochDay(int epochDay) {
+        return Arrays.binarySearch(days, epochDay) >= 0;
+    }
+
+    public DateSet with(LocalDate date) {
+        int day = (int) date.toEpochDay();
+        int pos = Arrays.binarySearch(days, day);
+        if (pos >= 0)
+            return this;
+
+        int insert = -pos - 1;
+        int[] grown = new int[days.length + 1];
+        System.arraycopy(days, 0, grown, 0, insert);
+        grown[insert] = day;
+        System.arraycopy(days, insert, grown, insert + 1, days.length - insert);
+        return new DateSet(grown);
+    }
+
+    public DateSet union(DateSet other) {
+        if (other.isEmpty())
+            return this;
+        if (isEmpty())
+            return other;
+        int[] both = Arrays.copyOf(days, days.length + other.days.length);
+        System.arraycopy(other.days, 0, both, days.length, other.days.length);
+        return ofEpochDays(both);
+    }
+
+    /**
+     * Dates on or before the given date.
+     */
+    public DateSet headSet(LocalDate inclusive) {
+        int end = insertionPoint((int) inclusive.toEpochDay() + 1);
+        return end == days.length ? this : new DateSet(Arrays.copyOf(days, end));
+    }
+
+    /**
+     * Dates within [from, to], both inclusive; a null bound is open.
+     */
+    public DateSet subSet(LocalDate from, LocalDate to) {
+        int start = from == null ? 0 : insertionPoint((int) from.toEpochDay());
+        int end = to == null ? days.length : insertionPoint((int) to.toEpochDay() + 1);
+        if (start == 0 && end == days.length)
+            return this;
+        return start >= end ? EMPTY : new DateSet(Arrays.copyOfRange(days, start, end));
+    }
+
+    // Index of the first day >= epochDay
+    private int insertionPoint(int epochDay) {
+        int pos = Arrays.binarySearch(days, epochDay);
+        return pos >= 0 ? pos : -pos - 1;
+    }
+
+    public int size() {
+        return days.length;
+    }
+
+    public boolean isEmpty() {
+        return days.length == 0;
+    }
+
+    public int[] toEpochDays() {
+        return days.clone();
+    }
+
+    public List<LocalDate> toList() {
+        List<LocalDate> dates = new ArrayList<>(days.length);
+        for (int day : days) {
+            dates.add(LocalDate.ofEpochDay(day));
+        }
+        return dates;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof DateSet other && Arrays.equals(days, other.days);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(days);
+    }
+
+    @Override
+    public String toString() {
+        StringJoiner joiner = new StringJoiner(",");
+        for (int day : days) {
+            joiner.add(LocalDate.ofEpochDay(day).toString());
+        }
+        return joiner.toString();
+    }
+}
@@ -0,0 +1,11 @@
+package com.setayesh.planit.core;
+
+import java.time.LocalDate;
+import java.util.UUID;
+
+/**
+ * One occurrence of a task on a calendar day and whether it has been
+ * completed.
+ */
+public record Occurrence(UUID taskId, LocalDate date, boolean completed) {
+}
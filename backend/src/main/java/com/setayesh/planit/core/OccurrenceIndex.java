@@ -0,0 +1,257 @@
+package com.setayesh.planit.core;
+
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * Materialized calendar of TaskService's active tasks over a rolling window
+ * (by default 90 days back, 365 ahead): for every day in the window, the
+ * sorted ordinals of the tasks that occur on it.
+ *
+ * Built by enumerating each task's occurrences in the window with
+ * RecurrenceUtils.occurrencesBetween, then maintained per task: a change to
+ * a task's deadline or recurrence fields marks it stale, and stale tasks are
+ * re-evaluated before the next lookup. {@link #roll} moves the window
+ * forward, evaluating only the days that enter it. Lookups outside the
+ * window return null so callers can fall back to evaluating.
+ *
+ * All methods synchronize on the index.
+ */
+final class OccurrenceIndex implements TaskChangeListener {
+
+    private static final int[] NONE = new int[0];
+
+    private final int daysBack;
+
+    // Epoch day of days[0]; days[i] = sorted ordinals occurring on firstDay + i
+    private int firstDay;
+    private int[][] days;
+
+    // Ordinal bookkeeping: tasks and their occurrence days in the window, by ordinal
+    private final Map<UUID, Integer> ordinals = new HashMap<>();
+    private final List<Task> tasks = new ArrayList<>();
+    private final List<int[]> taskDays = new ArrayList<>();
+    private final Deque<Integer> freeOrdinals = new ArrayDeque<>();
+
+    private final Set<Task> stale = new LinkedHashSet<>();
+
+    OccurrenceIndex(OccurrenceWindow window, LocalDate today) {
+        this.daysBack = window.daysBack();
+        this.firstDay = (int) today.toEpochDay() - daysBack;
+        this.days = emptyDays(window.daysBack() + window.daysAhead() + 1);
+    }
+
+    synchronized LocalDate firstDay() {
+        return LocalDate.ofEpochDay(firstDay);
+    }
+
+    synchronized LocalDate lastDay() {
+        return LocalDate.ofEpochDay(lastEpochDay());
+    }
+
+    synchronized void add(Task t) {
+        Integer ordinal = ordinals.get(t.getId());
+        if (ordinal != null) {
+            tasks.set(ordinal, t);
+            stale.add(t);
+            return;
+        }
+
+        ordinal = freeOrdinals.isEmpty() ? tasks.size() : freeOrdinals.pop();
+        if (ordinal == tasks.size()) {
+            tasks.add(t);
+            taskDays.add(NONE);
+        } else {
+            tasks.set(ordinal, t);
+        }
+        ordinals.put(t.getId(), ordinal);
+        place(ordinal, evaluate(t, firstDay, lastEpochDay()));
+    }
+
+    synchronized void remove(Task t) {
+        Integer ordinal = ordinals.remove(t.getId());
+        if (ordinal == null)
+            return;
+        unplace(ordinal);
+        tasks.set(ordinal, null);
+        freeOrdinals.push(ordinal);
+        stale.remove(t);
+    }
+
+    @Override
+    public synchronized void changed(Task task, Property property, Object oldValue, Object newValue) {
+        switch (property) {
+            case DEADLINE, REPEAT_FREQUENCY, RECURRENCE -> stale.add(task);
+            case GROUP, NEXT_OCCURRENCE, TITLE, PRIORITY -> {
+                // do not affect when a task occurs
+            }
+        }
+    }
+
+    /**
+     * Tasks occurring on the date, or null if it lies outside the window.
+     */
+    synchronized List<Task> tasksOn(LocalDate date) {
+        int day = (int) date.toEpochDay();
+        if (!covers(day, day))
+            return null;
+        refreshStale();
+        return resolve(days[day - firstDay]);
+    }
+
+    /**
+     * Tasks per day for [from, to], days without tasks omitted, or null if
+     * the range is not inside the window.
+     */
+    synchronized SortedMap<LocalDate, List<Task>> between(LocalDate from, LocalDate to) {
+        int start = (int) from.toEpochDay();
+        int end = (int) to.toEpochDay();
+        if (start > end || !covers(start, end))
+            return null;
+        refreshStale();
+
+        SortedMap<LocalDate, List<Task>> result = new TreeMap<>();
+        for (int day = start; day <= end; day++) {
+            int[] ordinalsOnDay = days[day - firstDay];
+            if (ordinalsOnDay.length > 0)
+                result.put(LocalDate.ofEpochDay(day), resolve(ordinalsOnDay));
+        }
+        return result;
+    }
+
+    /**
+     * Moves the window so it starts daysBack before today. Days that leave
+     * the window are dropped; only the days entering it are evaluated.
+     */
+    synchronized void roll(LocalDate today) {
+        int newFirst = (int) today.toEpochDay() - daysBack;
+        int shift = newFirst - firstDay;
+        if (shift <= 0)
+            return;
+        refreshStale();
+
+        int oldLast = lastEpochDay();
+        int length = days.length;
+        int[][] moved = emptyDays(length);
+        if (shift < length)
+            System.arraycopy(days, shift, moved, 0, length - shift);
+        days = moved;
+        firstDay = newFirst;
+
+        int from = Math.max(oldLast + 1, firstDay);
+        int to = lastEpochDay();
+        for (int ordinal = 0; ordinal < tasks.size(); ordinal++) {
+            Task t = tasks.get(ordinal);
+            if (t == null)
+                continue;
+            int[] kept = tailFrom(taskDays.get(ordinal), firstDay);
+            int[] added = evaluate(t, from, to);
+            for (int day : added)
+                days[day - firstDay] = insert(days[day - firstDay], ordinal);
+            taskDays.set(ordinal, concat(kept, added));
+        }
+    }
+
+    // ---------------------------------------------------------------------
+    // Internals
+    // ---------------------------------------------------------------------
+
+    private void refreshStale() {
+        for (Task t : stale) {
+            Integer ordinal = ordinals.get(t.getId());
+            if (ordinal != null) {
+                unplace(ordinal);
+                place(ordinal, evaluate(t, firstDay, lastEpochDay()));
+            }
+        }
+        stale.clear();
+    }
+
+    private void place(int ordinal, int[] occurrenceDays) {
+        for (int day : occurrenceDays)
+            days[day - firstDay] = insert(days[day - firstDay], ordinal);
+        taskDays.set(ordinal, occurrenceDays);
+    }
+
+    private void unplace(int ordinal) {
+        for (int day : taskDays.get(ordinal)) {
+            if (day >= firstDay && day <= lastEpochDay())
+                days[day - firstDay] = delete(days[day - firstDay], ordinal);
+        }
+        taskDays.set(ordinal, NONE);
+    }
+
+    // Occurrence days of the task within [from, to]
+    private static int[] evaluate(Task t, int from, int to) {
+        if (from > to)
+            return NONE;
+
+        List<LocalDate> dates = RecurrenceUtils.occurrencesBetween(t, LocalDate.ofEpochDay(from),
+                LocalDate.ofEpochDay(to));
+        int[] found = new int[dates.size()];
+        for (int i = 0; i < found.length; i++)
+            found[i] = (int) dates.get(i).toEpochDay();
+        return found;
+    }
+
+    private List<Task> resolve(int[] ordinalsOnDay) {
+        List<Task> result = new ArrayList<>(ordinalsOnDay.length);
+        for (int ordinal : ordinalsOnDay)
+            result.add(tasks.get(ordinal));
+        return result;
+    }
+
+    private boolean covers(int start, int end) {
+        return start >= firstDay && end <= lastEpochDay();
+    }
+
+    private int lastEpochDay() {
+        return firstDay + days.length - 1;
+    }
+
+    private static int[][] emptyDays(int length) {
+        int[][] empty = new int[length][];
+        Arrays.fill(empty, NONE);
+        return empty;
+    }
+
+    private static int[] insert(int[] sorted, int value) {
+        int pos = Arrays.binarySearch(sorted, value);
+        if (pos >= 0)
+            return sorted;
+        int at = -pos - 1;
+        int[] grown = new int[sorted.length + 1];
+        System.arraycopy(sorted, 0, grown, 0, at);
+        grown[at] = value;
+        System.arraycopy(sorted, at, grown, at + 1, sorted.length - at);
+        return grown;
+    }
+
+    private static int[] delete(int[] sorted, int value) {
+        int pos = Arrays.binarySearch(sorted, value);
+        if (pos < 0)
+            return sorted;
+        if (sorted.length == 1)
+            return NONE;
+        int[] shrunk = new int[sorted.length - 1];
+        System.arraycopy(sorted, 0, shrunk, 0, pos);
+        System.arraycopy(sorted, pos + 1, shrunk, pos, sorted.length - pos - 1);
+        return shrunk;
+    }
+
+    private static int[] tailFrom(int[] sortedDays, int fromDay) {
+        int pos = Arrays.binarySearch(sortedDays, fromDay);
+        int start = pos >= 0 ? pos : -pos - 1;
+        return start == 0 ? sortedDays : Arrays.copyOfRange(sortedDays, start, sortedDays.length);
+    }
+
+    private static int[] concat(int[] a, int[] b) {
+        if (b.length == 0)
+            return a;
+        if (a.length == 0)
+            return b;
+        int[] both = Arrays.copyOf(a, a.length + b.length);
+        System.arraycopy(b, 0, both, a.length, b.length);
+        return both;
+    }
+}
@@ -0,0 +1,74 @@
+package com.setayesh.planit.core;
+
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * Lazily walks a recurring series over [from, to] in epoch days, jumping
+ * from one occurrence to the next with {@link CompiledRecurrence}. Holds
+ * the compiled rule it was created with, so later edits to the task do
+ * not affect a traversal in progress.
+ *
+ * A bounded range splits in halves for parallel streams; an open range
+ * (to at LocalDate.MAX) does not split.
+ */
+final class OccurrenceSpliterator implements Spliterator<LocalDate> {
+
+    static final long OPEN = LocalDate.MAX.toEpochDay();
+
+    // Ranges shorter than two of these are not split
+    private static final long MIN_SPLIT_DAYS = 64;
+
+    private final CompiledRecurrence rule;
+    private long next; // epoch day the search continues from
+    private final long last; // inclusive
+
+    OccurrenceSpliterator(CompiledRecurrence rule, long from, long to) {
+        this.rule = rule;
+        this.next = from;
+        this.last = Math.min(to, rule.untilDay());
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super LocalDate> action) {
+        if (next > last)
+            return false;
+        long day = rule.nextDayOnOrAfter(next);
+        if (day > last) {
+            next = last + 1;
+            return false;
+        }
+        next = day + 1;
+        action.accept(LocalDate.ofEpochDay(day));
+        return true;
+    }
+
+    @Override
+    public Spliterator<LocalDate> trySplit() {
+        if (last >= OPEN || last - next < 2 * MIN_SPLIT_DAYS)
+            return null;
+        long mid = next + (last - next) / 2;
+        OccurrenceSpliterator prefix = new OccurrenceSpliterator(rule, next, mid - 1);
+        next = mid;
+        return prefix;
+    }
+
+    // Days left in the range: an upper bound on the occurrences left
+    @Override
+    public long estimateSize() {
+        return last >= OPEN ? Long.MAX_VALUE : Math.max(0, last - next + 1);
+    }
+
+    @Override
+    public int characteristics() {
+        return ORDERED | SORTED | DISTINCT | NONNULL | IMMUTABLE;
+    }
+
+    // SORTED in natural order
+    @Override
+    public Comparator<? super LocalDate> getComparator() {
+        return null;
+    }
+}
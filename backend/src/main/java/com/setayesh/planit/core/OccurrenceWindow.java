@@ -0,0 +1,17 @@
+package com.setayesh.planit.core;
+
+/**
+ * Days before and after today that TaskService keeps in its materialized
+ * occurrence calendar. Lookups outside the window are evaluated per day.
+ */
+public record OccurrenceWindow(int daysBack, int daysAhead) {
+
+    public OccurrenceWindow {
+        if (daysBack < 0 || daysAhead < 0)
+            throw new IllegalArgumentException("Occurrence window cannot be negative.");
+    }
+
+    public static OccurrenceWindow defaults() {
+        return new OccurrenceWindow(90, 365);
+    }
+}
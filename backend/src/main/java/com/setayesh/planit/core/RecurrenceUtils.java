@@ -2,181 +2,101 @@ package com.setayesh.planit.core;
 
 import java.time.LocalDate;
 import java.util.*;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public class RecurrenceUtils {
 
     /**
      * Computes the NEXT upcoming occurrence of a recurring task.
      * Returns null if the recurrence series is finished.
+     * {@code completedDates} may come in any order (or be null); only the
+     * latest completion counts.
      */
     public static LocalDate computeNextOccurrence(Task t, List<LocalDate> completedDates) {
+        return computeNextOccurrence(t, completedDates, LocalDate.now());
+    }
+
+    /**
+     * As {@link #computeNextOccurrence(Task, List)}, relative to the given
+     * day instead of the clock.
+     */
+    public static LocalDate computeNextOccurrence(Task t, List<LocalDate> completedDates, LocalDate today) {
 
         // ---------------------------------------------------------
         // NON-RECURRING: next occurrence is simply the deadline
         // ---------------------------------------------------------
-        if (t.getRepeatFrequency() == RepeatFrequency.NONE) {
+        CompiledRecurrence rule = t.recurrence();
+        if (rule.frequency() == RepeatFrequency.NONE) {
             return t.getDeadline();
         }
 
-        LocalDate today = LocalDate.now();
+        return nextOccurrence(rule, completedDates, today);
+    }
 
-        // ---------------------------------------------------------
-        // Determine START date
-        // ---------------------------------------------------------
-        LocalDate start = Optional.ofNullable(t.getStartDate())
-                .orElse(Optional.ofNullable(t.getDeadline())
-                        .orElse(today));
+    // First occurrence of the compiled series after the latest completion, never
+    // before today; completedDates in any order
+    static LocalDate nextOccurrence(CompiledRecurrence rule, List<LocalDate> completedDates, LocalDate today) {
 
         // ---------------------------------------------------------
-        // Determine BASE date (after last completion OR start)
+        // Determine BASE date: the day after the latest completion,
+        // but never before today (next occurrence never goes backwards)
         // ---------------------------------------------------------
-        LocalDate lastCompleted = completedDates.stream()
-                .max(LocalDate::compareTo)
-                .orElse(null);
-
-        LocalDate base = (lastCompleted != null)
-                ? lastCompleted.plusDays(1)
-                : start;
-
-        // Next occurrence should NEVER go backwards
-        if (base.isBefore(today)) {
-            base = today;
+        LocalDate base = today;
+        if (completedDates != null) {
+            for (LocalDate d : completedDates) {
+                if (!d.isBefore(base)) { // later than every completion seen so far
+                    base = d.plusDays(1);
+                }
+            }
         }
 
         // ---------------------------------------------------------
-        // Apply REPEAT-UNTIL (series end)
-        // ---------------------------------------------------------
-        if (t.getRepeatUntil() != null && base.isAfter(t.getRepeatUntil())) {
-            return null;
-        }
-
-        int interval = Optional.ofNullable(t.getRepeatInterval()).orElse(1);
-
+        // First occurrence of the series on or after BASE; start date,
+        // interval, weekdays, repeat-until and excluded dates all apply
         // ---------------------------------------------------------
-        // ROUTING TO SPECIFIC FREQUENCY
-        // ---------------------------------------------------------
-        return switch (t.getRepeatFrequency()) {
-
-            case DAILY -> nextDaily(t, base, interval);
-
-            case WEEKLY -> nextWeekly(t, base, interval);
-
-            case MONTHLY -> nextMonthly(t, base, interval, start);
-
-            case YEARLY -> nextYearly(t, base, interval, start);
-
-            default -> null;
-        };
-    }
-
-    // -----------------------------------------------------------------
-    // DAILY
-    // -----------------------------------------------------------------
-    private static LocalDate nextDaily(Task t, LocalDate base, int interval) {
-        LocalDate next = base;
-        if (t.getRepeatUntil() != null && next.isAfter(t.getRepeatUntil())) {
-            return null;
-        }
-        return next;
+        return rule.nextOnOrAfter(base);
     }
 
-    // -----------------------------------------------------------------
-    // WEEKLY (supports multiple days)
-    // -----------------------------------------------------------------
-    private static LocalDate nextWeekly(Task t, LocalDate base, int interval) {
-
-        // Parse allowed weekdays
-        Set<String> allowed = new HashSet<>();
-        if (t.getRepeatDays() != null) {
-            for (String s : t.getRepeatDays().split(",")) {
-                allowed.add(s.trim().toUpperCase());
-            }
-        }
-
-        // If no days selected → treat like DAILY
-        if (allowed.isEmpty()) {
-            return nextDaily(t, base, interval);
-        }
-
-        LocalDate d = base;
-
-        while (true) {
-            String code = weekday(d);
-
-            if (allowed.contains(code)) {
-                if (t.getRepeatUntil() != null && d.isAfter(t.getRepeatUntil())) {
-                    return null;
-                }
-                return d;
-            }
-
-            d = d.plusDays(1);
-        }
+    /**
+     * Lazy, ordered stream of the task's occurrences from {@code from} on,
+     * ending at {@code to} (inclusive, null for no bound) or the series'
+     * repeat-until, whichever comes first. Use limit(n) for the next n
+     * occurrences. Each element is found by jumping from the previous
+     * one; nothing is materialized. Bounded ranges split for parallel().
+     */
+    public static Stream<LocalDate> occurrences(Task t, LocalDate from, LocalDate to) {
+        return StreamSupport.stream(spliterator(t, from, to), false);
     }
 
-    // -----------------------------------------------------------------
-    // MONTHLY (same day-of-month)
-    // -----------------------------------------------------------------
-    private static LocalDate nextMonthly(Task t, LocalDate base, int interval, LocalDate start) {
-
-        // If base is still inside start month → return base
-        if (base.getDayOfMonth() == start.getDayOfMonth()) {
-            if (t.getRepeatUntil() != null && base.isAfter(t.getRepeatUntil())) {
-                return null;
-            }
-            return base;
-        }
-
-        // Otherwise go to next month with interval
-        LocalDate next = base.plusMonths(interval);
-
-        // Try same day-of-month, fallback if invalid (e.g. Feb 30)
-        int day = start.getDayOfMonth();
-        int maxDay = next.lengthOfMonth();
-        next = next.withDayOfMonth(Math.min(day, maxDay));
-
-        if (t.getRepeatUntil() != null && next.isAfter(t.getRepeatUntil())) {
-            return null;
+    /**
+     * The spliterator behind {@link #occurrences}. A one-time task yields
+     * its deadline if it lies in the range.
+     */
+    public static Spliterator<LocalDate> spliterator(Task t, LocalDate from, LocalDate to) {
+        CompiledRecurrence rule = t.recurrence();
+        if (rule.frequency() == RepeatFrequency.NONE) {
+            LocalDate deadline = t.getDeadline();
+            boolean inRange = deadline != null && !deadline.isBefore(from)
+                    && (to == null || !deadline.isAfter(to));
+            return inRange ? List.of(deadline).spliterator() : Spliterators.emptySpliterator();
         }
 
-        return next;
+        long last = (to != null ? to.toEpochDay() : OccurrenceSpliterator.OPEN);
+        return new OccurrenceSpliterator(rule, from.toEpochDay(), last);
     }
 
-    // -----------------------------------------------------------------
-    // YEARLY (same day-of-year)
-    // -----------------------------------------------------------------
-    private static LocalDate nextYearly(Task t, LocalDate base, int interval, LocalDate start) {
-
-        if (base.getDayOfYear() == start.getDayOfYear()) {
-            if (t.getRepeatUntil() != null && base.isAfter(t.getRepeatUntil())) {
-                return null;
-            }
-            return base;
-        }
-
-        LocalDate next = base.plusYears(interval)
-                .withDayOfYear(start.getDayOfYear());
-
-        if (t.getRepeatUntil() != null && next.isAfter(t.getRepeatUntil())) {
-            return null;
+    /**
+     * Dates in [from, to] on which the task occurs, in order: exactly the
+     * dates Task.occursOn accepts. Recurring series are enumerated by
+     * jumping from one occurrence to the next, so the cost follows the
+     * number of occurrences rather than the number of days.
+     */
+    public static List<LocalDate> occurrencesBetween(Task t, LocalDate from, LocalDate to) {
+        List<LocalDate> result = new ArrayList<>();
+        if (!from.isAfter(to)) {
+            spliterator(t, from, to).forEachRemaining(result::add);
         }
-
-        return next;
+        return result;
     }
-
-    // -----------------------------------------------------------------
-    // HELPER: Convert weekday to MON/TUE/WED...
-    // -----------------------------------------------------------------
-    private static String weekday(LocalDate d) {
-        return switch (d.getDayOfWeek()) {
-            case MONDAY -> "MON";
-            case TUESDAY -> "TUE";
-            case WEDNESDAY -> "WED";
-            case THURSDAY -> "THU";
-            case FRIDAY -> "FRI";
-            case SATURDAY -> "SAT";
-            case SUNDAY -> "SUN";
-        };
-    }
-
 }
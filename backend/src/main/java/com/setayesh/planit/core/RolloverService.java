@@ -0,0 +1,52 @@
+package com.setayesh.planit.core;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+
+/**
+ * Day change for TaskService: at local midnight the occurrence calendar
+ * moves forward and next occurrences left in the past are recomputed.
+ *
+ * The same rollover runs once on startup. Stale next occurrences exist
+ * only if a midnight was missed while the application was down, and they
+ * are found through the next-occurrence index, so on a normal start it
+ * finds nothing to do.
+ */
+@Service
+public class RolloverService {
+
+    private final TaskService taskService;
+
+    public RolloverService(TaskService taskService) {
+        this.taskService = taskService;
+    }
+
+    // planit.occurrences.roll-cron is the key the occurrence calendar was
+    // introduced with; it still applies when planit.rollover.cron is unset
+    @Scheduled(cron = "${planit.rollover.cron:${planit.occurrences.roll-cron:0 0 0 * * *}}")
+    public void runNightly() {
+        rollover(LocalDate.now());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        rollover(LocalDate.now());
+    }
+
+    /**
+     * Rolls TaskService over to the given day. Returns the number of tasks
+     * whose next occurrence moved.
+     */
+    public int rollover(LocalDate today) {
+        taskService.rollOccurrenceWindow(today);
+        int moved = taskService.rollNextOccurrences(today);
+        if (moved > 0) {
+            System.out.println("🌙 Moved " + moved + " next occurrences forward to " + today);
+        }
+        return moved;
+    }
+}
@@ -0,0 +1,115 @@
+package com.setayesh.planit.core;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * TaskService's active tasks in the order of every {@link TaskQuery.Sort}
+ * key (except NONE, which is the list order). Uses the same orders as
+ * {@link TaskQuery#comparator()}, nulls last, with ties broken by creation
+ * time and id so every task has a fixed place.
+ *
+ * Each order is a skip list whose entries carry the key value they were
+ * filed under, so a setter moves a task from its old to its new place in
+ * O(log n) without resorting. Like {@link TaskIndex}, changes arrive under
+ * TaskService's lock and lookups run without it; a lookup is copied once
+ * and then served from a cache until the next change.
+ */
+final class SortIndex implements TaskChangeListener {
+
+    private record Key(Object value, LocalDateTime createdAt, UUID id) {
+    }
+
+    private record Order(Function<Task, Object> value, NavigableMap<Key, Task> tasks) {
+    }
+
+    // A sorted copy and the change count it was taken at
+    private record Cached(long version, List<Task> tasks) {
+    }
+
+    private final Map<TaskQuery.Sort, Order> orders = new EnumMap<>(TaskQuery.Sort.class);
+    private final Map<TaskQuery.Sort, Cached> cache = new ConcurrentHashMap<>();
+    private final AtomicLong version = new AtomicLong();
+
+    SortIndex() {
+        orders.put(TaskQuery.Sort.DEADLINE, order(Task::getDeadline, natural()));
+        orders.put(TaskQuery.Sort.NEXT_OCCURRENCE, order(Task::getNextOccurrence, natural()));
+        orders.put(TaskQuery.Sort.PRIORITY, order(Task::getPriority, natural()));
+        orders.put(TaskQuery.Sort.TITLE, order(Task::getTitle,
+                Comparator.nullsLast((a, b) -> String.CASE_INSENSITIVE_ORDER.compare((String) a, (String) b))));
+        orders.put(TaskQuery.Sort.CREATED, order(Task::getCreatedAt, natural()));
+    }
+
+    void add(Task t) {
+        for (Order order : orders.values())
+            order.tasks().put(key(order.value().apply(t), t), t);
+        version.incrementAndGet();
+    }
+
+    void remove(Task t) {
+        for (Order order : orders.values())
+            order.tasks().remove(key(order.value().apply(t), t));
+        version.incrementAndGet();
+    }
+
+    @Override
+    public void changed(Task task, Property property, Object oldValue, Object newValue) {
+        TaskQuery.Sort sort = switch (property) {
+            case DEADLINE -> TaskQuery.Sort.DEADLINE;
+            case NEXT_OCCURRENCE -> TaskQuery.Sort.NEXT_OCCURRENCE;
+            case PRIORITY -> TaskQuery.Sort.PRIORITY;
+            case TITLE -> TaskQuery.Sort.TITLE;
+            case GROUP, REPEAT_FREQUENCY, RECURRENCE -> null; // not sort keys
+        };
+        if (sort == null)
+            return;
+
+        NavigableMap<Key, Task> tasks = orders.get(sort).tasks();
+        tasks.remove(key(oldValue, task));
+        tasks.put(key(newValue, task), task);
+        version.incrementAndGet();
+    }
+
+    /**
+     * Active tasks in the key's order (a copy). Not for NONE.
+     */
+    List<Task> sorted(TaskQuery.Sort sort) {
+        Order order = orders.get(sort);
+        if (order == null)
+            throw new IllegalArgumentException("No sort index for " + sort);
+
+        long seen = version.get();
+        Cached cached = cache.get(sort);
+        if (cached != null && cached.version() == seen)
+            return cached.tasks();
+
+        List<Task> tasks = List.copyOf(order.tasks().values());
+        if (version.get() == seen) // no change while copying
+            cache.put(sort, new Cached(seen, tasks));
+        return tasks;
+    }
+
+    // ---------------------------------------------------------------------
+    // Internals
+    // ---------------------------------------------------------------------
+
+    private static Key key(Object value, Task t) {
+        return new Key(value, t.getCreatedAt(), t.getId());
+    }
+
+    private static Order order(Function<Task, Object> value, Comparator<Object> valueOrder) {
+        Comparator<Key> byKey = Comparator.comparing(Key::value, valueOrder)
+                .thenComparing(Key::createdAt)
+                .thenComparing(Key::id);
+        return new Order(value, new ConcurrentSkipListMap<>(byKey));
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private static Comparator<Object> natural() {
+        return Comparator.nullsLast((Comparator) Comparator.naturalOrder());
+    }
+}
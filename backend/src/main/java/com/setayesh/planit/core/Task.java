@@ -3,9 +3,9 @@ package com.setayesh.planit.core;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.*;
-import java.time.temporal.ChronoUnit;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
 public final class Task {
@@ -21,13 +21,22 @@ public final class Task {
     private final LocalDateTime createdAt;
     private LocalDateTime updatedAt;
     private String time;
-    private String excludedDates;
+    private DateSet excludedDates = DateSet.EMPTY;
     private RepeatFrequency repeatFrequency;
-    private String repeatDays;
+    private int repeatDays = WeekdayMask.NONE;
     private LocalDate repeatUntil;
     private Integer repeatInterval;
     private LocalDate nextOccurrence;
 
+    // Set by every mutation, cleared once TaskService has persisted the row
+    private boolean dirty;
+    // Keeps TaskService's indexes current; null while the task is not in a service
+    private TaskChangeListener listener;
+    // Recurrence rule, recompiled by every recurrence setter (under TaskService's
+    // lock) and published whole, so lock-free readers never see a rule built
+    // from half-updated fields
+    private volatile CompiledRecurrence recurrence;
+
     // ------------------------------
     // Constructors
     // ------------------------------
@@ -39,6 +48,7 @@ public final class Task {
         this.done = false;
         this.archived = false;
         this.repeatFrequency = RepeatFrequency.NONE;
+        this.recurrence = CompiledRecurrence.of(this);
     }
 
     public Task(String title) {
@@ -72,6 +82,32 @@ public final class Task {
             @JsonProperty("repeatInterval") Integer repeatInterval,
             @JsonProperty("startDate") LocalDate startDate,
             @JsonProperty("nextOccurrence") LocalDate nextOccurrence) {
+        this(id, title, deadline, priority, groupId, done, archived, createdAt, updatedAt,
+                repeatFrequency, WeekdayMask.parse(repeatDays), repeatUntil, DateSet.parse(excludedDates),
+                time, repeatInterval, startDate, nextOccurrence);
+    }
+
+    /**
+     * Storage constructor taking the recurrence fields in their encoded form.
+     */
+    public Task(
+            UUID id,
+            String title,
+            LocalDate deadline,
+            Priority priority,
+            Long groupId,
+            Boolean done,
+            Boolean archived,
+            LocalDateTime createdAt,
+            LocalDateTime updatedAt,
+            RepeatFrequency repeatFrequency,
+            int repeatDayMask,
+            LocalDate repeatUntil,
+            DateSet excludedDates,
+            String time,
+            Integer repeatInterval,
+            LocalDate startDate,
+            LocalDate nextOccurrence) {
         this.id = (id != null ? id : UUID.randomUUID());
         this.title = title;
 
@@ -88,14 +124,15 @@ public final class Task {
         this.archived = (archived != null ? archived : false);
 
         this.repeatFrequency = (repeatFrequency != null ? repeatFrequency : RepeatFrequency.NONE);
-        this.repeatDays = repeatDays;
+        this.repeatDays = repeatDayMask;
         this.repeatUntil = repeatUntil;
         this.repeatInterval = repeatInterval;
 
         this.time = time;
-        this.excludedDates = excludedDates;
+        this.excludedDates = (excludedDates != null ? excludedDates : DateSet.EMPTY);
 
         this.nextOccurrence = nextOccurrence;
+        this.recurrence = CompiledRecurrence.of(this);
     }
 
     // ------------------------------
@@ -143,6 +180,11 @@ public final class Task {
     }
 
     public String getRepeatDays() {
+        return WeekdayMask.format(repeatDays);
+    }
+
+    @JsonIgnore
+    public int getRepeatDayMask() {
         return repeatDays;
     }
 
@@ -167,6 +209,11 @@ public final class Task {
     }
 
     public String getExcludedDates() {
+        return excludedDates.isEmpty() ? null : excludedDates.toString();
+    }
+
+    @JsonIgnore
+    public DateSet getExcludedDateSet() {
         return excludedDates;
     }
 
@@ -177,18 +224,24 @@ public final class Task {
     public void setTitle(String title) {
         if (title == null || title.trim().isEmpty())
             throw new IllegalArgumentException("Task title cannot be empty.");
+        String old = this.title;
         this.title = title.trim();
         touch();
+        fire(TaskChangeListener.Property.TITLE, old, this.title);
     }
 
     public void setDeadline(LocalDate deadline) {
+        LocalDate old = this.deadline;
         this.deadline = deadline;
         touch();
+        fire(TaskChangeListener.Property.DEADLINE, old, deadline);
     }
 
     public void setPriority(Priority priority) {
+        Priority old = this.priority;
         this.priority = priority;
         touch();
+        fire(TaskChangeListener.Property.PRIORITY, old, priority);
     }
 
     public void setArchived(boolean archived) {
@@ -197,8 +250,10 @@ public final class Task {
     }
 
     public void setGroupId(Long groupId) {
+        Long old = this.groupId;
         this.groupId = groupId;
         touch();
+        fire(TaskChangeListener.Property.GROUP, old, groupId);
     }
 
     public void markDone() {
@@ -217,32 +272,47 @@ public final class Task {
     }
 
     public void setRepeatFrequency(RepeatFrequency repeatFrequency) {
+        RepeatFrequency old = this.repeatFrequency;
         this.repeatFrequency = (repeatFrequency != null ? repeatFrequency : RepeatFrequency.NONE);
-        touch();
+        recurrenceChanged();
+        fire(TaskChangeListener.Property.REPEAT_FREQUENCY, old, this.repeatFrequency);
     }
 
     public void setRepeatDays(String repeatDays) {
-        this.repeatDays = repeatDays;
-        touch();
+        int old = this.repeatDays;
+        this.repeatDays = WeekdayMask.parse(repeatDays);
+        recurrenceChanged();
+        fire(TaskChangeListener.Property.RECURRENCE, old, this.repeatDays);
     }
 
     public void setRepeatUntil(LocalDate repeatUntil) {
+        LocalDate old = this.repeatUntil;
         this.repeatUntil = repeatUntil;
-        touch();
+        recurrenceChanged();
+        fire(TaskChangeListener.Property.RECURRENCE, old, repeatUntil);
     }
 
     public void setRepeatInterval(Integer repeatInterval) {
+        Integer old = this.repeatInterval;
         this.repeatInterval = repeatInterval;
-        touch();
+        recurrenceChanged();
+        fire(TaskChangeListener.Property.RECURRENCE, old, repeatInterval);
     }
 
     public void setStartDate(LocalDate startDate) {
+        LocalDate old = this.startDate;
         this.startDate = startDate;
-        touch();
+        recurrenceChanged();
+        fire(TaskChangeListener.Property.RECURRENCE, old, startDate);
     }
 
     public void setNextOccurrence(LocalDate nextOccurrence) {
+        LocalDate old = this.nextOccurrence;
         this.nextOccurrence = nextOccurrence;
+        // loads recompute missing values; an unchanged one must not be rewritten
+        if (!Objects.equals(old, nextOccurrence))
+            this.dirty = true;
+        fire(TaskChangeListener.Property.NEXT_OCCURRENCE, old, nextOccurrence);
     }
 
     // ------------------------------
@@ -250,83 +320,38 @@ public final class Task {
     // ------------------------------
 
     public void setExcludedDates(String excludedDates) {
-        this.excludedDates = excludedDates;
-        touch();
+        DateSet old = this.excludedDates;
+        this.excludedDates = DateSet.parse(excludedDates);
+        recurrenceChanged();
+        fire(TaskChangeListener.Property.RECURRENCE, old, this.excludedDates);
     }
 
     public void addExcludedDate(LocalDate date) {
-        if (excludedDates == null || excludedDates.isBlank()) {
-            excludedDates = date.toString();
-        } else {
-            excludedDates += "," + date;
-        }
-        touch();
+        DateSet old = excludedDates;
+        excludedDates = excludedDates.with(date);
+        recurrenceChanged();
+        fire(TaskChangeListener.Property.RECURRENCE, old, excludedDates);
+    }
+
+    public boolean isExcluded(LocalDate date) {
+        return excludedDates.contains(date);
     }
 
     // ------------------------------
-    // Occurrence logic for CLI only
+    // Occurrence logic
     // ------------------------------
 
     public boolean occursOn(LocalDate date) {
-        if (repeatFrequency == null || repeatFrequency == RepeatFrequency.NONE) {
+        CompiledRecurrence r = recurrence;
+        if (r.frequency() == RepeatFrequency.NONE) {
             return deadline != null && deadline.equals(date);
         }
+        return r.occursOn(date);
+    }
 
-        LocalDate start = (startDate != null ? startDate : createdAt.toLocalDate());
-        if (date.isBefore(start))
-            return false;
-        if (repeatUntil != null && date.isAfter(repeatUntil))
-            return false;
-
-        if (excludedDates != null) {
-            for (String ex : excludedDates.split(",")) {
-                if (ex.equals(date.toString()))
-                    return false;
-            }
-        }
-
-        int interval = (repeatInterval != null && repeatInterval > 0) ? repeatInterval : 1;
-
-        switch (repeatFrequency) {
-            case DAILY -> {
-                long diff = ChronoUnit.DAYS.between(start, date);
-                return diff >= 0 && diff % interval == 0;
-            }
-            case WEEKLY -> {
-                String code = date.getDayOfWeek().name().substring(0, 3).toUpperCase();
-                boolean match = false;
-
-                if (repeatDays != null && !repeatDays.isBlank()) {
-                    for (String d : repeatDays.split(",")) {
-                        if (d.trim().equalsIgnoreCase(code))
-                            match = true;
-                    }
-                } else {
-                    match = code.equals(start.getDayOfWeek().name().substring(0, 3).toUpperCase());
-                }
-
-                if (!match)
-                    return false;
-
-                long weeks = ChronoUnit.WEEKS.between(start, date);
-                return weeks >= 0 && weeks % interval == 0;
-            }
-            case MONTHLY -> {
-                if (date.getDayOfMonth() != start.getDayOfMonth())
-                    return false;
-                long months = ChronoUnit.MONTHS.between(start.withDayOfMonth(1), date.withDayOfMonth(1));
-                return months >= 0 && months % interval == 0;
-            }
-            case YEARLY -> {
-                if (date.getDayOfYear() != start.getDayOfYear())
-                    return false;
-                long years = ChronoUnit.YEARS.between(start, date);
-                return years >= 0 && years % interval == 0;
-            }
-            default -> {
-                return false;
-            }
-        }
+    // The current rule; a new instance after every recurrence change
+    CompiledRecurrence recurrence() {
+        return recurrence;
     }
 
     // ------------------------------
@@ -335,6 +360,34 @@ public final class Task {
 
     private void touch() {
         this.updatedAt = LocalDateTime.now();
+        this.dirty = true;
+    }
+
+    private void recurrenceChanged() {
+        this.recurrence = CompiledRecurrence.of(this);
+        touch();
+    }
+
+    // ------------------------------
+    // Change tracking (TaskService only)
+    // ------------------------------
+
+    boolean isDirty() {
+        return dirty;
+    }
+
+    void markClean() {
+        this.dirty = false;
+    }
+
+    void setChangeListener(TaskChangeListener listener) {
+        this.listener = listener;
+    }
+
+    private void fire(TaskChangeListener.Property property, Object oldValue, Object newValue) {
+        if (listener != null && !Objects.equals(oldValue, newValue)) {
+            listener.changed(this, property, oldValue, newValue);
+        }
     }
 
     @Override
@@ -0,0 +1,19 @@
+package com.setayesh.planit.core;
+
+/**
+ * Notified by a Task when one of the fields TaskService indexes or sorts by
+ * changes.
+ * Runs on the thread that called the setter, after the field was written,
+ * and only when the value actually changed. RECURRENCE covers the remaining
+ * fields that decide when a task occurs (start date, repeat days, interval,
+ * until-date, excluded dates).
+ */
+@FunctionalInterface
+public interface TaskChangeListener {
+
+    enum Property {
+        GROUP, DEADLINE, NEXT_OCCURRENCE, REPEAT_FREQUENCY, RECURRENCE, TITLE, PRIORITY
+    }
+
+    void changed(Task task, Property property, Object oldValue, Object newValue);
+}
@@ -0,0 +1,123 @@
+package com.setayesh.planit.core;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Secondary indexes over TaskService's active tasks: group id, deadline,
+ * next occurrence and the set of recurring tasks. Kept current by the
+ * tasks themselves through {@link TaskChangeListener}, which TaskService
+ * attaches to every active task.
+ *
+ * Changes arrive under TaskService's lock; lookups run without it. The
+ * concurrent maps never throw while a change is in progress, and a range
+ * lookup costs O(log n + k).
+ */
+final class TaskIndex implements TaskChangeListener {
+
+    private final Map<Long, Set<Task>> byGroup = new ConcurrentHashMap<>();
+    private final NavigableMap<LocalDate, Set<Task>> byDeadline = new ConcurrentSkipListMap<>();
+    private final NavigableMap<LocalDate, Set<Task>> byNextOccurrence = new ConcurrentSkipListMap<>();
+    private final Set<Task> recurring = ConcurrentHashMap.newKeySet();
+
+    void add(Task t) {
+        put(byGroup, t.getGroupId(), t);
+        put(byDeadline, t.getDeadline(), t);
+        put(byNextOccurrence, t.getNextOccurrence(), t);
+        if (t.getRepeatFrequency() != RepeatFrequency.NONE)
+            recurring.add(t);
+    }
+
+    void remove(Task t) {
+        take(byGroup, t.getGroupId(), t);
+        take(byDeadline, t.getDeadline(), t);
+        take(byNextOccurrence, t.getNextOccurrence(), t);
+        recurring.remove(t);
+    }
+
+    @Override
+    public void changed(Task task, Property property, Object oldValue, Object newValue) {
+        switch (property) {
+            case GROUP -> move(byGroup, (Long) oldValue, (Long) newValue, task);
+            case DEADLINE -> move(byDeadline, (LocalDate) oldValue, (LocalDate) newValue, task);
+            case NEXT_OCCURRENCE -> move(byNextOccurrence, (LocalDate) oldValue, (LocalDate) newValue, task);
+            case REPEAT_FREQUENCY -> {
+                if (newValue == RepeatFrequency.NONE)
+                    recurring.remove(task);
+                else
+                    recurring.add(task);
+            }
+            case RECURRENCE, TITLE, PRIORITY -> {
+                // not indexed here
+            }
+        }
+    }
+
+    // ---------------------------------------------------------------------
+    // Lookups (results are copies)
+    // ---------------------------------------------------------------------
+
+    List<Task> inGroup(Long groupId) {
+        return List.copyOf(byGroup.getOrDefault(groupId, Set.of()));
+    }
+
+    /** Tasks with a deadline in [from, to], earliest first; a null bound is open. */
+    List<Task> deadlineBetween(LocalDate from, LocalDate to) {
+        return collect(range(byDeadline, from, to));
+    }
+
+    /** Tasks with a next occurrence in [from, to], earliest first; a null bound is open. */
+    List<Task> nextOccurrenceBetween(LocalDate from, LocalDate to) {
+        return collect(range(byNextOccurrence, from, to));
+    }
+
+    List<Task> dueOn(LocalDate date) {
+        return List.copyOf(byDeadline.getOrDefault(date, Set.of()));
+    }
+
+    List<Task> recurring() {
+        return List.copyOf(recurring);
+    }
+
+    // ---------------------------------------------------------------------
+    // Internals
+    // ---------------------------------------------------------------------
+
+    private static <K> void put(Map<K, Set<Task>> index, K key, Task t) {
+        if (key != null)
+            index.computeIfAbsent(key, k -> ConcurrentHashMap.newKeySet()).add(t);
+    }
+
+    private static <K> void take(Map<K, Set<Task>> index, K key, Task t) {
+        if (key == null)
+            return;
+        index.computeIfPresent(key, (k, tasks) -> {
+            tasks.remove(t);
+            return tasks.isEmpty() ? null : tasks;
+        });
+    }
+
+    private static <K> void move(Map<K, Set<Task>> index, K oldKey, K newKey, Task t) {
+        take(index, oldKey, t);
+        put(index, newKey, t);
+    }
+
+    private static NavigableMap<LocalDate, Set<Task>> range(NavigableMap<LocalDate, Set<Task>> index,
+            LocalDate from, LocalDate to) {
+        if (from != null && to != null)
+            return from.isAfter(to) ? Collections.emptyNavigableMap() : index.subMap(from, true, to, true);
+        if (from != null)
+            return index.tailMap(from, true);
+        if (to != null)
+            return index.headMap(to, true);
+        return index;
+    }
+
+    private static List<Task> collect(NavigableMap<LocalDate, Set<Task>> range) {
+        List<Task> result = new ArrayList<>();
+        range.values().forEach(result::addAll);
+        return result;
+    }
+}
@@ -0,0 +1,25 @@
+package com.setayesh.planit.core;
+
+import java.util.List;
+
+/**
+ * A page of tasks and the cursor for the next one (null on the last page).
+ */
+public record TaskPage(List<Task> items, String nextCursor) {
+
+    public TaskPage {
+        items = List.copyOf(items);
+    }
+
+    /**
+     * Builds a page from up to limit + 1 rows; the extra row only signals
+     * that another page exists.
+     */
+    public static TaskPage of(List<Task> rows, int limit) {
+        if (rows.size() <= limit)
+            return new TaskPage(rows, null);
+
+        List<Task> items = rows.subList(0, limit);
+        return new TaskPage(items, ArchiveQuery.Cursor.after(items.get(limit - 1)).encode());
+    }
+}
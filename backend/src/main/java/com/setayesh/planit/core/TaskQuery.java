@@ -0,0 +1,156 @@
+package com.setayesh.planit.core;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.stream.Stream;
+
+/**
+ * Filter, sort and limit options for task lookups. Every predicate is optional
+ * (null = any); date ranges are inclusive on both ends. Queries are immutable,
+ * build them fluently from {@link #all()}:
+ *
+ * <pre>
+ * TaskQuery.all().group(3L).done(false).deadlineBetween(from, to).sortBy(Sort.DEADLINE).limit(20)
+ * </pre>
+ *
+ * {@code archived = true} selects archived tasks, anything else the active list.
+ */
+public record TaskQuery(
+        Long groupId,
+        Boolean done,
+        Boolean archived,
+        LocalDate deadlineFrom,
+        LocalDate deadlineTo,
+        LocalDate nextOccurrenceFrom,
+        LocalDate nextOccurrenceTo,
+        Priority priority,
+        Sort sort,
+        int limit) {
+
+    public enum Sort {
+        NONE, DEADLINE, NEXT_OCCURRENCE, PRIORITY, TITLE, CREATED;
+
+        /**
+         * Accepts enum names in any case as well as camelCase ("nextOccurrence").
+         */
+        public static Sort parse(String value) {
+            if (value == null || value.isBlank())
+                return NONE;
+            return valueOf(value.trim().replaceAll("([a-z])([A-Z])", "$1_$2").toUpperCase());
+        }
+    }
+
+    private static final TaskQuery ALL = new TaskQuery(null, null, null, null, null, null, null, null, Sort.NONE, 0);
+
+    public TaskQuery {
+        if (limit < 0)
+            throw new IllegalArgumentException("Limit cannot be negative.");
+        sort = (sort != null ? sort : Sort.NONE);
+    }
+
+    public static TaskQuery all() {
+        return ALL;
+    }
+
+    public TaskQuery group(Long groupId) {
+        return new TaskQuery(groupId, done, archived, deadlineFrom, deadlineTo,
+                nextOccurrenceFrom, nextOccurrenceTo, priority, sort, limit);
+    }
+
+    public TaskQuery done(Boolean done) {
+        return new TaskQuery(groupId, done, archived, deadlineFrom, deadlineTo,
+                nextOccurrenceFrom, nextOccurrenceTo, priority, sort, limit);
+    }
+
+    public TaskQuery archived(Boolean archived) {
+        return new TaskQuery(groupId, done, archived, deadlineFrom, deadlineTo,
+                nextOccurrenceFrom, nextOccurrenceTo, priority, sort, limit);
+    }
+
+    public TaskQuery deadlineBetween(LocalDate from, LocalDate to) {
+        return new TaskQuery(groupId, done, archived, from, to,
+                nextOccurrenceFrom, nextOccurrenceTo, priority, sort, limit);
+    }
+
+    public TaskQuery nextOccurrenceBetween(LocalDate from, LocalDate to) {
+        return new TaskQuery(groupId, done, archived, deadlineFrom, deadlineTo,
+                from, to, priority, sort, limit);
+    }
+
+    public TaskQuery priority(Priority priority) {
+        return new TaskQuery(groupId, done, archived, deadlineFrom, deadlineTo,
+                nextOccurrenceFrom, nextOccurrenceTo, priority, sort, limit);
+    }
+
+    public TaskQuery sortBy(Sort sort) {
+        return new TaskQuery(groupId, done, archived, deadlineFrom, deadlineTo,
+                nextOccurrenceFrom, nextOccurrenceTo, priority, sort, limit);
+    }
+
+    public TaskQuery limit(int limit) {
+        return new TaskQuery(groupId, done, archived, deadlineFrom, deadlineTo,
+                nextOccurrenceFrom, nextOccurrenceTo, priority, sort, limit);
+    }
+
+    public boolean archivedOnly() {
+        return Boolean.TRUE.equals(archived);
+    }
+
+    public boolean hasDeadlineRange() {
+        return deadlineFrom != null || deadlineTo != null;
+    }
+
+    public boolean hasNextOccurrenceRange() {
+        return nextOccurrenceFrom != null || nextOccurrenceTo != null;
+    }
+
+    // Reads the task's fields under its monitor, like TaskService's readers
+    public boolean matches(Task t) {
+        synchronized (t) {
+            return (groupId == null || groupId.equals(t.getGroupId()))
+                    && (done == null || done == t.isDone())
+                    && (archived == null || archived == t.isArchived())
+                    && (priority == null || priority == t.getPriority())
+                    && inRange(t.getDeadline(), deadlineFrom, deadlineTo)
+                    && inRange(t.getNextOccurrence(), nextOccurrenceFrom, nextOccurrenceTo);
+        }
+    }
+
+    /**
+     * Sort order for the chosen key, nulls last. Same orders as
+     * TaskService.getSorted; ties keep their input order.
+     */
+    public Comparator<Task> comparator() {
+        return switch (sort) {
+            case DEADLINE -> Comparator.comparing(Task::getDeadline,
+                    Comparator.nullsLast(Comparator.naturalOrder()));
+            case NEXT_OCCURRENCE -> Comparator.comparing(Task::getNextOccurrence,
+                    Comparator.nullsLast(Comparator.naturalOrder()));
+            case PRIORITY -> Comparator.comparing(Task::getPriority,
+                    Comparator.nullsLast(Comparator.naturalOrder()));
+            case TITLE -> Comparator.comparing(Task::getTitle, String.CASE_INSENSITIVE_ORDER);
+            case CREATED -> Comparator.comparing(Task::getCreatedAt);
+            case NONE -> (a, b) -> 0;
+        };
+    }
+
+    /**
+     * Filters, sorts and limits the given tasks in memory.
+     */
+    public List<Task> apply(Stream<Task> tasks) {
+        Stream<Task> result = tasks.filter(this::matches);
+        if (sort != Sort.NONE)
+            result = result.sorted(comparator());
+        if (limit > 0)
+            result = result.limit(limit);
+        return result.toList();
+    }
+
+    private static boolean inRange(LocalDate value, LocalDate from, LocalDate to) {
+        if (from == null && to == null)
+            return true;
+        return value != null
+                && (from == null || !value.isBefore(from))
+                && (to == null || !value.isAfter(to));
+    }
+}
@@ -1,33 +1,118 @@
 package com.setayesh.planit.core;
 
+import com.setayesh.planit.storage.ConnectionPool;
+import com.setayesh.planit.storage.TaskChangeSet;
 import com.setayesh.planit.storage.TaskInstanceRepository;
 import com.setayesh.planit.storage.TaskRepository;
+import jakarta.annotation.PreDestroy;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDate;
 import java.util.*;
-
+import java.util.function.Consumer;
+
+/**
+ * Holds the active tasks in memory and persists changes through the repository.
+ *
+ * Concurrency: all changes serialize on this service's monitor. Readers never
+ * take it; they get the last published {@link Snapshot}, an immutable list that
+ * is replaced (copy-on-write) whenever tasks are added or removed.
+ * The copy is O(n) per add, delete or archive; field edits copy nothing.
+ *
+ * The tasks in the snapshot are the live, mutable objects: field changes go
+ * through {@link #update}, which holds the task's own monitor while the change
+ * runs. Every reader that combines several fields of a task (the date and
+ * occurrence lookups here, the rollover recompute, {@link TaskQuery#matches}
+ * and JSON serialization, see config.JacksonConfig) reads them under that
+ * monitor, so it never sees half of a multi-field edit. The task monitor is
+ * always taken last and nothing is locked while holding it.
+ */
 @Service
 public class TaskService {
 
+    /**
+     * The active tasks in list order at one version. Membership and order are
+     * fixed; the Task objects are the service's own live instances, so field
+     * edits made after this version are visible through it too. Change them
+     * only via update(); synchronize on a task to read several of its fields
+     * consistently. Publishing a new membership copies the list and the map
+     * (O(n)), which suits a list that is read far more often than resized.
+     */
+    public record Snapshot(long version, List<Task> tasks, Map<UUID, Task> byId) {
+
+        public Optional<Task> find(UUID id) {
+            return Optional.ofNullable(byId.get(id));
+        }
+    }
+
+    // Rollovers with at least this many stale tasks recompute them in parallel
+    private static final int PARALLEL_ROLLOVER = 256;
+
     private final TaskRepository repo;
     private final TaskInstanceRepository instanceRepo;
-    private final List<Task> tasks;
+    // Active tasks by id, in insertion order; guarded by `this`
+    private final LinkedHashMap<UUID, Task> tasks;
+    // Last published view, read without locking
+    private volatile Snapshot snapshot;
+    // Group / deadline / next-occurrence lookups and the occurrence calendar,
+    // both updated by the tasks' setters through `listener`
+    private final TaskIndex index = new TaskIndex();
+    private final OccurrenceIndex occurrences;
+    // Read-only sorted views, one order per TaskQuery.Sort key
+    private final SortIndex sortIndex = new SortIndex();
+    private final TaskChangeListener listener = this::onTaskChanged;
+
+    // Pending changes since the last save (modified tasks are found via Task.isDirty())
+    private final Set<Task> created = new LinkedHashSet<>();
+    private final Set<UUID> removed = new LinkedHashSet<>();
+
+    // Null when saves are written synchronously
+    private final WriteBehindQueue writeBehind;
+    // Serializes repository writes so flushes never overtake each other
+    private final Object flushLock = new Object();
+    // Pool of the private instance database created by TaskService(TaskRepository),
+    // dropped on shutdown; null when the instance repository was passed in
+    private final ConnectionPool ownedInstancePool;
 
-    @Autowired
     public TaskService(TaskRepository repo, TaskInstanceRepository instanceRepo) {
+        this(repo, instanceRepo, WriteBehindSettings.disabled());
+    }
+
+    public TaskService(TaskRepository repo, TaskInstanceRepository instanceRepo, WriteBehindSettings writeBehind) {
+        this(repo, instanceRepo, writeBehind, OccurrenceWindow.defaults());
+    }
+
+    @Autowired
+    public TaskService(TaskRepository repo, TaskInstanceRepository instanceRepo, WriteBehindSettings writeBehind,
+            OccurrenceWindow window) {
+        this(repo, instanceRepo, writeBehind, window, null);
+    }
+
+    private TaskService(TaskRepository repo, TaskInstanceRepository instanceRepo, WriteBehindSettings writeBehind,
+            OccurrenceWindow window, ConnectionPool ownedInstancePool) {
         this.repo = Objects.requireNonNull(repo);
         this.instanceRepo = instanceRepo;
-        this.tasks = new ArrayList<>(repo.findAll());
+        this.ownedInstancePool = ownedInstancePool;
+        this.occurrences = new OccurrenceIndex(window, LocalDate.now());
+        this.tasks = index(repo.findAll());
+        synchronized (this) {
+            tasks.values().forEach(this::attach);
+            publish(true);
+        }
+        this.writeBehind = writeBehind.enabled() ? new WriteBehindQueue(writeBehind, this::flush) : null;
     }
 
-    // Constructor for CLI and tests (no instanceRepo needed)
+    // Constructor for CLI and tests (no instanceRepo needed). The instance
+    // history lives in a private in-memory database that shutdown() drops.
     public TaskService(TaskRepository repo) {
-        this.repo = Objects.requireNonNull(repo);
-        this.instanceRepo = new TaskInstanceRepository(
-                "jdbc:h2:mem:planit-task-service-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
-        this.tasks = new ArrayList<>(repo.findAll());
+        this(repo, ConnectionPool.forPath(
+                "jdbc:h2:mem:planit-task-service-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1"));
+    }
+
+    private TaskService(TaskRepository repo, ConnectionPool instancePool) {
+        this(repo, new TaskInstanceRepository(instancePool), WriteBehindSettings.disabled(),
+                OccurrenceWindow.defaults(), instancePool);
     }
 
     // ---------------------------------------------------------
@@ -35,48 +120,128 @@ public class TaskService {
     // ---------------------------------------------------------
 
     public List<Task> getAll() {
-        return Collections.unmodifiableList(tasks);
+        return snapshot.tasks();
+    }
+
+    public Snapshot snapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Runs a filtered query. Queries on active tasks with a date range or a
+     * group are answered from the in-memory indexes; everything else runs in
+     * the repository backend (SQL for the database) after pending changes
+     * are flushed, so it sees the current state.
+     */
+    public List<Task> query(TaskQuery query) {
+        if (!query.archivedOnly()) {
+            if (query.hasDeadlineRange())
+                return query.apply(index.deadlineBetween(query.deadlineFrom(), query.deadlineTo()).stream());
+            if (query.hasNextOccurrenceRange())
+                return query.apply(index.nextOccurrenceBetween(
+                        query.nextOccurrenceFrom(), query.nextOccurrenceTo()).stream());
+            if (query.groupId() != null)
+                return query.apply(index.inGroup(query.groupId()).stream());
+        }
+        flush();
+        return repo.query(query);
+    }
+
+    public List<Task> getTasksInGroup(Long groupId) {
+        return groupId == null ? List.of() : index.inGroup(groupId);
+    }
+
+    /**
+     * Active tasks with a deadline in [from, to], earliest first.
+     * A null bound is open.
+     */
+    public List<Task> getTasksDueBetween(LocalDate from, LocalDate to) {
+        return index.deadlineBetween(from, to);
+    }
+
+    /**
+     * Active tasks whose next occurrence is in [from, to], earliest first.
+     * A null bound is open.
+     */
+    public List<Task> getTasksWithNextOccurrenceBetween(LocalDate from, LocalDate to) {
+        return index.nextOccurrenceBetween(from, to);
     }
 
     public Optional<Task> findById(UUID id) {
-        return tasks.stream().filter(t -> t.getId().equals(id)).findFirst();
+        return snapshot.find(id);
     }
 
     public void addTask(Task t) {
-        tasks.add(t);
+        synchronized (this) {
+            Task previous = tasks.put(t.getId(), t);
+            if (previous != null)
+                detach(previous);
+            attach(t);
+            created.add(t);
+            removed.remove(t.getId());
+            publish(true);
+        }
         save();
     }
 
-    public void editTask(UUID id, String newTitle, LocalDate newDeadline, Priority newPriority) {
-        Task task = findById(id).orElseThrow();
-
-        // title
-        if (newTitle != null && !newTitle.isBlank()) {
-            task.setTitle(newTitle.trim());
+    /**
+     * Applies a change to one task under the service lock, so concurrent
+     * read-modify-write cycles on a task cannot lose updates, then saves.
+     * The task's own monitor is held too, so readers synchronizing on the
+     * task never see half of a multi-field change.
+     * Throws NoSuchElementException for unknown ids.
+     */
+    public Task update(UUID id, Consumer<Task> change) {
+        Task t;
+        synchronized (this) {
+            t = tasks.get(id);
+            if (t == null)
+                throw new NoSuchElementException("Task not found: " + id);
+            synchronized (t) {
+                change.accept(t);
+            }
+            publish(false);
         }
+        save();
+        return t;
+    }
 
-        // deadline
-        if (newDeadline != null) {
-            task.setDeadline(newDeadline);
-        }
+    public void editTask(UUID id, String newTitle, LocalDate newDeadline, Priority newPriority) {
+        findById(id).orElseThrow();
+        List<LocalDate> completed = instanceRepo.findCompletedDates(id);
 
-        // priority
-        if (newPriority != null) {
-            task.setPriority(newPriority);
-        }
+        update(id, task -> {
+            // title
+            if (newTitle != null && !newTitle.isBlank()) {
+                task.setTitle(newTitle.trim());
+            }
 
-        // After editing, recalculate next occurrence for recurring tasks
-        if (task.getRepeatFrequency() != RepeatFrequency.NONE) {
-            List<LocalDate> completed = instanceRepo.findCompletedDates(id);
-            LocalDate next = RecurrenceUtils.computeNextOccurrence(task, completed);
-            task.setNextOccurrence(next);
-        }
+            // deadline
+            if (newDeadline != null) {
+                task.setDeadline(newDeadline);
+            }
 
-        save();
+            // priority
+            if (newPriority != null) {
+                task.setPriority(newPriority);
+            }
+
+            // After editing, recalculate next occurrence for recurring tasks
+            if (task.getRepeatFrequency() != RepeatFrequency.NONE) {
+                task.setNextOccurrence(RecurrenceUtils.computeNextOccurrence(task, completed));
+            }
+        });
     }
 
     public void deleteTask(UUID id) {
-        tasks.removeIf(t -> t.getId().equals(id));
+        synchronized (this) {
+            Task t = tasks.remove(id);
+            if (t != null)
+                forget(t);
+            else
+                removed.add(id);
+            publish(true);
+        }
         instanceRepo.deleteForTask(id); // remove instance history
         save();
     }
@@ -86,34 +251,127 @@ public class TaskService {
     // ---------------------------------------------------------
 
     public void archiveTask(UUID id) {
-        Task t = findById(id).orElseThrow();
-        t.setArchived(true);
+        findById(id).orElseThrow();
+        archiveTasks(List.of(id));
+    }
+
+    /**
+     * Moves the given tasks to the archive. Pending changes are flushed first so
+     * the repository moves current rows; the move itself touches only these rows.
+     * The tasks leave the active list only once the repository has moved them;
+     * if the flush or the move fails they stay active (archived flag reset) and
+     * the StorageException is rethrown. Unknown ids are ignored. Returns the
+     * number of archived tasks.
+     */
+    public int archiveTasks(Collection<UUID> ids) {
+        synchronized (flushLock) {
+            Set<UUID> moving = new LinkedHashSet<>();
+            synchronized (this) {
+                for (UUID id : ids) {
+                    Task t = tasks.get(id);
+                    if (t != null) {
+                        synchronized (t) {
+                            t.setArchived(true);
+                        }
+                        moving.add(id);
+                    }
+                }
+                if (moving.isEmpty())
+                    return 0;
+                publish(false);
+            }
 
-        // move to archive storage
-        List<Task> archived = new ArrayList<>(repo.loadArchive());
-        archived.add(t);
+            try {
+                flush();
+                repo.archive(moving);
+            } catch (RuntimeException e) {
+                synchronized (this) {
+                    for (UUID id : moving) {
+                        Task t = tasks.get(id);
+                        if (t != null) {
+                            synchronized (t) {
+                                t.setArchived(false);
+                            }
+                        }
+                    }
+                    publish(false);
+                }
+                throw e;
+            }
 
-        tasks.remove(t);
-        repo.saveArchive(archived);
-        save();
+            synchronized (this) {
+                for (UUID id : moving) {
+                    Task t = tasks.remove(id);
+                    if (t != null)
+                        detach(t);
+                }
+                publish(true);
+            }
+            return moving.size();
+        }
+    }
+
+    /**
+     * Moves archived tasks back to the active list and returns them.
+     * Unknown ids are ignored.
+     */
+    public List<Task> unarchiveTasks(Collection<UUID> ids) {
+        synchronized (flushLock) {
+            List<Task> restored = repo.unarchive(ids);
+
+            synchronized (this) {
+                for (Task t : restored) {
+                    Task previous = tasks.put(t.getId(), t);
+                    if (previous != null)
+                        detach(previous);
+                    attach(t);
+                    removed.remove(t.getId());
+                }
+                publish(true);
+            }
+            return restored;
+        }
     }
 
     public List<Task> loadArchive() {
         return repo.loadArchive();
     }
 
+    public TaskPage findArchivePage(ArchiveQuery query) {
+        return repo.findArchivePage(query);
+    }
+
+    public int countArchive() {
+        return repo.countArchive();
+    }
+
     public void clearCompletedNotArchived() {
-        tasks.removeIf(t -> t.isDone() && !t.isArchived());
+        synchronized (this) {
+            tasks.values().removeIf(t -> {
+                boolean clear = t.isDone() && !t.isArchived();
+                if (clear)
+                    forget(t);
+                return clear;
+            });
+            publish(true);
+        }
         save();
     }
 
     public void removeGroupFromTasks(Long groupId) {
+        if (groupId == null)
+            return;
+
         boolean changed = false;
-        for (Task task : tasks) {
-            if (Objects.equals(task.getGroupId(), groupId)) {
-                task.setGroupId(null);
+        synchronized (this) {
+            for (Task task : index.inGroup(groupId)) {
+                synchronized (task) {
+                    task.setGroupId(null);
+                }
                 changed = true;
             }
+            if (changed)
+                publish(false);
         }
         if (changed) {
             save();
@@ -125,15 +383,11 @@ public class TaskService {
     // ---------------------------------------------------------
 
     public void markDone(UUID id) {
-        Task t = findById(id).orElseThrow();
-        t.markDone();
-        save();
+        update(id, Task::markDone);
     }
 
     public void markUndone(UUID id) {
-        Task t = findById(id).orElseThrow();
-        t.markUndone();
-        save();
+        update(id, Task::markUndone);
     }
 
     // ---------------------------------------------------------
@@ -144,97 +398,407 @@ public class TaskService {
      * Mark *one specific instance* of a recurring task as completed.
      */
     public void markInstanceCompleted(UUID taskId, LocalDate date) {
-        if (!instanceRepo.exists(taskId, date)) {
-            instanceRepo.markCompleted(taskId, date);
-        }
+        markInstancesCompleted(taskId, List.of(date));
+    }
 
-        Task t = findById(taskId).orElseThrow();
+    /**
+     * Mark several occurrences as completed in one batch; dates that are
+     * already completed are left as they are.
+     */
+    public void markInstancesCompleted(UUID taskId, Collection<LocalDate> dates) {
+        findById(taskId).orElseThrow();
+        instanceRepo.markCompleted(taskId, dates);
 
         List<LocalDate> completed = instanceRepo.findCompletedDates(taskId);
-        LocalDate next = RecurrenceUtils.computeNextOccurrence(t, completed);
-
-        t.setNextOccurrence(next);
-        save();
+        update(taskId, t -> t.setNextOccurrence(RecurrenceUtils.computeNextOccurrence(t, completed)));
     }
 
     /**
      * Remove exactly one occurrence from the recurrence series.
      */
     public void excludeDate(UUID taskId, LocalDate date) {
-        Task t = findById(taskId).orElseThrow();
-        t.addExcludedDate(date);
-
-        List<LocalDate> completed = instanceRepo.findCompletedDates(taskId);
-        LocalDate next = RecurrenceUtils.computeNextOccurrence(t, completed);
-
-        t.setNextOccurrence(next);
-        save();
+        updateRecurring(taskId, t -> t.addExcludedDate(date));
     }
 
     /**
      * Stop generating future occurrences after a given date.
      */
     public void deleteFutureOccurrences(UUID id, LocalDate fromDate) {
-        Task t = findById(id).orElseThrow();
-        t.setRepeatUntil(fromDate.minusDays(1));
-
-        List<LocalDate> completed = instanceRepo.findCompletedDates(id);
-        LocalDate next = RecurrenceUtils.computeNextOccurrence(t, completed);
-
-        t.setNextOccurrence(next);
-        save();
+        updateRecurring(id, t -> t.setRepeatUntil(fromDate.minusDays(1)));
     }
 
     public boolean isInstanceCompleted(UUID id, LocalDate date) {
         return instanceRepo.exists(id, date);
     }
 
+    /**
+     * Recomputes nextOccurrence of every recurring task, loading the
+     * completion history of all of them in one bulk query.
+     * Returns the number of tasks whose next occurrence changed.
+     */
+    public int recomputeNextOccurrences() {
+        List<UUID> recurring = snapshot.tasks().stream()
+                .filter(t -> t.getRepeatFrequency() != RepeatFrequency.NONE)
+                .map(Task::getId)
+                .toList();
+        if (recurring.isEmpty())
+            return 0;
+
+        Map<UUID, List<LocalDate>> completed = instanceRepo.findCompletedDates(recurring, null, null);
+
+        int changed = 0;
+        synchronized (this) {
+            for (UUID id : recurring) {
+                Task t = tasks.get(id);
+                if (t == null)
+                    continue;
+                LocalDate next = RecurrenceUtils.computeNextOccurrence(t, completed.get(id));
+                if (!Objects.equals(next, t.getNextOccurrence())) {
+                    synchronized (t) {
+                        t.setNextOccurrence(next);
+                    }
+                    changed++;
+                }
+            }
+            if (changed > 0)
+                publish(false);
+        }
+        if (changed > 0) {
+            save();
+        }
+        return changed;
+    }
+
+    /**
+     * Moves next occurrences that lie before today forward. Candidates
+     * come from the next-occurrence index; their completion history is
+     * loaded in one bulk query (only completions from today on can move
+     * the result) and the recompute runs in parallel outside the lock.
+     * A result is applied only if the task's rule and next occurrence did
+     * not change meanwhile; the changed rows are then saved in one batch.
+     * Returns the number of tasks moved.
+     */
+    public int rollNextOccurrences(LocalDate today) {
+        List<Task> stale = index.nextOccurrenceBetween(null, today.minusDays(1)).stream()
+                .filter(t -> t.getRepeatFrequency() != RepeatFrequency.NONE)
+                .toList();
+        if (stale.isEmpty())
+            return 0;
+
+        Map<UUID, List<LocalDate>> completed = instanceRepo.findCompletedDates(
+                stale.stream().map(Task::getId).toList(), today, null);
+
+        List<Rollover> results = (stale.size() >= PARALLEL_ROLLOVER ? stale.parallelStream() : stale.stream())
+                .map(t -> {
+                    CompiledRecurrence rule;
+                    LocalDate seen;
+                    synchronized (t) {
+                        rule = t.recurrence();
+                        seen = t.getNextOccurrence();
+                    }
+                    return new Rollover(t, rule, seen,
+                            RecurrenceUtils.nextOccurrence(rule, completed.get(t.getId()), today));
+                })
+                .toList();
+
+        int changed = 0;
+        synchronized (this) {
+            for (Rollover r : results) {
+                Task t = r.task();
+                boolean untouched = tasks.get(t.getId()) == t
+                        && t.recurrence() == r.rule()
+                        && Objects.equals(t.getNextOccurrence(), r.seen());
+                if (untouched && !Objects.equals(r.next(), r.seen())) {
+                    synchronized (t) {
+                        t.setNextOccurrence(r.next());
+                    }
+                    changed++;
+                }
+            }
+            if (changed > 0)
+                publish(false);
+        }
+        if (changed > 0) {
+            save();
+        }
+        return changed;
+    }
+
+    // A recompute and the rule and value it was based on
+    private record Rollover(Task task, CompiledRecurrence rule, LocalDate seen, LocalDate next) {
+    }
+
+    // Completion history is read before taking the lock; the recompute runs under it
+    private void updateRecurring(UUID id, Consumer<Task> change) {
+        findById(id).orElseThrow();
+        List<LocalDate> completed = instanceRepo.findCompletedDates(id);
+
+        update(id, t -> {
+            change.accept(t);
+            t.setNextOccurrence(RecurrenceUtils.computeNextOccurrence(t, completed));
+        });
+    }
+
     // ---------------------------------------------------------
     // RECURRING LOGIC (READ)
     // ---------------------------------------------------------
 
+    /**
+     * Tasks occurring on the date. Inside the occurrence window this is a
+     * calendar lookup; outside it, one-time tasks come from the deadline
+     * index and recurring tasks are evaluated.
+     */
     public List<Task> getTasksForDate(LocalDate date) {
+        List<Task> indexed = occurrences.tasksOn(date);
+        if (indexed != null) {
+            return indexed;
+        }
+
         List<Task> result = new ArrayList<>();
 
-        for (Task t : tasks) {
-            if (t.isArchived())
-                continue;
+        for (Task t : index.dueOn(date)) {
+            synchronized (t) {
+                if (!t.isArchived() && t.getRepeatFrequency() == RepeatFrequency.NONE) {
+                    result.add(t);
+                }
+            }
+        }
 
-            // recurring logic: delegated to Task.occursOn()
-            if (t.occursOn(date)) {
-                result.add(t);
+        // recurring logic: delegated to Task.occursOn()
+        for (Task t : index.recurring()) {
+            synchronized (t) {
+                if (!t.isArchived() && t.occursOn(date)) {
+                    result.add(t);
+                }
             }
         }
 
         return result;
     }
 
-    // ---------------------------------------------------------
-    // SORTING
-    // ---------------------------------------------------------
+    /**
+     * Tasks per day for [from, to], days without tasks left out. Served
+     * from the occurrence calendar when the range lies inside its window.
+     */
+    public SortedMap<LocalDate, List<Task>> getTasksByDate(LocalDate from, LocalDate to) {
+        SortedMap<LocalDate, List<Task>> indexed = occurrences.between(from, to);
+        if (indexed != null) {
+            return indexed;
+        }
 
-    public void sortByDeadline() {
-        tasks.sort(Comparator.comparing(Task::getDeadline,
-                Comparator.nullsLast(Comparator.naturalOrder())));
-        save();
+        SortedMap<LocalDate, List<Task>> result = new TreeMap<>();
+        for (Task t : snapshot.tasks()) {
+            List<LocalDate> onDays;
+            synchronized (t) {
+                if (t.isArchived())
+                    continue;
+                onDays = RecurrenceUtils.occurrencesBetween(t, from, to);
+            }
+            for (LocalDate d : onDays)
+                result.computeIfAbsent(d, k -> new ArrayList<>()).add(t);
+        }
+        return result;
     }
 
-    public void sortByPriority() {
-        tasks.sort(Comparator.comparing(Task::getPriority,
-                Comparator.nullsLast(Comparator.naturalOrder())));
-        save();
+    /**
+     * Every occurrence of the active tasks in [from, to], ordered by date
+     * and then by task order. Series are enumerated occurrence by
+     * occurrence; completion of recurring occurrences comes from one range
+     * query on the instance history, a one-time task counts as completed
+     * when it is done.
+     */
+    public List<Occurrence> getOccurrences(LocalDate from, LocalDate to) {
+        if (from.isAfter(to)) {
+            throw new IllegalArgumentException("from must not be after to");
+        }
+
+        Map<Task, List<LocalDate>> dates = new LinkedHashMap<>();
+        Set<UUID> recurring = new LinkedHashSet<>();
+        Set<UUID> doneOnce = new HashSet<>(); // one-time tasks that are done
+        for (Task t : snapshot.tasks()) {
+            synchronized (t) {
+                if (t.isArchived())
+                    continue;
+                List<LocalDate> onDays = RecurrenceUtils.occurrencesBetween(t, from, to);
+                if (onDays.isEmpty())
+                    continue;
+                dates.put(t, onDays);
+                if (t.getRepeatFrequency() != RepeatFrequency.NONE)
+                    recurring.add(t.getId());
+                else if (t.isDone())
+                    doneOnce.add(t.getId());
+            }
+        }
+
+        Map<UUID, List<LocalDate>> completed = recurring.isEmpty()
+                ? Map.of()
+                : instanceRepo.findCompletedDates(recurring, from, to);
+
+        List<Occurrence> result = new ArrayList<>();
+        dates.forEach((t, onDays) -> {
+            Set<LocalDate> done = !recurring.contains(t.getId())
+                    ? (doneOnce.contains(t.getId()) ? Set.copyOf(onDays) : Set.of())
+                    : new HashSet<>(completed.getOrDefault(t.getId(), List.of()));
+            for (LocalDate d : onDays)
+                result.add(new Occurrence(t.getId(), d, done.contains(d)));
+        });
+        result.sort(Comparator.comparing(Occurrence::date)); // stable: task order within a day
+        return result;
     }
 
-    public void sortByTitle() {
-        tasks.sort(Comparator.comparing(Task::getTitle, String.CASE_INSENSITIVE_ORDER));
-        save();
+    /**
+     * Moves the occurrence calendar forward to the given day.
+     */
+    public void rollOccurrenceWindow(LocalDate today) {
+        occurrences.roll(today);
+    }
+
+    // ---------------------------------------------------------
+    // SORTING
+    // ---------------------------------------------------------
+
+    /**
+     * Active tasks ordered by the key, nulls last, ties by creation. A
+     * read-only view served from the sort indexes: nothing is reordered or
+     * saved, so one caller's sort does not change anyone else's list.
+     * NONE returns the list order.
+     */
+    public List<Task> getSorted(TaskQuery.Sort sort) {
+        return sort == TaskQuery.Sort.NONE ? snapshot.tasks() : sortIndex.sorted(sort);
     }
 
     // ---------------------------------------------------------
     // STORAGE
     // ---------------------------------------------------------
 
+    /**
+     * Persists everything that changed since the last save: tasks added through
+     * this service, tasks whose setters ran (Task.touch()), and removed ids.
+     * In write-behind mode the write is queued and merged with other saves;
+     * after shutdown() it runs synchronously again.
+     */
     public void save() {
-        repo.saveAll(tasks);
+        if (writeBehind == null || !writeBehind.enqueue()) {
+            flush();
+        }
+    }
+
+    /**
+     * Writes all pending changes now, on the calling thread. If the write
+     * fails the changes stay pending for the next flush and the exception
+     * is rethrown.
+     */
+    public void flush() {
+        synchronized (flushLock) {
+            List<Task> snapshot;
+            TaskChangeSet changes;
+
+            synchronized (this) {
+                changes = pendingChanges();
+                if (changes.isEmpty())
+                    return;
+                snapshot = List.copyOf(tasks.values());
+                markSaved(changes);
+            }
+
+            try {
+                repo.saveChanges(snapshot, changes);
+            } catch (RuntimeException e) {
+                synchronized (this) {
+                    requeue(changes);
+                }
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Drains the write-behind queue and flushes the remaining changes, then
+     * drops the private instance database if this service created one.
+     * Called on Spring context shutdown and from the CLI shutdown hook.
+     */
+    @PreDestroy
+    public void shutdown() {
+        try {
+            if (writeBehind != null) {
+                writeBehind.shutdown();
+            }
+            flush();
+        } finally {
+            if (ownedInstancePool != null) {
+                ownedInstancePool.drop();
+            }
+        }
+    }
+
+    private TaskChangeSet pendingChanges() {
+        Set<Task> upserts = new LinkedHashSet<>(created);
+        for (Task t : tasks.values()) {
+            if (t.isDirty())
+                upserts.add(t);
+        }
+        return new TaskChangeSet(new ArrayList<>(upserts), removed);
+    }
+
+    private void markSaved(TaskChangeSet changes) {
+        changes.upserts().forEach(Task::markClean);
+        created.clear();
+        removed.clear();
+    }
+
+    // Undoes markSaved after a failed write, skipping what changed in the meantime:
+    // tasks deleted since are not revived and ids re-added since are not deleted
+    private void requeue(TaskChangeSet changes) {
+        for (Task t : changes.upserts()) {
+            if (tasks.get(t.getId()) == t)
+                created.add(t);
+        }
+        for (UUID id : changes.deletions()) {
+            if (!tasks.containsKey(id))
+                removed.add(id);
+        }
+    }
+
+    // Caller holds `this`. The task joins the indexes and reports its changes to them.
+    private void attach(Task t) {
+        index.add(t);
+        occurrences.add(t);
+        sortIndex.add(t);
+        t.setChangeListener(listener);
+    }
+
+    private void detach(Task t) {
+        t.setChangeListener(null);
+        index.remove(t);
+        occurrences.remove(t);
+        sortIndex.remove(t);
+    }
+
+    private void onTaskChanged(Task task, TaskChangeListener.Property property, Object oldValue, Object newValue) {
+        index.changed(task, property, oldValue, newValue);
+        occurrences.changed(task, property, oldValue, newValue);
+        sortIndex.changed(task, property, oldValue, newValue);
+    }
+
+    // Caller holds `this`. Structural changes copy the list; field changes only bump the
+    // version (the list holds the same live tasks, so there is nothing to copy).
+    private void publish(boolean structural) {
+        Snapshot last = snapshot;
+        long version = last == null ? 0 : last.version() + 1;
+        snapshot = structural || last == null
+                ? new Snapshot(version, List.copyOf(tasks.values()), Map.copyOf(tasks))
+                : new Snapshot(version, last.tasks(), last.byId());
+    }
+
+    private static LinkedHashMap<UUID, Task> index(List<Task> list) {
+        LinkedHashMap<UUID, Task> byId = new LinkedHashMap<>(Math.max(16, list.size() * 2));
+        list.forEach(t -> byId.put(t.getId(), t));
+        return byId;
+    }
+
+    private void forget(Task t) {
+        detach(t);
+        created.remove(t);
+        removed.add(t.getId());
     }
 }
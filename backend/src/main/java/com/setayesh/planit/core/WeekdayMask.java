@@ -0,0 +1,75 @@
+package com.setayesh.planit.core;
+
+import java.time.DayOfWeek;
+import java.util.StringJoiner;
+
+/**
+ * Encodes a set of weekdays as a 7-bit mask (bit 0 = Monday … bit 6 = Sunday).
+ * The string form is the three-letter codes used by the JSON API ("MON,WED").
+ */
+public final class WeekdayMask {
+
+    public static final int NONE = 0;
+
+    private WeekdayMask() {
+    }
+
+    public static int bit(DayOfWeek day) {
+        return 1 << (day.getValue() - 1);
+    }
+
+    public static boolean contains(int mask, DayOfWeek day) {
+        return (mask & bit(day)) != 0;
+    }
+
+    /**
+     * Parses comma-separated day codes. Matching is case-insensitive and
+     * accepts any prefix of at least three letters ("mon", "MONDAY").
+     * Unknown codes are ignored.
+     */
+    public static int parse(String codes) {
+        if (codes == null || codes.isBlank())
+            return NONE;
+
+        int mask = NONE;
+        for (String part : codes.split(",")) {
+            String code = part.trim().toUpperCase();
+            if (code.length() < 3)
+                continue;
+            for (DayOfWeek day : DayOfWeek.values()) {
+                if (day.name().startsWith(code)) {
+                    mask |= bit(day);
+                    break;
+                }
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * Formats the mask as codes in Monday-to-Sunday order, or null when empty.
+     */
+    public static String format(int mask) {
+        if (mask == NONE)
+            return null;
+
+        StringJoiner joiner = new StringJoiner(",");
+        for (DayOfWeek day : DayOfWeek.values()) {
+            if (contains(mask, day))
+                joiner.add(day.name().substring(0, 3));
+        }
+        return joiner.toString();
+    }
+
+    /**
+     * Days from the given weekday to the next weekday in the mask (0 when
+     * the day itself is in it), or -1 for an empty mask.
+     */
+    public static int daysUntil(int mask, DayOfWeek from) {
+        if (mask == NONE)
+            return -1;
+        int shift = from.getValue() - 1;
+        int rotated = ((mask >>> shift) | (mask << (7 - shift))) & 0x7F;
+        return Integer.numberOfTrailingZeros(rotated);
+    }
+}
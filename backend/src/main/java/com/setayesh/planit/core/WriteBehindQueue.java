@@ -0,0 +1,110 @@
+package com.setayesh.planit.core;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coalesces save requests and runs a single flush on a background thread,
+ * either after the configured delay or once the batch size is reached.
+ * A failed flush is retried up to {@link #MAX_RETRIES} times with doubling
+ * delays; after that the changes wait (still pending) for the next save.
+ */
+final class WriteBehindQueue {
+
+    static final int MAX_RETRIES = 5;
+    private static final long MAX_BACKOFF_MS = 60_000;
+
+    private final Runnable flush;
+    private final long delayMs;
+    private final int batchSize;
+    private final ScheduledThreadPoolExecutor executor;
+
+    private int pending;
+    private ScheduledFuture<?> scheduled;
+    // Failed runs since the last successful one
+    private int failures;
+
+    WriteBehindQueue(WriteBehindSettings settings, Runnable flush) {
+        this.flush = flush;
+        this.delayMs = settings.delayMs();
+        this.batchSize = settings.batchSize();
+        this.executor = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread t = new Thread(r, "planit-write-behind");
+            t.setDaemon(true);
+            return t;
+        });
+        // A queued flush is dropped on shutdown; the caller flushes right after
+        this.executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+    }
+
+    /**
+     * Records one save request. Consecutive requests share the pending flush.
+     * Returns false once the queue is shut down; the caller then has to flush
+     * itself.
+     */
+    synchronized boolean enqueue() {
+        if (executor.isShutdown())
+            return false;
+
+        pending++;
+
+        if (pending >= batchSize) {
+            if (scheduled != null)
+                scheduled.cancel(false);
+            scheduled = executor.schedule(this::run, 0, TimeUnit.MILLISECONDS);
+        } else if (scheduled == null) {
+            scheduled = executor.schedule(this::run, delayMs, TimeUnit.MILLISECONDS);
+        }
+        return true;
+    }
+
+    // After a failed flush: another run after delayMs * 2^(failures - 1), capped,
+    // whatever the batch size; gives up after MAX_RETRIES
+    private synchronized void retry(RuntimeException e) {
+        failures++;
+        if (failures > MAX_RETRIES) {
+            System.err.println("⚠️ Write-behind flush failed " + failures + " times, waiting for the next save: "
+                    + e.getMessage());
+            failures = 0;
+            return;
+        }
+        System.err.println("⚠️ Write-behind flush failed, retry " + failures + " of " + MAX_RETRIES + ": "
+                + e.getMessage());
+        if (executor.isShutdown() || scheduled != null)
+            return;
+        long backoff = Math.min(Math.max(delayMs, 1) << (failures - 1), MAX_BACKOFF_MS);
+        scheduled = executor.schedule(this::run, backoff, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops the background thread after any flush that is already running.
+     * The caller is responsible for the final flush.
+     */
+    void shutdown() {
+        synchronized (this) {
+            executor.shutdown();
+        }
+        try {
+            executor.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run() {
+        synchronized (this) {
+            pending = 0;
+            scheduled = null;
+        }
+        try {
+            flush.run();
+            synchronized (this) {
+                failures = 0;
+            }
+        } catch (RuntimeException e) {
+            // The changes stay pending for the retry or the next save
+            retry(e);
+        }
+    }
+}
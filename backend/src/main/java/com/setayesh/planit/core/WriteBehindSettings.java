@@ -0,0 +1,20 @@
+package com.setayesh.planit.core;
+
+/**
+ * Write-behind configuration for TaskService.
+ * When enabled, saves are queued and merged into one repository write that runs
+ * after {@code delayMs} or as soon as {@code batchSize} saves have accumulated.
+ */
+public record WriteBehindSettings(boolean enabled, long delayMs, int batchSize) {
+
+    public WriteBehindSettings {
+        if (delayMs < 0)
+            throw new IllegalArgumentException("Write-behind delay cannot be negative.");
+        if (batchSize < 1)
+            throw new IllegalArgumentException("Write-behind batch size must be at least 1.");
+    }
+
+    public static WriteBehindSettings disabled() {
+        return new WriteBehindSettings(false, 0, 1);
+    }
+}
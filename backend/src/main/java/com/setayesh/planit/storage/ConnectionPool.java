@@ -0,0 +1,198 @@
+package com.setayesh.planit.storage;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded JDBC connection pool shared by all H2 repositories.
+ * Pools are registered per JDBC URL, so repositories created without Spring
+ * (CLI, tests) that point at the same database also share one pool.
+ */
+public final class ConnectionPool implements AutoCloseable {
+
+    private static final String USER = "sa";
+    private static final String PASSWORD = "";
+
+    private static final Map<String, ConnectionPool> SHARED = new ConcurrentHashMap<>();
+    // Pool names stay unique after pools are closed and removed from SHARED
+    private static final AtomicInteger POOL_IDS = new AtomicInteger();
+
+    private final String url;
+    private final HikariDataSource dataSource;
+
+    // Filled by Hikari through the metrics tracker below
+    private final AtomicLong acquired = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+
+    /**
+     * Pool sizing and safety limits. A leak detection threshold of 0 disables it.
+     */
+    public record Settings(
+            int maximumSize,
+            int minimumIdle,
+            long connectionTimeoutMs,
+            long validationTimeoutMs,
+            long leakDetectionThresholdMs) {
+
+        public static Settings defaults() {
+            return new Settings(10, 2, 30_000, 5_000, 0);
+        }
+    }
+
+    /**
+     * Point-in-time pool metrics.
+     */
+    public record Stats(
+            int active,
+            int idle,
+            int total,
+            int waiting,
+            long acquired,
+            double avgWaitMs,
+            double maxWaitMs,
+            long timeouts) {
+    }
+
+    private ConnectionPool(String url, Settings settings) {
+        this.url = url;
+
+        HikariConfig config = new HikariConfig();
+        config.setPoolName("planit-h2-" + POOL_IDS.getAndIncrement());
+        config.setJdbcUrl(url);
+        config.setUsername(USER);
+        config.setPassword(PASSWORD);
+        config.setMaximumPoolSize(settings.maximumSize());
+        config.setMinimumIdle(Math.min(settings.minimumIdle(), settings.maximumSize()));
+        config.setConnectionTimeout(settings.connectionTimeoutMs());
+        config.setValidationTimeout(settings.validationTimeoutMs());
+        config.setLeakDetectionThreshold(settings.leakDetectionThresholdMs());
+        config.setMetricsTrackerFactory((poolName, poolStats) -> new WaitTracker());
+
+        this.dataSource = new HikariDataSource(config);
+        System.out.println("🔌 H2 connection pool ready (max " + settings.maximumSize() + "): " + url);
+    }
+
+    // ---------------------------------------------------------------------
+    // Registry
+    // ---------------------------------------------------------------------
+
+    /**
+     * Returns the pool for a database path or JDBC URL, creating it with default
+     * settings on first use.
+     */
+    public static ConnectionPool forPath(String customPath) {
+        return open(resolveUrl(customPath), Settings.defaults());
+    }
+
+    /**
+     * Returns the pool for a database path or JDBC URL. Settings only apply when
+     * the pool does not exist yet.
+     */
+    public static ConnectionPool open(String customPath, Settings settings) {
+        String url = resolveUrl(customPath);
+        return SHARED.computeIfAbsent(url, u -> new ConnectionPool(u, settings));
+    }
+
+    static String resolveUrl(String customPath) {
+        if (customPath != null && customPath.startsWith("jdbc:")) {
+            return customPath;
+        } else if (customPath != null) {
+            return "jdbc:h2:file:" + customPath + ";AUTO_SERVER=TRUE";
+        } else if (System.getenv("GITHUB_ACTIONS") != null) {
+            return "jdbc:h2:mem:planit;DB_CLOSE_DELAY=-1";
+        } else {
+            String dbPath = System.getProperty("user.dir") + "/planit_db";
+            return "jdbc:h2:file:" + dbPath + ";AUTO_SERVER=TRUE";
+        }
+    }
+
+    // ---------------------------------------------------------------------
+    // Access
+    // ---------------------------------------------------------------------
+
+    public Connection getConnection() throws SQLException {
+        return dataSource.getConnection();
+    }
+
+    public DataSource dataSource() {
+        return dataSource;
+    }
+
+    public String url() {
+        return url;
+    }
+
+    public Stats stats() {
+        HikariPoolMXBean bean = dataSource.getHikariPoolMXBean();
+        long count = acquired.get();
+        double avgWait = count == 0 ? 0 : nanosToMillis(totalWaitNanos.get()) / count;
+
+        return new Stats(
+                bean != null ? bean.getActiveConnections() : 0,
+                bean != null ? bean.getIdleConnections() : 0,
+                bean != null ? bean.getTotalConnections() : 0,
+                bean != null ? bean.getThreadsAwaitingConnection() : 0,
+                count,
+                avgWait,
+                nanosToMillis(maxWaitNanos.get()),
+                timeouts.get());
+    }
+
+    @Override
+    public void close() {
+        SHARED.remove(url, this);
+        dataSource.close();
+    }
+
+    /**
+     * Shuts the database down and closes the pool. For private in-memory
+     * databases, which DB_CLOSE_DELAY=-1 would otherwise keep alive after
+     * the pool is gone. Does nothing once the pool is closed.
+     */
+    public void drop() {
+        if (dataSource.isClosed()) {
+            return;
+        }
+        try (Connection conn = dataSource.getConnection();
+                Statement stmt = conn.createStatement()) {
+            stmt.execute("SHUTDOWN");
+        } catch (SQLException e) {
+            System.err.println("⚠️ Error shutting down database " + url + ": " + e.getMessage());
+        } finally {
+            close();
+        }
+    }
+
+    private static double nanosToMillis(long nanos) {
+        return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    private final class WaitTracker implements IMetricsTracker {
+
+        @Override
+        public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+            acquired.incrementAndGet();
+            totalWaitNanos.addAndGet(elapsedAcquiredNanos);
+            maxWaitNanos.accumulateAndGet(elapsedAcquiredNanos, Math::max);
+        }
+
+        @Override
+        public void recordConnectionTimeout() {
+            timeouts.incrementAndGet();
+        }
+    }
+}
@@ -3,7 +3,6 @@ package com.setayesh.planit.storage;
 import com.setayesh.planit.core.Group;
 import org.springframework.stereotype.Repository;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Value;
 
 import java.sql.*;
 import java.util.ArrayList;
@@ -12,53 +11,29 @@ import java.util.List;
 @Repository
 public class DatabaseGroupRepository {
 
-    private static final String USER = "sa";
-    private static final String PASSWORD = "";
-    private final String url;
+    private final ConnectionPool pool;
 
     public DatabaseGroupRepository() {
-        this.url = resolveUrl(null);
-        initSchema();
+        this(ConnectionPool.forPath(null));
     }
 
-    @Autowired
-    public DatabaseGroupRepository(@Value("${planit.database.path}") String customDbPath) {
-        this.url = resolveUrl(customDbPath);
-        initSchema();
+    public DatabaseGroupRepository(String customDbPath) {
+        this(ConnectionPool.forPath(customDbPath));
     }
 
-    private String resolveUrl(String customPath) {
-        if (customPath != null && customPath.startsWith("jdbc:")) {
-            return customPath;
-        } else if (customPath != null) {
-            return "jdbc:h2:file:" + customPath + ";AUTO_SERVER=TRUE";
-        } else if (System.getenv("GITHUB_ACTIONS") != null) {
-            return "jdbc:h2:mem:planit;DB_CLOSE_DELAY=-1";
-        } else {
-            String dbPath = System.getProperty("user.dir") + "/planit_db";
-            return "jdbc:h2:file:" + dbPath + ";AUTO_SERVER=TRUE";
-        }
+    @Autowired
+    public DatabaseGroupRepository(ConnectionPool pool) {
+        this.pool = pool;
+        initSchema();
     }
 
     private void initSchema() {
-        try (Connection conn = DriverManager.getConnection(url, USER, PASSWORD);
-                Statement stmt = conn.createStatement()) {
-
-            stmt.execute("""
-                        CREATE TABLE IF NOT EXISTS categories (
-                            id IDENTITY PRIMARY KEY,
-                            name VARCHAR(255) NOT NULL
-                        );
-                    """);
-
-        } catch (SQLException e) {
-            System.err.println("⚠️ Error initializing categories schema: " + e.getMessage());
-        }
+        SchemaMigrations.migrate(pool);
     }
 
     public List<Group> findAll() {
         List<Group> list = new ArrayList<>();
-        try (Connection conn = DriverManager.getConnection(url, USER, PASSWORD);
+        try (Connection conn = pool.getConnection();
                 Statement st = conn.createStatement();
                 ResultSet rs = st.executeQuery("SELECT id,name FROM categories ORDER BY name ASC")) {
             while (rs.next())
@@ -77,7 +52,7 @@ public class DatabaseGroupRepository {
 
     private Group insert(Group g) {
         String sql = "INSERT INTO categories (name) VALUES (?)";
-        try (Connection conn = DriverManager.getConnection(url, USER, PASSWORD);
+        try (Connection conn = pool.getConnection();
                 PreparedStatement ps = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
             ps.setString(1, g.getName());
             ps.executeUpdate();
@@ -93,7 +68,7 @@ public class DatabaseGroupRepository {
 
     private Group update(Group g) {
         String sql = "UPDATE categories SET name=? WHERE id=?";
-        try (Connection conn = DriverManager.getConnection(url, USER, PASSWORD);
+        try (Connection conn = pool.getConnection();
                 PreparedStatement ps = conn.prepareStatement(sql)) {
             ps.setString(1, g.getName());
             ps.setLong(2, g.getId());
@@ -106,7 +81,7 @@ public class DatabaseGroupRepository {
 
     public void delete(Long id) {
         String sql = "DELETE FROM categories WHERE id=?";
-        try (Connection conn = DriverManager.getConnection(url, USER, PASSWORD);
+        try (Connection conn = pool.getConnection();
                 PreparedStatement ps = conn.prepareStatement(sql)) {
             ps.setLong(1, id);
             ps.executeUpdate();
@@ -117,7 +92,7 @@ public class DatabaseGroupRepository {
 
     public Group findById(Long id) {
         String sql = "SELECT id, name FROM categories WHERE id = ?";
-        try (Connection conn = DriverManager.getConnection(url, USER, PASSWORD);
+        try (Connection conn = pool.getConnection();
                 PreparedStatement ps = conn.prepareStatement(sql)) {
 
             ps.setLong(1, id);
@@ -1,6 +1,10 @@
 package com.setayesh.planit.storage;
 
+import com.setayesh.planit.core.ArchiveQuery;
+import com.setayesh.planit.core.DateSet;
 import com.setayesh.planit.core.Task;
+import com.setayesh.planit.core.TaskPage;
+import com.setayesh.planit.core.TaskQuery;
 import com.setayesh.planit.core.Priority;
 import com.setayesh.planit.core.RecurrenceUtils;
 import com.setayesh.planit.core.RepeatFrequency;
@@ -16,99 +20,60 @@ import java.util.*;
 @Repository
 public class DatabaseTaskRepository implements TaskRepository {
 
-    private static final String USER = "sa";
-    private static final String PASSWORD = "";
-    private final String url;
+    private static final String COLUMNS = """
+            id, title, deadline, priority, group_id,
+            done, archived,
+            created_at, updated_at,
+            repeat_frequency, repeat_day_mask, repeat_until,
+            time,
+            repeat_interval,
+            start_date,
+            next_occurrence
+            """;
+    private static final String PLACEHOLDERS = "?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?";
+
+    // Loads recomputing at least this many next occurrences do it in parallel
+    public static final int DEFAULT_PARALLEL_THRESHOLD = 512;
+
+    private final ConnectionPool pool;
+    private final int parallelThreshold;
 
     public DatabaseTaskRepository() {
-        this.url = resolveUrl(null);
-        logInit();
-        initDatabase();
+        this(ConnectionPool.forPath(null));
+    }
+
+    public DatabaseTaskRepository(String customDbPath) {
+        this(ConnectionPool.forPath(customDbPath));
+    }
+
+    public DatabaseTaskRepository(ConnectionPool pool) {
+        this(pool, DEFAULT_PARALLEL_THRESHOLD);
     }
 
     @Autowired
-    public DatabaseTaskRepository(@Value("${planit.database.path}") String customDbPath) {
-        this.url = resolveUrl(customDbPath);
+    public DatabaseTaskRepository(ConnectionPool pool,
+            @Value("${planit.startup.parallel-threshold:" + DEFAULT_PARALLEL_THRESHOLD + "}") int parallelThreshold) {
+        if (parallelThreshold < 1)
+            throw new IllegalArgumentException("Parallel threshold must be at least 1.");
+
+        this.pool = pool;
+        this.parallelThreshold = parallelThreshold;
         logInit();
         initDatabase();
     }
 
-    private String resolveUrl(String customPath) {
-        if (customPath != null) {
-            System.out.println("💾 Using configured database at: " + customPath);
-            return "jdbc:h2:file:" + customPath + ";AUTO_SERVER=TRUE";
-        } else if (System.getenv("GITHUB_ACTIONS") != null) {
-            System.out.println("🏗 Running in GitHub Actions CI → using in-memory H2 database");
-            return "jdbc:h2:mem:planit;DB_CLOSE_DELAY=-1";
-        } else {
-            String dbPath = System.getProperty("user.dir") + "/planit_db";
-            System.out.println("💾 Running locally → using file-based H2 database");
-            return "jdbc:h2:file:" + dbPath + ";AUTO_SERVER=TRUE";
-        }
-    }
-
     private void logInit() {
         System.out.println("🗂 DatabaseTaskRepository initialized");
-        System.out.println("📁 H2 URL = " + url);
+        System.out.println("📁 H2 URL = " + pool.url());
         System.out.println("📂 Working directory = " + System.getProperty("user.dir"));
     }
 
     private void initDatabase() {
-        try (Connection conn = DriverManager.getConnection(url, USER, PASSWORD);
-                Statement stmt = conn.createStatement()) {
-
-            // Active tasks
-            stmt.execute("""
-                        CREATE TABLE IF NOT EXISTS tasks (
-                            id UUID PRIMARY KEY,
-                            title VARCHAR(255) NOT NULL,
-                            deadline DATE,
-                            priority VARCHAR(50),
-                            done BOOLEAN,
-                            archived BOOLEAN,
-                            created_at TIMESTAMP,
-                            updated_at TIMESTAMP,
-                            group_id BIGINT,
-                            repeat_frequency VARCHAR(20),
-                            repeat_days VARCHAR(50),
-                            repeat_until DATE,
-                            repeat_interval INT,
-                            time VARCHAR(20),
-                            excluded_dates VARCHAR(500),
-                            start_date DATE,
-                            next_occurrence DATE
-                        );
-                    """);
-
-            // Archive table
-            stmt.execute("""
-                        CREATE TABLE IF NOT EXISTS archive (
-                            id UUID PRIMARY KEY,
-                            title VARCHAR(255) NOT NULL,
-                            deadline DATE,
-                            priority VARCHAR(50),
-                            done BOOLEAN,
-                            archived BOOLEAN,
-                            created_at TIMESTAMP,
-                            updated_at TIMESTAMP,
-                            group_id BIGINT,
-                            repeat_frequency VARCHAR(20),
-                            repeat_days VARCHAR(50),
-                            repeat_until DATE,
-                            repeat_interval INT,
-                            time VARCHAR(20),
-                            excluded_dates VARCHAR(500),
-                            start_date DATE,
-                            next_occurrence DATE
-                        );
-                    """);
-
-            stmt.execute("ALTER TABLE tasks ADD COLUMN IF NOT EXISTS next_occurrence DATE");
-            stmt.execute("ALTER TABLE archive ADD COLUMN IF NOT EXISTS next_occurrence DATE");
+        SchemaMigrations.migrate(pool);
+    }
 
-        } catch (SQLException e) {
-            System.err.println("⚠️ Database init error: " + e.getMessage());
-        }
+    static String excludedTable(String table) {
+        return table + "_excluded_dates";
     }
 
     // ---------------------------------------------------------------------
@@ -124,6 +89,80 @@ public class DatabaseTaskRepository implements TaskRepository {
         writeTable("tasks", tasks);
     }
 
+    /**
+     * Translates the query into a WHERE / ORDER BY / LIMIT clause so filtering
+     * runs on the indexed columns instead of over a full read.
+     */
+    @Override
+    public List<Task> query(TaskQuery query) {
+        List<String> conditions = new ArrayList<>();
+        List<Object> params = new ArrayList<>();
+
+        if (query.groupId() != null) {
+            conditions.add("group_id = ?");
+            params.add(query.groupId());
+        }
+        if (query.done() != null) {
+            conditions.add("done = ?");
+            params.add(query.done());
+        }
+        if (query.archived() != null) {
+            conditions.add("archived = ?");
+            params.add(query.archived());
+        }
+        if (query.priority() != null) {
+            conditions.add("priority = ?");
+            params.add(query.priority().name());
+        }
+        addRange(conditions, params, "deadline", query.deadlineFrom(), query.deadlineTo());
+        addRange(conditions, params, "next_occurrence", query.nextOccurrenceFrom(), query.nextOccurrenceTo());
+
+        StringBuilder clause = new StringBuilder();
+        if (!conditions.isEmpty()) {
+            clause.append(" WHERE ").append(String.join(" AND ", conditions));
+        }
+
+        String orderBy = switch (query.sort()) {
+            case DEADLINE -> "deadline NULLS LAST";
+            case NEXT_OCCURRENCE -> "next_occurrence NULLS LAST";
+            case PRIORITY -> priorityRank() + " NULLS LAST";
+            case TITLE -> "LOWER(title)";
+            case CREATED -> "created_at";
+            case NONE -> null;
+        };
+        if (orderBy != null) {
+            clause.append(" ORDER BY ").append(orderBy).append(", id");
+        }
+
+        if (query.limit() > 0) {
+            clause.append(" LIMIT ?");
+            params.add(query.limit());
+        }
+
+        return readTable(query.archivedOnly() ? "archive" : "tasks", clause.toString(), params);
+    }
+
+    private static void addRange(List<String> conditions, List<Object> params,
+            String column, LocalDate from, LocalDate to) {
+        if (from != null) {
+            conditions.add(column + " >= ?");
+            params.add(from);
+        }
+        if (to != null) {
+            conditions.add(column + " <= ?");
+            params.add(to);
+        }
+    }
+
+    // Priority is stored by name; rank it in enum order (HIGH first)
+    private static String priorityRank() {
+        StringBuilder sql = new StringBuilder("CASE priority");
+        for (Priority p : Priority.values()) {
+            sql.append(" WHEN '").append(p.name()).append("' THEN ").append(p.ordinal());
+        }
+        return sql.append(" END").toString();
+    }
+
     // ---------------------------------------------------------------------
     // Archive tasks
     // ---------------------------------------------------------------------
@@ -137,122 +176,372 @@ public class DatabaseTaskRepository implements TaskRepository {
         writeTable("archive", archive);
     }
 
+    /**
+     * Keyset page: rows strictly after the cursor in (updated_at, id) descending
+     * order, read through idx_archive_updated_id with LIMIT page size + 1.
+     */
+    @Override
+    public TaskPage findArchivePage(ArchiveQuery query) {
+        List<String> conditions = new ArrayList<>();
+        List<Object> params = new ArrayList<>();
+
+        ArchiveQuery.Cursor position = query.position();
+        if (position != null) {
+            // row-value form, so H2 turns it into an index range (the OR form scans)
+            conditions.add("(updated_at, id) < (?, ?)");
+            params.add(Timestamp.valueOf(position.updatedAt()));
+            params.add(position.id());
+        }
+        if (query.groupId() != null) {
+            conditions.add("group_id = ?");
+            params.add(query.groupId());
+        }
+        if (query.search() != null) {
+            conditions.add("LOWER(title) LIKE ? ESCAPE '\\'");
+            params.add("%" + query.search().toLowerCase(Locale.ROOT)
+                    .replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%");
+        }
+        if (query.from() != null) {
+            conditions.add("updated_at >= ?");
+            params.add(Timestamp.valueOf(query.from().atStartOfDay()));
+        }
+        if (query.to() != null) {
+            conditions.add("updated_at < ?");
+            params.add(Timestamp.valueOf(query.to().plusDays(1).atStartOfDay()));
+        }
+
+        String clause = (conditions.isEmpty() ? "" : " WHERE " + String.join(" AND ", conditions))
+                + " ORDER BY updated_at DESC, id DESC LIMIT ?";
+        params.add(query.limit() + 1);
+
+        return TaskPage.of(readTable("archive", clause, params), query.limit());
+    }
+
+    @Override
+    public int countArchive() {
+        try (Connection conn = pool.getConnection();
+                Statement stmt = conn.createStatement();
+                ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM archive")) {
+            return rs.next() ? rs.getInt(1) : 0;
+        } catch (SQLException e) {
+            System.err.println("⚠️ Error counting archive: " + e.getMessage());
+            return 0;
+        }
+    }
+
+    @Override
+    public void archive(Collection<UUID> ids) {
+        move("tasks", "archive", ids, true);
+    }
+
+    /**
+     * The restored rows are read back inside the move's transaction, so a
+     * failed read rolls the move back instead of leaving rows in the active
+     * table that the caller never learns about (and a later saveAll deletes).
+     */
+    @Override
+    public List<Task> unarchive(Collection<UUID> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+
+        long started = System.nanoTime();
+        Object idArray = ids.toArray(UUID[]::new);
+        Rows restored;
+
+        try (Connection conn = pool.getConnection()) {
+
+            conn.setAutoCommit(false);
+
+            if (moveRows(conn, "archive", "tasks", idArray, false) == 0) {
+                conn.rollback();
+                return List.of();
+            }
+            restored = readRows(conn, "tasks", " WHERE id = ANY(?)", List.of(idArray));
+
+            conn.commit();
+
+        } catch (SQLException e) {
+            // Hikari rolls back the open transaction when the connection is returned
+            throw new StorageException("Error moving tasks from archive to tasks: " + e.getMessage(), e);
+        }
+
+        return completeRows("tasks", " WHERE id = ANY(?)", restored, started);
+    }
+
+    /**
+     * Moves rows between the active and archive tables with set-based
+     * statements in one transaction: flag update, copy of the rows and their
+     * excluded dates, delete of the source rows (cascading to their dates).
+     * Returns the number of moved tasks; a failed move is rolled back and
+     * reported as a StorageException.
+     */
+    private int move(String from, String to, Collection<UUID> ids, boolean archived) {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+
+        try (Connection conn = pool.getConnection()) {
+
+            conn.setAutoCommit(false);
+            int moved = moveRows(conn, from, to, ids.toArray(UUID[]::new), archived);
+            conn.commit();
+            return moved;
+
+        } catch (SQLException e) {
+            throw new StorageException("Error moving tasks from " + from + " to " + to + ": " + e.getMessage(), e);
+        }
+    }
+
+    // The statements of a move, inside the caller's transaction; `idArray` is
+    // bound as a single array value for each ANY(?)
+    private static int moveRows(Connection conn, String from, String to, Object idArray,
+            boolean archived) throws SQLException {
+        int moved;
+        try (PreparedStatement ps = conn.prepareStatement(
+                "UPDATE " + from + " SET archived = ?, updated_at = LOCALTIMESTAMP WHERE id = ANY(?)")) {
+            ps.setBoolean(1, archived);
+            ps.setObject(2, idArray);
+            moved = ps.executeUpdate();
+        }
+
+        if (moved > 0) {
+            String[] statements = {
+                    "MERGE INTO %s (%s) KEY (id) SELECT %s FROM %s WHERE id = ANY(?)"
+                            .formatted(to, COLUMNS, COLUMNS, from),
+                    "DELETE FROM %s WHERE task_id = ANY(?)".formatted(excludedTable(to)),
+                    "INSERT INTO %s (task_id, excluded_date) SELECT task_id, excluded_date FROM %s WHERE task_id = ANY(?)"
+                            .formatted(excludedTable(to), excludedTable(from)),
+                    "DELETE FROM %s WHERE id = ANY(?)".formatted(from)
+            };
+            for (String sql : statements) {
+                try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                    ps.setObject(1, idArray);
+                    ps.executeUpdate();
+                }
+            }
+        }
+        return moved;
+    }
+
     // ---------------------------------------------------------------------
     // Internal DB I/O
     // ---------------------------------------------------------------------
     private List<Task> readTable(String table) {
-        List<Task> tasks = new ArrayList<>();
+        return readTable(table, "", List.of());
+    }
 
-        String sql = "SELECT * FROM " + table;
+    // Decoded rows plus the completion history of those missing a next occurrence
+    private record Rows(List<Task> tasks, Map<UUID, DateSet> completed) {
+    }
 
-        try (Connection conn = DriverManager.getConnection(url, USER, PASSWORD);
-                Statement stmt = conn.createStatement();
-                ResultSet rs = stmt.executeQuery(sql)) {
-
-            while (rs.next()) {
-
-                UUID id = rs.getObject("id", UUID.class);
-                String title = rs.getString("title");
-
-                LocalDate deadline = rs.getDate("deadline") != null
-                        ? rs.getDate("deadline").toLocalDate()
-                        : null;
-
-                Priority priority = rs.getString("priority") != null
-                        ? Priority.valueOf(rs.getString("priority"))
-                        : null;
-
-                Long groupId = rs.getObject("group_id") != null
-                        ? rs.getLong("group_id")
-                        : null;
-
-                boolean done = rs.getBoolean("done");
-                boolean archived = rs.getBoolean("archived");
-
-                LocalDateTime createdAt = rs.getTimestamp("created_at") != null
-                        ? rs.getTimestamp("created_at").toLocalDateTime()
-                        : LocalDateTime.now();
-
-                LocalDateTime updatedAt = rs.getTimestamp("updated_at") != null
-                        ? rs.getTimestamp("updated_at").toLocalDateTime()
-                        : createdAt;
-
-                String freqStr = rs.getString("repeat_frequency");
-                RepeatFrequency freq = freqStr != null
-                        ? RepeatFrequency.valueOf(freqStr)
-                        : RepeatFrequency.NONE;
-
-                String repeatDays = rs.getString("repeat_days");
-
-                LocalDate repeatUntil = rs.getDate("repeat_until") != null
-                        ? rs.getDate("repeat_until").toLocalDate()
-                        : null;
-
-                Integer repeatInterval = rs.getObject("repeat_interval", Integer.class);
-
-                String time = rs.getString("time");
-                String excludedDates = rs.getString("excluded_dates");
-
-                LocalDate startDate = rs.getDate("start_date") != null
-                        ? rs.getDate("start_date").toLocalDate()
-                        : null;
-
-                LocalDate nextOccurrence = rs.getDate("next_occurrence") != null
-                        ? rs.getDate("next_occurrence").toLocalDate()
-                        : null;
-
-                Task t = new Task(
-                        id,
-                        title,
-                        deadline,
-                        priority,
-                        groupId,
-                        done,
-                        archived,
-                        createdAt,
-                        updatedAt,
-                        freq,
-                        repeatDays,
-                        repeatUntil,
-                        excludedDates,
-                        time,
-                        repeatInterval,
-                        startDate,
-                        nextOccurrence);
-
-                // fallback: recompute next occurrence if missing
-                if (nextOccurrence == null) {
-                    LocalDate computed = RecurrenceUtils.computeNextOccurrence(t, Collections.emptyList());
-                    t.setNextOccurrence(computed);
-                }
+    // `clause` is an optional WHERE / ORDER BY / LIMIT suffix with `params` for its placeholders.
+    // Phase 1 decodes the rows (plus the history phase 2 needs) while the connection is held;
+    // phase 2 computes missing next occurrences after it is released.
+    private List<Task> readTable(String table, String clause, List<Object> params) {
+        long started = System.nanoTime();
+        Rows rows = new Rows(List.of(), Map.of());
+
+        try (Connection conn = pool.getConnection()) {
+            rows = readRows(conn, table, clause, params);
+        } catch (SQLException e) {
+            System.err.println("⚠️ Error reading from " + table + ": " + e.getMessage());
+        }
+
+        return completeRows(table, clause, rows, started);
+    }
+
+    // Phase 1 on the caller's connection (and transaction)
+    private static Rows readRows(Connection conn, String table, String clause, List<Object> params)
+            throws SQLException {
+        List<Task> tasks = new ArrayList<>();
 
-                tasks.add(t);
+        Map<UUID, DateSet> excluded = readExcludedDates(conn, table, clause, params);
+
+        try (PreparedStatement ps = conn.prepareStatement("SELECT * FROM " + table + clause)) {
+            bind(ps, params);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+
+                    UUID id = rs.getObject("id", UUID.class);
+                    String title = rs.getString("title");
+
+                    LocalDate deadline = rs.getDate("deadline") != null
+                            ? rs.getDate("deadline").toLocalDate()
+                            : null;
+
+                    Priority priority = rs.getString("priority") != null
+                            ? Priority.valueOf(rs.getString("priority"))
+                            : null;
+
+                    Long groupId = rs.getObject("group_id") != null
+                            ? rs.getLong("group_id")
+                            : null;
+
+                    boolean done = rs.getBoolean("done");
+                    boolean archived = rs.getBoolean("archived");
+
+                    LocalDateTime createdAt = rs.getTimestamp("created_at") != null
+                            ? rs.getTimestamp("created_at").toLocalDateTime()
+                            : LocalDateTime.now();
+
+                    LocalDateTime updatedAt = rs.getTimestamp("updated_at") != null
+                            ? rs.getTimestamp("updated_at").toLocalDateTime()
+                            : createdAt;
+
+                    String freqStr = rs.getString("repeat_frequency");
+                    RepeatFrequency freq = freqStr != null
+                            ? RepeatFrequency.valueOf(freqStr)
+                            : RepeatFrequency.NONE;
+
+                    int repeatDayMask = rs.getInt("repeat_day_mask");
+
+                    LocalDate repeatUntil = rs.getDate("repeat_until") != null
+                            ? rs.getDate("repeat_until").toLocalDate()
+                            : null;
+
+                    Integer repeatInterval = rs.getObject("repeat_interval", Integer.class);
+
+                    String time = rs.getString("time");
+                    DateSet excludedDates = excluded.getOrDefault(id, DateSet.EMPTY);
+
+                    LocalDate startDate = rs.getDate("start_date") != null
+                            ? rs.getDate("start_date").toLocalDate()
+                            : null;
+
+                    LocalDate nextOccurrence = rs.getDate("next_occurrence") != null
+                            ? rs.getDate("next_occurrence").toLocalDate()
+                            : null;
+
+                    Task t = new Task(
+                            id,
+                            title,
+                            deadline,
+                            priority,
+                            groupId,
+                            done,
+                            archived,
+                            createdAt,
+                            updatedAt,
+                            freq,
+                            repeatDayMask,
+                            repeatUntil,
+                            excludedDates,
+                            time,
+                            repeatInterval,
+                            startDate,
+                            nextOccurrence);
+
+                    tasks.add(t);
+                }
             }
+        }
 
+        // fallback: next occurrence missing (e.g. after a migration), computed in phase 2
+        List<Task> missingNext = missingNext(tasks);
+        Map<UUID, DateSet> completed = missingNext.isEmpty() ? Map.of() : readCompletedDates(conn, missingNext);
+        return new Rows(tasks, completed);
+    }
+
+    // Phase 2, without a connection
+    private List<Task> completeRows(String table, String clause, Rows rows, long started) {
+        long decoded = System.nanoTime();
+        List<Task> missingNext = missingNext(rows.tasks());
+        boolean parallel = missingNext.size() >= parallelThreshold;
+        if (!missingNext.isEmpty()) {
+            recomputeNextOccurrences(missingNext, rows.completed(), parallel);
+        }
+
+        if (clause.isEmpty()) {
+            System.out.println("⏱ " + table + ": decoded " + rows.tasks().size() + " rows in " + millis(started, decoded)
+                    + " ms, computed " + missingNext.size() + " next occurrences in "
+                    + millis(decoded, System.nanoTime()) + " ms" + (parallel ? " (parallel)" : ""));
+        }
+        return rows.tasks();
+    }
+
+    private static List<Task> missingNext(List<Task> tasks) {
+        return tasks.stream().filter(t -> t.getNextOccurrence() == null).toList();
+    }
+
+    // Completion history of all these tasks in one query instead of one per task
+    private static Map<UUID, DateSet> readCompletedDates(Connection conn, List<Task> tasks) {
+        List<UUID> recurring = tasks.stream()
+                .filter(t -> t.getRepeatFrequency() != RepeatFrequency.NONE)
+                .map(Task::getId)
+                .toList();
+        if (recurring.isEmpty())
+            return Map.of();
+
+        try {
+            return TaskInstanceRepository.readCompletedDates(conn, recurring, null, null);
         } catch (SQLException e) {
-            System.err.println("⚠️ Error reading from " + table + ": " + e.getMessage());
+            System.err.println("⚠️ Error reading completed instances: " + e.getMessage());
+            return Map.of();
         }
+    }
 
-        return tasks;
+    // Each task's result depends only on its own fields and history, so large
+    // loads fan out over the common ForkJoinPool
+    private static void recomputeNextOccurrences(List<Task> tasks, Map<UUID, DateSet> completed,
+            boolean parallel) {
+        LocalDate today = LocalDate.now();
+        (parallel ? tasks.parallelStream() : tasks.stream()).forEach(t -> {
+            List<LocalDate> dates = completed.getOrDefault(t.getId(), DateSet.EMPTY).toList();
+            t.setNextOccurrence(RecurrenceUtils.computeNextOccurrence(t, dates, today));
+        });
+    }
+
+    private static long millis(long fromNanos, long toNanos) {
+        return (toNanos - fromNanos) / 1_000_000;
+    }
+
+    // Excluded dates of all rows selected by `clause`, in one query, grouped by task
+    private static Map<UUID, DateSet> readExcludedDates(Connection conn, String table,
+            String clause, List<Object> params) throws SQLException {
+        Map<UUID, List<LocalDate>> grouped = new HashMap<>();
+
+        String sql = "SELECT task_id, excluded_date FROM " + excludedTable(table);
+        if (!clause.isEmpty()) {
+            sql += " WHERE task_id IN (SELECT id FROM " + table + clause + ")";
+        }
+
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            bind(ps, params);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    grouped.computeIfAbsent(rs.getObject(1, UUID.class), k -> new ArrayList<>())
+                            .add(rs.getObject(2, LocalDate.class));
+                }
+            }
+        }
+
+        Map<UUID, DateSet> result = new HashMap<>(grouped.size() * 2);
+        grouped.forEach((id, dates) -> result.put(id, DateSet.of(dates)));
+        return result;
+    }
+
+    private static void insertExcludedDates(Connection conn, String table, Collection<Task> tasks)
+            throws SQLException {
+        String insert = "INSERT INTO " + excludedTable(table) + " (task_id, excluded_date) VALUES (?, ?)";
+
+        try (PreparedStatement ps = conn.prepareStatement(insert)) {
+            for (Task t : tasks) {
+                for (int day : t.getExcludedDateSet().toEpochDays()) {
+                    ps.setObject(1, t.getId());
+                    ps.setObject(2, LocalDate.ofEpochDay(day));
+                    ps.addBatch();
+                }
+            }
+            ps.executeBatch();
+        }
     }
 
     private void writeTable(String table, List<Task> tasks) {
 
-        String insert = """
-                INSERT INTO %s (
-                    id, title, deadline, priority, group_id,
-                    done, archived,
-                    created_at, updated_at,
-                    repeat_frequency, repeat_days, repeat_until,
-                    excluded_dates, time,
-                    repeat_interval,
-                    start_date,
-                    next_occurrence
-                )
-                VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
-                """.formatted(table);
-
-        try (Connection conn = DriverManager.getConnection(url, USER, PASSWORD)) {
+        String insert = "INSERT INTO %s (%s) VALUES (%s)".formatted(table, COLUMNS, PLACEHOLDERS);
+
+        try (Connection conn = pool.getConnection()) {
 
             conn.setAutoCommit(false);
 
@@ -263,43 +552,106 @@ public class DatabaseTaskRepository implements TaskRepository {
             try (PreparedStatement ps = conn.prepareStatement(insert)) {
 
                 for (Task t : tasks) {
+                    bindTask(ps, t);
+                    ps.addBatch();
+                }
 
-                    ps.setObject(1, t.getId());
-                    ps.setString(2, t.getTitle());
-                    ps.setObject(3, t.getDeadline());
-                    ps.setString(4, t.getPriority() != null ? t.getPriority().name() : null);
-                    ps.setObject(5, t.getGroupId());
-                    ps.setBoolean(6, t.isDone());
-                    ps.setBoolean(7, t.isArchived());
-                    ps.setTimestamp(8, Timestamp.valueOf(t.getCreatedAt()));
-                    ps.setTimestamp(9, Timestamp.valueOf(t.getUpdatedAt()));
-
-                    ps.setString(10, t.getRepeatFrequency().name());
-                    ps.setString(11, t.getRepeatDays());
-                    ps.setObject(12, t.getRepeatUntil());
-
-                    ps.setString(13, t.getExcludedDates());
-                    ps.setString(14, t.getTime());
-
-                    if (t.getRepeatInterval() != null) {
-                        ps.setInt(15, t.getRepeatInterval());
-                    } else {
-                        ps.setNull(15, Types.INTEGER);
+                ps.executeBatch();
+            }
+
+            insertExcludedDates(conn, table, tasks);
+
+            conn.commit();
+
+        } catch (SQLException e) {
+            throw new StorageException("Error saving to " + table + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Applies a change set to the active table: one MERGE per created or modified
+     * task and one DELETE per removed id, all in a single transaction.
+     */
+    @Override
+    public void saveChanges(List<Task> tasks, TaskChangeSet changes) {
+        if (changes.isEmpty()) {
+            return;
+        }
+
+        String merge = "MERGE INTO tasks (%s) KEY (id) VALUES (%s)".formatted(COLUMNS, PLACEHOLDERS);
+
+        try (Connection conn = pool.getConnection()) {
+
+            conn.setAutoCommit(false);
+
+            if (!changes.deletions().isEmpty()) {
+                try (PreparedStatement ps = conn.prepareStatement("DELETE FROM tasks WHERE id = ?")) {
+                    for (UUID id : changes.deletions()) {
+                        ps.setObject(1, id);
+                        ps.addBatch();
                     }
+                    ps.executeBatch();
+                }
+            }
 
-                    ps.setObject(16, t.getStartDate());
-                    ps.setObject(17, t.getNextOccurrence());
+            if (!changes.upserts().isEmpty()) {
+                try (PreparedStatement ps = conn.prepareStatement(merge)) {
+                    for (Task t : changes.upserts()) {
+                        bindTask(ps, t);
+                        ps.addBatch();
+                    }
+                    ps.executeBatch();
+                }
 
-                    ps.addBatch();
+                try (PreparedStatement ps = conn.prepareStatement(
+                        "DELETE FROM " + excludedTable("tasks") + " WHERE task_id = ?")) {
+                    for (Task t : changes.upserts()) {
+                        ps.setObject(1, t.getId());
+                        ps.addBatch();
+                    }
+                    ps.executeBatch();
                 }
 
-                ps.executeBatch();
+                insertExcludedDates(conn, "tasks", changes.upserts());
             }
 
             conn.commit();
 
         } catch (SQLException e) {
-            System.err.println("⚠️ Error saving to " + table + ": " + e.getMessage());
+            throw new StorageException("Error saving task changes: " + e.getMessage(), e);
+        }
+    }
+
+    private static void bind(PreparedStatement ps, List<Object> params) throws SQLException {
+        for (int i = 0; i < params.size(); i++) {
+            ps.setObject(i + 1, params.get(i));
         }
     }
+
+    private static void bindTask(PreparedStatement ps, Task t) throws SQLException {
+        ps.setObject(1, t.getId());
+        ps.setString(2, t.getTitle());
+        ps.setObject(3, t.getDeadline());
+        ps.setString(4, t.getPriority() != null ? t.getPriority().name() : null);
+        ps.setObject(5, t.getGroupId());
+        ps.setBoolean(6, t.isDone());
+        ps.setBoolean(7, t.isArchived());
+        ps.setTimestamp(8, Timestamp.valueOf(t.getCreatedAt()));
+        ps.setTimestamp(9, Timestamp.valueOf(t.getUpdatedAt()));
+
+        ps.setString(10, t.getRepeatFrequency().name());
+        ps.setInt(11, t.getRepeatDayMask());
+        ps.setObject(12, t.getRepeatUntil());
+
+        ps.setString(13, t.getTime());
+
+        if (t.getRepeatInterval() != null) {
+            ps.setInt(14, t.getRepeatInterval());
+        } else {
+            ps.setNull(14, Types.INTEGER);
+        }
+
+        ps.setObject(15, t.getStartDate());
+        ps.setObject(16, t.getNextOccurrence());
+    }
 }
@@ -1,6 +1,10 @@
 package com.setayesh.planit.storage;
 
+import com.setayesh.planit.core.Priority;
 import com.setayesh.planit.core.Task;
+import com.setayesh.planit.core.TaskQuery;
+
+import java.time.LocalDate;
 import java.util.*;
 
 // In-memory repository for unit tests or demo runs.
@@ -8,12 +12,26 @@ public class InMemoryTaskRepository implements TaskRepository {
     private final List<Task> store = new ArrayList<>();
     private final List<Task> archive = new ArrayList<>();
 
+    // Secondary indexes over `store`, keyed by the values seen at the last save
+    private final Map<UUID, Task> byId = new HashMap<>();
+    private final Map<UUID, IndexKeys> indexed = new HashMap<>();
+    private final Map<Long, Set<UUID>> byGroup = new HashMap<>();
+    private final Map<Priority, Set<UUID>> byPriority = new EnumMap<>(Priority.class);
+    private final NavigableMap<LocalDate, Set<UUID>> byDeadline = new TreeMap<>();
+    private final NavigableMap<LocalDate, Set<UUID>> byNextOccurrence = new TreeMap<>();
+
+    private record IndexKeys(Long groupId, Priority priority, LocalDate deadline, LocalDate nextOccurrence) {
+        static IndexKeys of(Task t) {
+            return new IndexKeys(t.getGroupId(), t.getPriority(), t.getDeadline(), t.getNextOccurrence());
+        }
+    }
+
     public InMemoryTaskRepository() {
     }
 
     public InMemoryTaskRepository(Collection<Task> seed) {
         if (seed != null)
-            store.addAll(seed);
+            saveAll(new ArrayList<>(seed));
     }
 
     @Override
@@ -24,8 +42,56 @@ public class InMemoryTaskRepository implements TaskRepository {
     @Override
     public void saveAll(List<Task> tasks) {
         store.clear();
-        if (tasks != null)
+        byId.clear();
+        indexed.clear();
+        byGroup.clear();
+        byPriority.clear();
+        byDeadline.clear();
+        byNextOccurrence.clear();
+
+        if (tasks != null) {
             store.addAll(tasks);
+            tasks.forEach(this::index);
+        }
+    }
+
+    // Keeps the list order of `tasks` but only re-indexes the changed rows
+    @Override
+    public void saveChanges(List<Task> tasks, TaskChangeSet changes) {
+        store.clear();
+        store.addAll(tasks);
+
+        changes.deletions().forEach(this::unindex);
+        for (Task t : changes.upserts()) {
+            unindex(t.getId());
+            index(t);
+        }
+    }
+
+    /**
+     * Answers from the most selective index (group, priority, deadline range,
+     * next-occurrence range) and filters the candidates with the full query.
+     * Tasks modified since the last save are indexed by their saved values.
+     */
+    @Override
+    public List<Task> query(TaskQuery query) {
+        if (query.archivedOnly())
+            return query.apply(archive.stream());
+
+        Collection<UUID> candidates;
+        if (query.groupId() != null) {
+            candidates = byGroup.getOrDefault(query.groupId(), Set.of());
+        } else if (query.priority() != null) {
+            candidates = byPriority.getOrDefault(query.priority(), Set.of());
+        } else if (query.hasDeadlineRange()) {
+            candidates = range(byDeadline, query.deadlineFrom(), query.deadlineTo());
+        } else if (query.hasNextOccurrenceRange()) {
+            candidates = range(byNextOccurrence, query.nextOccurrenceFrom(), query.nextOccurrenceTo());
+        } else {
+            return query.apply(store.stream());
+        }
+
+        return query.apply(candidates.stream().map(byId::get));
     }
 
     @Override
@@ -39,4 +105,57 @@ public class InMemoryTaskRepository implements TaskRepository {
         if (archive != null)
             this.archive.addAll(archive);
     }
-}
\ No newline at end of file
+
+    // --- Index maintenance ---
+    private void index(Task t) {
+        IndexKeys keys = IndexKeys.of(t);
+        byId.put(t.getId(), t);
+        indexed.put(t.getId(), keys);
+
+        if (keys.groupId() != null)
+            byGroup.computeIfAbsent(keys.groupId(), k -> new LinkedHashSet<>()).add(t.getId());
+        if (keys.priority() != null)
+            byPriority.computeIfAbsent(keys.priority(), k -> new LinkedHashSet<>()).add(t.getId());
+        if (keys.deadline() != null)
+            byDeadline.computeIfAbsent(keys.deadline(), k -> new LinkedHashSet<>()).add(t.getId());
+        if (keys.nextOccurrence() != null)
+            byNextOccurrence.computeIfAbsent(keys.nextOccurrence(), k -> new LinkedHashSet<>()).add(t.getId());
+    }
+
+    private void unindex(UUID id) {
+        byId.remove(id);
+        IndexKeys keys = indexed.remove(id);
+        if (keys == null)
+            return;
+
+        remove(byGroup, keys.groupId(), id);
+        remove(byPriority, keys.priority(), id);
+        remove(byDeadline, keys.deadline(), id);
+        remove(byNextOccurrence, keys.nextOccurrence(), id);
+    }
+
+    private static <K> void remove(Map<K, Set<UUID>> index, K key, UUID id) {
+        if (key == null)
+            return;
+        Set<UUID> ids = index.get(key);
+        if (ids != null && ids.remove(id) && ids.isEmpty())
+            index.remove(key);
+    }
+
+    private static List<UUID> range(NavigableMap<LocalDate, Set<UUID>> index, LocalDate from, LocalDate to) {
+        NavigableMap<LocalDate, Set<UUID>> sub;
+        if (from == null) {
+            sub = index.headMap(to, true);
+        } else if (to == null) {
+            sub = index.tailMap(from, true);
+        } else if (from.isAfter(to)) {
+            return List.of();
+        } else {
+            sub = index.subMap(from, true, to, true);
+        }
+
+        List<UUID> ids = new ArrayList<>();
+        sub.values().forEach(ids::addAll);
+        return ids;
+    }
+}
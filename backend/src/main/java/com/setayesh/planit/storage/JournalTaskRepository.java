@@ -0,0 +1,513 @@
+package com.setayesh.planit.storage;
+
+import com.setayesh.planit.core.Task;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only journal storage for tasks.
+ * Every change is appended to planit_tasks.journal as a small binary record
+ * (create, field update, delete, archive), so a save costs O(change size)
+ * instead of rewriting a whole file. Startup loads the latest snapshot and
+ * replays the journal tail on top of it. Snapshots use the memory-mapped
+ * TaskSnapshot format. When the journal outgrows the
+ * compaction threshold, a background job writes a new snapshot and drops the
+ * journal records it covers, which keeps recovery time bounded.
+ */
+public class JournalTaskRepository implements TaskRepository, AutoCloseable {
+
+    public enum FsyncPolicy {
+        // force() after every save
+        PER_WRITE,
+        // force() once groupSize records have been appended, and at the
+        // latest periodMs after a record was appended
+        GROUPED,
+        // force() on a timer every periodMs
+        PERIODIC
+    }
+
+    public record Settings(FsyncPolicy fsync, int groupSize, long periodMs, long compactionThresholdBytes) {
+
+        public static Settings defaults() {
+            return new Settings(FsyncPolicy.GROUPED, 32, 1_000, 4L * 1024 * 1024);
+        }
+    }
+
+    // Record types. Each record: [int length][int crc32][type][id][payload]
+    private static final byte CREATE = 1;
+    private static final byte UPDATE = 2;
+    private static final byte DELETE = 3;
+    private static final byte ARCHIVE = 4;
+    private static final byte ARCHIVE_DELETE = 5;
+    private static final int FRAME_HEADER = 8;
+
+    private final Path journalFile;
+    private final Path snapshotFile;
+    private final Path archiveSnapshotFile;
+    private final Settings settings;
+
+    // Current state as TaskCodec field arrays, in insertion order
+    private final Map<UUID, Object[]> active = new LinkedHashMap<>();
+    private final Map<UUID, Object[]> archive = new LinkedHashMap<>();
+
+    // Replaced by compact(); like the state above, guarded by `this`
+    private FileChannel journal;
+    private final ScheduledExecutorService background;
+    private int unsyncedRecords;
+    private boolean compactionScheduled;
+    // One compaction at a time; held without `this` while the snapshot is written
+    private final Object compactLock = new Object();
+
+    public JournalTaskRepository(String basePath) {
+        this(basePath, Settings.defaults());
+    }
+
+    public JournalTaskRepository(String basePath, Settings settings) {
+        this.settings = settings;
+        this.journalFile = Path.of(basePath, "planit_tasks.journal");
+        this.snapshotFile = Path.of(basePath, "planit_tasks.snapshot");
+        this.archiveSnapshotFile = Path.of(basePath, "planit_archive.snapshot");
+
+        File dir = new File(basePath);
+        if (!dir.exists())
+            dir.mkdirs();
+
+        this.journal = open();
+
+        this.background = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "planit-journal");
+            t.setDaemon(true);
+            return t;
+        });
+        // GROUPED shares the timer, which bounds how long a small group waits
+        if (settings.fsync() == FsyncPolicy.PERIODIC || settings.fsync() == FsyncPolicy.GROUPED) {
+            background.scheduleAtFixedRate(this::sync, settings.periodMs(), settings.periodMs(),
+                    TimeUnit.MILLISECONDS);
+        }
+    }
+
+    // ---------------------------------------------------------------------
+    // TaskRepository
+    // ---------------------------------------------------------------------
+
+    @Override
+    public synchronized List<Task> findAll() {
+        return active.values().stream().map(TaskCodec::toTask).toList();
+    }
+
+    @Override
+    public synchronized void saveAll(List<Task> tasks) {
+        Set<UUID> deletions = new HashSet<>(active.keySet());
+        tasks.forEach(t -> deletions.remove(t.getId()));
+        saveChanges(tasks, new TaskChangeSet(tasks, deletions));
+    }
+
+    @Override
+    public synchronized void saveChanges(List<Task> tasks, TaskChangeSet changes) {
+        List<byte[]> records = new ArrayList<>();
+
+        for (UUID id : changes.deletions()) {
+            if (active.containsKey(id))
+                records.add(record(DELETE, id, null));
+        }
+
+        for (Task t : changes.upserts()) {
+            Object[] now = TaskCodec.fields(t);
+            Object[] before = active.get(t.getId());
+
+            if (before == null) {
+                records.add(record(CREATE, t.getId(), out -> TaskCodec.writeTask(out, now)));
+                continue;
+            }
+
+            int mask = TaskCodec.diff(before, now);
+            if (mask != 0) {
+                records.add(record(UPDATE, t.getId(), out -> {
+                    out.writeInt(mask);
+                    for (int i = 0; i < TaskCodec.FIELD_COUNT; i++) {
+                        if ((mask & (1 << i)) != 0)
+                            TaskCodec.writeField(out, i, now[i]);
+                    }
+                }));
+            }
+        }
+
+        append(records);
+    }
+
+    @Override
+    public synchronized List<Task> loadArchive() {
+        return archive.values().stream().map(TaskCodec::toTask).toList();
+    }
+
+    @Override
+    public synchronized void saveArchive(List<Task> tasks) {
+        List<byte[]> records = new ArrayList<>();
+
+        Set<UUID> keep = new HashSet<>();
+        tasks.forEach(t -> keep.add(t.getId()));
+        for (UUID id : archive.keySet()) {
+            if (!keep.contains(id))
+                records.add(record(ARCHIVE_DELETE, id, null));
+        }
+
+        for (Task t : tasks) {
+            Object[] now = TaskCodec.fields(t);
+            Object[] before = archive.get(t.getId());
+            if (before == null || TaskCodec.diff(before, now) != 0) {
+                records.add(record(ARCHIVE, t.getId(), out -> TaskCodec.writeTask(out, now)));
+            }
+        }
+
+        append(records);
+    }
+
+    // One ARCHIVE record per moved task
+    @Override
+    public synchronized void archive(Collection<UUID> ids) {
+        List<byte[]> records = new ArrayList<>();
+
+        for (UUID id : new LinkedHashSet<>(ids)) {
+            Object[] fields = active.get(id);
+            if (fields == null)
+                continue;
+            Object[] moved = moved(fields, true);
+            records.add(record(ARCHIVE, id, out -> TaskCodec.writeTask(out, moved)));
+        }
+
+        append(records);
+    }
+
+    // ARCHIVE_DELETE + CREATE per restored task
+    @Override
+    public synchronized List<Task> unarchive(Collection<UUID> ids) {
+        List<byte[]> records = new ArrayList<>();
+        List<UUID> restored = new ArrayList<>();
+
+        for (UUID id : new LinkedHashSet<>(ids)) {
+            Object[] fields = archive.get(id);
+            if (fields == null)
+                continue;
+            Object[] moved = moved(fields, false);
+            records.add(record(ARCHIVE_DELETE, id, null));
+            records.add(record(CREATE, id, out -> TaskCodec.writeTask(out, moved)));
+            restored.add(id);
+        }
+
+        append(records);
+        return restored.stream().map(id -> TaskCodec.toTask(active.get(id))).toList();
+    }
+
+    private static Object[] moved(Object[] fields, boolean archived) {
+        Object[] copy = fields.clone();
+        copy[TaskCodec.ARCHIVED] = archived;
+        copy[TaskCodec.UPDATED_AT] = LocalDateTime.now();
+        return copy;
+    }
+
+    // ---------------------------------------------------------------------
+    // Durability and compaction
+    // ---------------------------------------------------------------------
+
+    /**
+     * Forces appended records to disk.
+     */
+    public synchronized void sync() {
+        if (unsyncedRecords == 0 || !journal.isOpen())
+            return;
+        try {
+            journal.force(false);
+            unsyncedRecords = 0;
+        } catch (IOException e) {
+            System.err.println("⚠️ Error syncing task journal: " + e.getMessage());
+        }
+    }
+
+    // Records appended but not yet forced to disk
+    synchronized int unsyncedRecords() {
+        return unsyncedRecords;
+    }
+
+    /**
+     * Writes the current state as a new snapshot and drops the journal records
+     * it covers. The state is copied under the writer lock and written outside
+     * it; writers then wait only for the swap, which moves the snapshots into
+     * place and replaces the journal with the records appended meanwhile.
+     */
+    public void compact() {
+        synchronized (compactLock) {
+            try {
+                List<Object[]> activeRows;
+                List<Object[]> archiveRows;
+                long covered;
+                synchronized (this) {
+                    if (!journal.isOpen())
+                        return;
+                    activeRows = copyRows(active);
+                    archiveRows = copyRows(archive);
+                    covered = journal.size();
+                }
+
+                TaskSnapshot.writeFields(next(snapshotFile), activeRows);
+                TaskSnapshot.writeFields(next(archiveSnapshotFile), archiveRows);
+
+                synchronized (this) {
+                    if (!journal.isOpen())
+                        return;
+                    // Replaying the whole old journal over the new snapshots gives the
+                    // same state, so a crash between these steps loses nothing
+                    Files.move(next(snapshotFile), snapshotFile,
+                            StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                    Files.move(next(archiveSnapshotFile), archiveSnapshotFile,
+                            StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                    replaceJournal(covered);
+                }
+            } catch (IOException e) {
+                System.err.println("⚠️ Error compacting task journal: " + e.getMessage());
+            } finally {
+                synchronized (this) {
+                    compactionScheduled = false;
+                }
+            }
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        sync();
+        background.shutdownNow();
+        try {
+            journal.close();
+        } catch (IOException e) {
+            System.err.println("⚠️ Error closing task journal: " + e.getMessage());
+        }
+    }
+
+    // ---------------------------------------------------------------------
+    // Journal I/O
+    // ---------------------------------------------------------------------
+
+    private interface Payload {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    private static byte[] record(byte type, UUID id, Payload payload) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(type);
+            out.writeLong(id.getMostSignificantBits());
+            out.writeLong(id.getLeastSignificantBits());
+            if (payload != null)
+                payload.write(out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // in-memory stream
+        }
+        return bytes.toByteArray();
+    }
+
+    private void append(List<byte[]> records) {
+        if (records.isEmpty())
+            return;
+
+        int size = 0;
+        for (byte[] r : records)
+            size += FRAME_HEADER + r.length;
+
+        ByteBuffer buf = ByteBuffer.allocate(size);
+        for (byte[] r : records) {
+            buf.putInt(r.length);
+            buf.putInt(crc(r));
+            buf.put(r);
+        }
+        buf.flip();
+
+        long start = -1;
+        try {
+            start = journal.position();
+            while (buf.hasRemaining())
+                journal.write(buf);
+
+            unsyncedRecords += records.size();
+            if (settings.fsync() == FsyncPolicy.PER_WRITE
+                    || (settings.fsync() == FsyncPolicy.GROUPED && unsyncedRecords >= settings.groupSize())) {
+                journal.force(false);
+                unsyncedRecords = 0;
+            }
+
+            // State is derived from the records themselves, so memory always matches the file
+            for (byte[] r : records)
+                apply(r);
+
+            if (journal.size() >= settings.compactionThresholdBytes() && !compactionScheduled) {
+                compactionScheduled = true;
+                background.execute(this::compact);
+            }
+        } catch (IOException e) {
+            // Cut a partly written batch so later records do not follow a broken frame
+            try {
+                if (start >= 0 && journal.size() > start) {
+                    journal.truncate(start);
+                    journal.position(start);
+                }
+            } catch (IOException ex) {
+                System.err.println("⚠️ Error truncating task journal: " + ex.getMessage());
+            }
+            throw new StorageException("Error appending to task journal: " + e.getMessage(), e);
+        }
+    }
+
+    private void apply(byte[] record) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(record));
+        byte type = in.readByte();
+        UUID id = new UUID(in.readLong(), in.readLong());
+
+        switch (type) {
+            case CREATE -> active.put(id, TaskCodec.readTask(in));
+            case UPDATE -> {
+                int mask = in.readInt();
+                Object[] fields = active.get(id);
+                for (int i = 0; i < TaskCodec.FIELD_COUNT; i++) {
+                    if ((mask & (1 << i)) != 0) {
+                        Object value = TaskCodec.readField(in, i);
+                        if (fields != null)
+                            fields[i] = value;
+                    }
+                }
+            }
+            case DELETE -> active.remove(id);
+            case ARCHIVE -> {
+                active.remove(id);
+                archive.put(id, TaskCodec.readTask(in));
+            }
+            case ARCHIVE_DELETE -> archive.remove(id);
+            default -> throw new IOException("Unknown journal record type " + type);
+        }
+    }
+
+    private FileChannel open() {
+        try {
+            readSnapshot();
+            FileChannel channel = FileChannel.open(journalFile,
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            replay(channel);
+            return channel;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open task journal " + journalFile, e);
+        }
+    }
+
+    /**
+     * Applies every intact record. A torn or corrupt tail (e.g. after a crash
+     * mid-write) is cut off so new records follow the last good one.
+     */
+    private void replay(FileChannel channel) throws IOException {
+        long size = channel.size();
+        ByteBuffer buf = ByteBuffer.allocate((int) size);
+        while (buf.hasRemaining() && channel.read(buf, buf.position()) > 0) {
+            // keep reading
+        }
+        buf.flip();
+
+        long good = 0;
+        while (buf.remaining() >= FRAME_HEADER) {
+            int length = buf.getInt();
+            int crc = buf.getInt();
+            if (length <= 0 || length > buf.remaining())
+                break;
+
+            byte[] record = new byte[length];
+            buf.get(record);
+            if (crc(record) != crc)
+                break;
+
+            apply(record);
+            good = buf.position();
+        }
+
+        if (good < size) {
+            System.err.println("⚠️ Discarding " + (size - good) + " bytes of incomplete task journal tail.");
+            channel.truncate(good);
+        }
+        channel.position(good);
+    }
+
+    private static int crc(byte[] bytes) {
+        CRC32 crc = new CRC32();
+        crc.update(bytes);
+        return (int) crc.getValue();
+    }
+
+    // ---------------------------------------------------------------------
+    // Snapshot I/O
+    // ---------------------------------------------------------------------
+
+    // UPDATE records change field arrays in place, so compaction writes copies
+    private static List<Object[]> copyRows(Map<UUID, Object[]> section) {
+        List<Object[]> rows = new ArrayList<>(section.size());
+        for (Object[] fields : section.values())
+            rows.add(fields.clone());
+        return rows;
+    }
+
+    // Where compaction writes a snapshot before moving it into place
+    private static Path next(Path snapshot) {
+        return snapshot.resolveSibling(snapshot.getFileName() + ".next");
+    }
+
+    // Caller holds `this`. Keeps only the records after `covered`, written to a
+    // temp file that replaces the journal, so a crash leaves one or the other.
+    private void replaceJournal(long covered) throws IOException {
+        long end = journal.size();
+        ByteBuffer tail = ByteBuffer.allocate(Math.toIntExact(end - covered));
+        while (tail.hasRemaining() && journal.read(tail, covered + tail.position()) > 0) {
+            // keep reading
+        }
+        tail.flip();
+
+        Path temp = journalFile.resolveSibling(journalFile.getFileName() + ".tmp");
+        try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            while (tail.hasRemaining())
+                out.write(tail);
+            out.force(true);
+        }
+
+        journal.close();
+        try {
+            Files.move(temp, journalFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            journal = FileChannel.open(journalFile, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            journal.position(journal.size());
+        }
+        unsyncedRecords = 0;
+    }
+
+    private void readSnapshot() throws IOException {
+        readSnapshot(snapshotFile, active);
+        readSnapshot(archiveSnapshotFile, archive);
+    }
+
+    private static void readSnapshot(Path file, Map<UUID, Object[]> section) throws IOException {
+        if (!Files.exists(file))
+            return;
+
+        try (TaskSnapshot snapshot = TaskSnapshot.open(file)) {
+            for (int i = 0; i < snapshot.size(); i++) {
+                Object[] fields = snapshot.fields(i);
+                section.put((UUID) fields[TaskCodec.ID], fields);
+            }
+        }
+    }
+}
@@ -1,85 +1,320 @@
 package com.setayesh.planit.storage;
 
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
-import com.fasterxml.jackson.core.type.TypeReference;
 import com.setayesh.planit.core.Task;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
-import java.util.List;
-import java.util.ArrayList;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
 
 /**
- * Handles reading and writing Task data to a local JSON file safely.
+ * Handles reading and writing Task data to local JSON files safely.
+ * Files are written and read token by token (no pretty printing, no full
+ * in-memory tree). In segmented mode active tasks are spread over a fixed
+ * number of segment files keyed by task-id hash, so a change only rewrites
+ * the segments it touches. Each segment entry carries an order key next to
+ * the task ({"order": n, "task": {...}}) from which findAll restores the list
+ * order: saveAll numbers the list, and a task first written by saveChanges
+ * goes after all others, as TaskService appends new tasks.
  */
 public class JsonTaskRepository implements TaskRepository {
     private final File tasksFile;
     private final File archiveFile;
+    private final File segmentDir;
+    private final int segments;
     private final ObjectMapper mapper = new ObjectMapper()
             .registerModule(new com.fasterxml.jackson.datatype.jsr310.JavaTimeModule())
-            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .disable(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    private final JsonFactory factory = mapper.getFactory();
+
+    // Segmented mode: order key per task id and the next unused key; filled by
+    // findAll and saveAll, loaded on the first saveChanges otherwise
+    private final Map<UUID, Long> order = new ConcurrentHashMap<>();
+    private final AtomicLong nextOrder = new AtomicLong();
+    private volatile boolean orderLoaded;
+
+    private record Entry(long order, Task task) {
+    }
+
+    @FunctionalInterface
+    private interface ElementReader<T> {
+        T read(JsonParser parser) throws IOException;
+    }
+
+    @FunctionalInterface
+    private interface ElementWriter<T> {
+        void write(JsonGenerator generator, T element) throws IOException;
+    }
 
     public JsonTaskRepository(String basePath) {
+        this(basePath, 0);
+    }
+
+    /**
+     * @param segments number of segment files for active tasks, or 0 to keep
+     *                 them in a single planit_tasks.json. An existing
+     *                 planit_tasks.json is moved into the segments on first use.
+     */
+    public JsonTaskRepository(String basePath, int segments) {
+        if (segments < 0)
+            throw new IllegalArgumentException("Segment count cannot be negative.");
+
         this.tasksFile = new File(basePath, "planit_tasks.json");
         this.archiveFile = new File(basePath, "planit_archive.json");
+        this.segments = segments;
+        this.segmentDir = segments > 0 ? new File(basePath, "planit_tasks") : null;
 
         // Ensure directory exists
-        File dir = new File(basePath);
+        File dir = segmentDir != null ? segmentDir : new File(basePath);
         if (!dir.exists())
             dir.mkdirs();
+
+        if (segmentDir != null)
+            migrateSingleFile();
     }
 
     @Override
     public List<Task> findAll() {
-        return readList(tasksFile);
+        if (segmentDir == null) {
+            List<Task> tasks = new ArrayList<>();
+            readFile(tasksFile, this::readTask, tasks::add, dropLast(tasks));
+            return tasks;
+        }
+
+        List<Entry> entries = new ArrayList<>();
+        for (int s = 0; s < segments; s++)
+            readFile(segmentFile(s), this::readEntry, entries::add, dropLast(entries));
+        entries.sort(Comparator.comparingLong(Entry::order));
+
+        List<Task> tasks = new ArrayList<>(entries.size());
+        order.clear();
+        for (Entry e : entries) {
+            order.put(e.task().getId(), e.order());
+            tasks.add(e.task());
+        }
+        nextOrder.set(entries.isEmpty() ? 0 : entries.get(entries.size() - 1).order() + 1);
+        orderLoaded = true;
+        return tasks;
+    }
+
+    /**
+     * Streams active tasks to the action as they are parsed, without building
+     * the full list; in segmented mode segment by segment rather than in list
+     * order. If a file turns out to be corrupted, {@code discard} gets the
+     * number of tasks already passed on from it, which the caller must drop:
+     * the file is backed up and replaced by an empty one.
+     */
+    public void forEach(Consumer<Task> action, IntConsumer discard) {
+        if (segmentDir == null) {
+            readFile(tasksFile, this::readTask, action, discard);
+            return;
+        }
+        for (int s = 0; s < segments; s++) {
+            readFile(segmentFile(s), this::readEntry, e -> action.accept(e.task()), discard);
+        }
     }
 
     @Override
     public void saveAll(List<Task> tasks) {
-        writeList(tasksFile, tasks);
+        if (segmentDir == null) {
+            writeFile(tasksFile, tasks, this::writeTask);
+            return;
+        }
+
+        order.clear();
+        for (int i = 0; i < tasks.size(); i++)
+            order.put(tasks.get(i).getId(), (long) i);
+        nextOrder.set(tasks.size());
+        orderLoaded = true;
+
+        List<List<Task>> buckets = new ArrayList<>(segments);
+        for (int s = 0; s < segments; s++)
+            buckets.add(new ArrayList<>());
+        for (Task t : tasks)
+            buckets.get(segmentOf(t.getId())).add(t);
+
+        for (int s = 0; s < segments; s++)
+            writeFile(segmentFile(s), buckets.get(s), this::writeEntry);
+    }
+
+    /**
+     * Rewrites only the segments that contain a changed or removed task.
+     */
+    @Override
+    public void saveChanges(List<Task> tasks, TaskChangeSet changes) {
+        if (segmentDir == null) {
+            writeFile(tasksFile, tasks, this::writeTask);
+            return;
+        }
+
+        if (!orderLoaded)
+            findAll();
+        changes.deletions().forEach(order::remove);
+
+        Map<Integer, List<Task>> affected = new TreeMap<>();
+        changes.upserts().forEach(t -> affected.put(segmentOf(t.getId()), new ArrayList<>()));
+        changes.deletions().forEach(id -> affected.put(segmentOf(id), new ArrayList<>()));
+
+        for (Task t : tasks) {
+            List<Task> bucket = affected.get(segmentOf(t.getId()));
+            if (bucket != null)
+                bucket.add(t);
+        }
+
+        affected.forEach((s, bucket) -> writeFile(segmentFile(s), bucket, this::writeEntry));
     }
 
     @Override
     public List<Task> loadArchive() {
-        return readList(archiveFile);
+        List<Task> archive = new ArrayList<>();
+        readFile(archiveFile, this::readTask, archive::add, dropLast(archive));
+        return archive;
     }
 
     @Override
     public void saveArchive(List<Task> archive) {
-        writeList(archiveFile, archive);
+        writeFile(archiveFile, archive, this::writeTask);
     }
 
     // --- Internal helpers ---
-    private List<Task> readList(File file) {
+    private int segmentOf(UUID id) {
+        return Math.floorMod(id.hashCode(), segments);
+    }
+
+    private File segmentFile(int segment) {
+        return new File(segmentDir, "segment-%03d.json".formatted(segment));
+    }
+
+    // First start in segmented mode over a single-file store: spread its tasks
+    // over the segments in list order and keep the old file as .migrated
+    private void migrateSingleFile() {
+        File[] present = segmentDir.listFiles((dir, name) -> name.startsWith("segment-"));
+        if (!tasksFile.exists() || (present != null && present.length > 0))
+            return;
+
+        List<Task> tasks = new ArrayList<>();
+        readFile(tasksFile, this::readTask, tasks::add, dropLast(tasks));
+        saveAll(tasks);
         try {
-            if (!file.exists())
-                return new ArrayList<>();
-            return mapper.readValue(file, new TypeReference<List<Task>>() {
-            });
+            Files.move(tasksFile.toPath(), new File(tasksFile.getPath() + ".migrated").toPath(),
+                    StandardCopyOption.REPLACE_EXISTING);
+            System.out.println("📦 Moved " + tasks.size() + " tasks from " + tasksFile.getName() + " into "
+                    + segments + " segments.");
+        } catch (IOException e) {
+            System.err.println("⚠️ Failed to rename " + tasksFile.getName() + " after migration: " + e.getMessage());
+        }
+    }
+
+    // Discard callback for a list that is filled by a read
+    private static IntConsumer dropLast(List<?> list) {
+        return n -> list.subList(list.size() - n, list.size()).clear();
+    }
+
+    // Streams the array elements of a file to the action as they are parsed. On a
+    // parse error the file is backed up and replaced by an empty one, and discard
+    // gets the number of elements already passed on, so none of them are kept.
+    private <T> void readFile(File file, ElementReader<T> reader, Consumer<T> action, IntConsumer discard) {
+        if (!file.exists())
+            return;
+
+        int passed = 0;
+        try (JsonParser parser = factory.createParser(file)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY)
+                throw new JsonParseException(parser, "Expected a JSON array");
+
+            JsonToken token;
+            while ((token = parser.nextToken()) == JsonToken.START_OBJECT) {
+                action.accept(reader.read(parser));
+                passed++;
+            }
+            if (token != JsonToken.END_ARRAY)
+                throw new JsonParseException(parser, "Unterminated array");
+
         } catch (IOException e) {
+            if (passed > 0)
+                discard.accept(passed);
             System.err.println("⚠️ Error reading " + file.getName() + ": " + e.getMessage());
             try {
                 File backup = new File(file.getParent(), file.getName() + ".corrupted");
-                Files.copy(file.toPath(), backup.toPath(), java.nio.file.StandardCopyOption.REPLACE_EXISTING);
+                Files.copy(file.toPath(), backup.toPath(), StandardCopyOption.REPLACE_EXISTING);
                 System.err.println("🩹 Backup saved as " + backup.getName() + " and creating new empty file.");
-                mapper.writerWithDefaultPrettyPrinter().writeValue(file, new ArrayList<Task>());
-            } catch (IOException ex) {
+                writeFile(file, List.<Task>of(), this::writeTask);
+            } catch (IOException | StorageException ex) {
                 System.err.println("⚠️ Failed to create backup: " + ex.getMessage());
             }
-            return new ArrayList<>();
         }
     }
 
-    private void writeList(File file, List<Task> tasks) {
+    // The parser is on the task's START_OBJECT
+    private Task readTask(JsonParser parser) throws IOException {
+        return mapper.readValue(parser, Task.class);
+    }
+
+    // The parser is on the entry's START_OBJECT
+    private Entry readEntry(JsonParser parser) throws IOException {
+        Long key = null;
+        Task task = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            switch (field) {
+                case "order" -> key = parser.getLongValue();
+                case "task" -> task = readTask(parser);
+                default -> parser.skipChildren();
+            }
+        }
+        if (parser.currentToken() != JsonToken.END_OBJECT || key == null || task == null)
+            throw new JsonParseException(parser, "Segment entry needs an order and a task");
+        return new Entry(key, task);
+    }
+
+    private void writeTask(JsonGenerator generator, Task task) throws IOException {
+        mapper.writeValue(generator, task);
+    }
+
+    // A task keeps its key; one without a key goes after all others
+    private void writeEntry(JsonGenerator generator, Task task) throws IOException {
+        generator.writeStartObject();
+        generator.writeNumberField("order", order.computeIfAbsent(task.getId(), id -> nextOrder.getAndIncrement()));
+        generator.writeFieldName("task");
+        mapper.writeValue(generator, task);
+        generator.writeEndObject();
+    }
+
+    private <T> void writeFile(File file, Collection<T> elements, ElementWriter<T> writer) {
         File temp = new File(file.getAbsolutePath() + ".tmp");
         try {
-            mapper.writerWithDefaultPrettyPrinter().writeValue(temp, tasks);
-            Files.move(temp.toPath(), file.toPath(), java.nio.file.StandardCopyOption.REPLACE_EXISTING);
+            try (JsonGenerator generator = factory.createGenerator(temp, JsonEncoding.UTF8)) {
+                generator.writeStartArray();
+                for (T element : elements) {
+                    writer.write(generator, element);
+                }
+                generator.writeEndArray();
+            }
+            try {
+                Files.move(temp.toPath(), file.toPath(),
+                        StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
         } catch (IOException e) {
-            System.err.println("⚠️ Error saving " + file.getName() + ": " + e.getMessage());
             temp.delete();
+            throw new StorageException("Error saving " + file.getName() + ": " + e.getMessage(), e);
         }
     }
 }
@@ -0,0 +1,298 @@
+package com.setayesh.planit.storage;
+
+import com.setayesh.planit.core.DateSet;
+import com.setayesh.planit.core.WeekdayMask;
+
+import java.sql.*;
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * Versioned schema of the H2 database shared by all repositories.
+ *
+ * Steps run in order, each in its own transaction together with its
+ * schema_version row, and only once per database. Once the schema is
+ * current, startup costs a single version read, and repositories sharing a
+ * pool skip even that. New tables, columns and indexes go here as a new
+ * step at the end of {@link #STEPS}; never edit a released step.
+ *
+ * H2 commits DDL immediately, so a step that fails halfway cannot roll
+ * back its DDL. Steps are therefore written to be safe to run again
+ * (IF NOT EXISTS, column checks) and are retried on the next start.
+ * Databases created before versioning start at version 0 and simply run
+ * every step.
+ */
+public final class SchemaMigrations {
+
+    @FunctionalInterface
+    interface Step {
+        void apply(Connection conn) throws SQLException;
+    }
+
+    record Migration(int version, String description, Step step) {
+    }
+
+    private static final List<Migration> STEPS = List.of(
+            new Migration(1, "Base tables", SchemaMigrations::createBaseTables),
+            new Migration(2, "next_occurrence column", SchemaMigrations::addNextOccurrence),
+            new Migration(3, "Weekday mask and excluded-dates tables", SchemaMigrations::normalizeRecurrence),
+            new Migration(4, "Query and archive paging indexes", SchemaMigrations::createQueryIndexes),
+            new Migration(5, "Unique completed instances", SchemaMigrations::createUniqueInstanceIndex));
+
+    public static final int LATEST_VERSION = STEPS.get(STEPS.size() - 1).version();
+
+    // Pools whose database is known to be current (weak: closed pools drop out)
+    private static final Set<ConnectionPool> CURRENT = Collections.newSetFromMap(new WeakHashMap<>());
+
+    private SchemaMigrations() {
+    }
+
+    /**
+     * Brings the database behind the pool to {@link #LATEST_VERSION}.
+     * Errors are logged; the schema stays at the last step that succeeded
+     * and the remaining steps are retried by the next repository.
+     */
+    public static void migrate(ConnectionPool pool) {
+        synchronized (CURRENT) {
+            if (CURRENT.contains(pool))
+                return;
+
+            try (Connection conn = pool.getConnection()) {
+                if (migrate(conn) == LATEST_VERSION) {
+                    CURRENT.add(pool);
+                }
+            } catch (SQLException e) {
+                System.err.println("⚠️ Schema migration error: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Applies every pending step on this connection and returns the
+     * resulting version.
+     */
+    static int migrate(Connection conn) throws SQLException {
+        int version = currentVersion(conn);
+
+        for (Migration m : STEPS) {
+            if (m.version() <= version)
+                continue;
+
+            conn.setAutoCommit(false);
+            try {
+                m.step().apply(conn);
+                try (PreparedStatement ps = conn.prepareStatement(
+                        "INSERT INTO schema_version (version, description) VALUES (?, ?)")) {
+                    ps.setInt(1, m.version());
+                    ps.setString(2, m.description());
+                    ps.executeUpdate();
+                }
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                System.err.println("⚠️ Schema migration to v" + m.version() + " failed: " + e.getMessage());
+                return version;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+
+            version = m.version();
+            System.out.println("🔧 Schema migrated to v" + version + ": " + m.description());
+        }
+        return version;
+    }
+
+    // The one query a current database costs at startup
+    static int currentVersion(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+                ResultSet rs = stmt.executeQuery("SELECT MAX(version) FROM schema_version")) {
+            return rs.next() ? rs.getInt(1) : 0;
+        } catch (SQLException missing) {
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute("""
+                            CREATE TABLE IF NOT EXISTS schema_version (
+                                version INT PRIMARY KEY,
+                                description VARCHAR(255),
+                                applied_at TIMESTAMP DEFAULT LOCALTIMESTAMP
+                            );
+                        """);
+            }
+            return 0;
+        }
+    }
+
+    // ---------------------------------------------------------------------
+    // Steps
+    // ---------------------------------------------------------------------
+
+    private static void createBaseTables(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+
+            // Active tasks and archive share one layout
+            for (String table : List.of("tasks", "archive")) {
+                stmt.execute("""
+                            CREATE TABLE IF NOT EXISTS %s (
+                                id UUID PRIMARY KEY,
+                                title VARCHAR(255) NOT NULL,
+                                deadline DATE,
+                                priority VARCHAR(50),
+                                done BOOLEAN,
+                                archived BOOLEAN,
+                                created_at TIMESTAMP,
+                                updated_at TIMESTAMP,
+                                group_id BIGINT,
+                                repeat_frequency VARCHAR(20),
+                                repeat_day_mask INT,
+                                repeat_until DATE,
+                                repeat_interval INT,
+                                time VARCHAR(20),
+                                start_date DATE,
+                                next_occurrence DATE
+                            );
+                        """.formatted(table));
+            }
+
+            stmt.execute("""
+                        CREATE TABLE IF NOT EXISTS categories (
+                            id IDENTITY PRIMARY KEY,
+                            name VARCHAR(255) NOT NULL
+                        );
+                    """);
+
+            stmt.execute("""
+                        CREATE TABLE IF NOT EXISTS task_instances_completed (
+                            id IDENTITY PRIMARY KEY,
+                            task_id UUID NOT NULL,
+                            completed_date DATE NOT NULL
+                        );
+                    """);
+        }
+    }
+
+    private static void addNextOccurrence(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("ALTER TABLE tasks ADD COLUMN IF NOT EXISTS next_occurrence DATE");
+            stmt.execute("ALTER TABLE archive ADD COLUMN IF NOT EXISTS next_occurrence DATE");
+        }
+    }
+
+    /**
+     * Creates the excluded-dates tables (one row per date, deleted together
+     * with their task) and moves data out of the old comma-joined
+     * repeat_days / excluded_dates columns, then drops them.
+     */
+    private static void normalizeRecurrence(Connection conn) throws SQLException {
+        for (String table : List.of("tasks", "archive")) {
+            String excluded = DatabaseTaskRepository.excludedTable(table);
+
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute("""
+                            CREATE TABLE IF NOT EXISTS %s (
+                                task_id UUID NOT NULL,
+                                excluded_date DATE NOT NULL,
+                                PRIMARY KEY (task_id, excluded_date),
+                                FOREIGN KEY (task_id) REFERENCES %s(id) ON DELETE CASCADE
+                            );
+                        """.formatted(excluded, table));
+                stmt.execute("ALTER TABLE " + table + " ADD COLUMN IF NOT EXISTS repeat_day_mask INT");
+
+                if (hasColumn(conn, table, "repeat_days")) {
+                    try (ResultSet rs = stmt.executeQuery(
+                            "SELECT id, repeat_days FROM " + table + " WHERE repeat_days IS NOT NULL");
+                            PreparedStatement ps = conn.prepareStatement(
+                                    "UPDATE " + table + " SET repeat_day_mask = ? WHERE id = ?")) {
+                        while (rs.next()) {
+                            ps.setInt(1, WeekdayMask.parse(rs.getString(2)));
+                            ps.setObject(2, rs.getObject(1, UUID.class));
+                            ps.addBatch();
+                        }
+                        ps.executeBatch();
+                    }
+                    stmt.execute("ALTER TABLE " + table + " DROP COLUMN repeat_days");
+                }
+
+                if (hasColumn(conn, table, "excluded_dates")) {
+                    try (ResultSet rs = stmt.executeQuery(
+                            "SELECT id, excluded_dates FROM " + table + " WHERE excluded_dates IS NOT NULL");
+                            PreparedStatement ps = conn.prepareStatement(
+                                    "MERGE INTO " + excluded + " (task_id, excluded_date) VALUES (?, ?)")) {
+                        while (rs.next()) {
+                            UUID id = rs.getObject(1, UUID.class);
+                            for (int day : DateSet.parse(rs.getString(2)).toEpochDays()) {
+                                ps.setObject(1, id);
+                                ps.setObject(2, LocalDate.ofEpochDay(day));
+                                ps.addBatch();
+                            }
+                        }
+                        ps.executeBatch();
+                    }
+                    stmt.execute("ALTER TABLE " + table + " DROP COLUMN excluded_dates");
+                }
+            }
+        }
+    }
+
+    private static void createQueryIndexes(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            // TaskQuery filters
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_tasks_deadline ON tasks(deadline)");
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_tasks_next_occurrence ON tasks(next_occurrence)");
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_tasks_group_id ON tasks(group_id)");
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_tasks_done_archived ON tasks(done, archived)");
+
+            // Keyset pagination of the archive
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_archive_updated_id ON archive(updated_at, id)");
+        }
+    }
+
+    /**
+     * Removes duplicate (task_id, completed_date) rows, keeping the oldest, and
+     * adds the unique index that replaces the old task_id index. Writers stay
+     * online meanwhile; if one slips a duplicate in before the index exists,
+     * the dedup runs again.
+     */
+    private static void createUniqueInstanceIndex(Connection conn) throws SQLException {
+        String dedup = """
+                DELETE FROM task_instances_completed
+                WHERE id NOT IN (
+                    SELECT MIN(id) FROM task_instances_completed
+                    GROUP BY task_id, completed_date
+                )
+                """;
+        String index = """
+                CREATE UNIQUE INDEX IF NOT EXISTS uq_instances_task_date
+                ON task_instances_completed(task_id, completed_date)
+                """;
+
+        try (Statement stmt = conn.createStatement()) {
+            for (int attempt = 1;; attempt++) {
+                int removed = stmt.executeUpdate(dedup);
+                if (removed > 0) {
+                    System.out.println("🧹 Removed " + removed + " duplicate completed instances");
+                }
+                try {
+                    stmt.execute(index);
+                    break;
+                } catch (SQLException e) {
+                    if (attempt == 3)
+                        throw e;
+                }
+            }
+            stmt.execute("DROP INDEX IF EXISTS idx_instances_task");
+        }
+    }
+
+    private static boolean hasColumn(Connection conn, String table, String column) throws SQLException {
+        String sql = """
+                SELECT COUNT(*) FROM INFORMATION_SCHEMA.COLUMNS
+                WHERE TABLE_SCHEMA = SCHEMA() AND TABLE_NAME = ? AND COLUMN_NAME = ?
+                """;
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setString(1, table.toUpperCase());
+            ps.setString(2, column.toUpperCase());
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() && rs.getInt(1) > 0;
+            }
+        }
+    }
+}
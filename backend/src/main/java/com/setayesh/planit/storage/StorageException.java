@@ -0,0 +1,13 @@
+package com.setayesh.planit.storage;
+
+/**
+ * Thrown by a repository when a write could not be completed. Nothing of that
+ * write may be assumed saved; TaskService keeps the changes pending and
+ * retries them with the next flush.
+ */
+public class StorageException extends RuntimeException {
+
+    public StorageException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
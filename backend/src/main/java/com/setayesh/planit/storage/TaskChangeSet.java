@@ -0,0 +1,20 @@
+package com.setayesh.planit.storage;
+
+import com.setayesh.planit.core.Task;
+import java.util.*;
+
+/**
+ * Rows that changed since the last save: tasks to insert or update, and ids to
+ * delete. Lets a repository write O(changes) instead of the whole list.
+ */
+public record TaskChangeSet(List<Task> upserts, Set<UUID> deletions) {
+
+    public TaskChangeSet {
+        upserts = List.copyOf(upserts);
+        deletions = Set.copyOf(deletions);
+    }
+
+    public boolean isEmpty() {
+        return upserts.isEmpty() && deletions.isEmpty();
+    }
+}
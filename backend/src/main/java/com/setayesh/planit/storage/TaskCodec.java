@@ -0,0 +1,184 @@
+package com.setayesh.planit.storage;
+
+import com.setayesh.planit.core.Priority;
+import com.setayesh.planit.core.RepeatFrequency;
+import com.setayesh.planit.core.Task;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * Compact binary encoding of Task fields for the journal repository.
+ * Fields are addressed by index, so update records can carry only the fields
+ * that changed. Enums are stored as ordinals: only append new constants.
+ */
+final class TaskCodec {
+
+    // Same order as the Task @JsonCreator constructor
+    static final int ID = 0;
+    static final int TITLE = 1;
+    static final int DEADLINE = 2;
+    static final int PRIORITY = 3;
+    static final int GROUP_ID = 4;
+    static final int DONE = 5;
+    static final int ARCHIVED = 6;
+    static final int CREATED_AT = 7;
+    static final int UPDATED_AT = 8;
+    static final int REPEAT_FREQUENCY = 9;
+    static final int REPEAT_DAYS = 10;
+    static final int REPEAT_UNTIL = 11;
+    static final int EXCLUDED_DATES = 12;
+    static final int TIME = 13;
+    static final int REPEAT_INTERVAL = 14;
+    static final int START_DATE = 15;
+    static final int NEXT_OCCURRENCE = 16;
+    static final int FIELD_COUNT = 17;
+
+    private static final Priority[] PRIORITIES = Priority.values();
+    private static final RepeatFrequency[] FREQUENCIES = RepeatFrequency.values();
+
+    private TaskCodec() {
+    }
+
+    // ---------------------------------------------------------------------
+    // Task <-> field array
+    // ---------------------------------------------------------------------
+
+    static Object[] fields(Task t) {
+        return new Object[] {
+                t.getId(),
+                t.getTitle(),
+                t.getDeadline(),
+                t.getPriority(),
+                t.getGroupId(),
+                t.isDone(),
+                t.isArchived(),
+                t.getCreatedAt(),
+                t.getUpdatedAt(),
+                t.getRepeatFrequency(),
+                t.getRepeatDays(),
+                t.getRepeatUntil(),
+                t.getExcludedDates(),
+                t.getTime(),
+                t.getRepeatInterval(),
+                t.getStartDate(),
+                t.getNextOccurrence()
+        };
+    }
+
+    static Task toTask(Object[] f) {
+        return new Task(
+                (UUID) f[ID],
+                (String) f[TITLE],
+                (LocalDate) f[DEADLINE],
+                (Priority) f[PRIORITY],
+                (Long) f[GROUP_ID],
+                (Boolean) f[DONE],
+                (Boolean) f[ARCHIVED],
+                (LocalDateTime) f[CREATED_AT],
+                (LocalDateTime) f[UPDATED_AT],
+                (RepeatFrequency) f[REPEAT_FREQUENCY],
+                (String) f[REPEAT_DAYS],
+                (LocalDate) f[REPEAT_UNTIL],
+                (String) f[EXCLUDED_DATES],
+                (String) f[TIME],
+                (Integer) f[REPEAT_INTERVAL],
+                (LocalDate) f[START_DATE],
+                (LocalDate) f[NEXT_OCCURRENCE]);
+    }
+
+    /**
+     * Bitmask of the fields that differ between two field arrays.
+     */
+    static int diff(Object[] before, Object[] after) {
+        int mask = 0;
+        for (int i = 0; i < FIELD_COUNT; i++) {
+            if (!Objects.equals(before[i], after[i]))
+                mask |= 1 << i;
+        }
+        return mask;
+    }
+
+    // ---------------------------------------------------------------------
+    // Binary encoding
+    // ---------------------------------------------------------------------
+
+    static void writeTask(DataOutput out, Object[] f) throws IOException {
+        for (int i = 0; i < FIELD_COUNT; i++) {
+            writeField(out, i, f[i]);
+        }
+    }
+
+    static Object[] readTask(DataInput in) throws IOException {
+        Object[] f = new Object[FIELD_COUNT];
+        for (int i = 0; i < FIELD_COUNT; i++) {
+            f[i] = readField(in, i);
+        }
+        return f;
+    }
+
+    static void writeField(DataOutput out, int field, Object value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value == null)
+            return;
+
+        switch (field) {
+            case ID -> {
+                UUID id = (UUID) value;
+                out.writeLong(id.getMostSignificantBits());
+                out.writeLong(id.getLeastSignificantBits());
+            }
+            case TITLE, REPEAT_DAYS, EXCLUDED_DATES, TIME -> writeString(out, (String) value);
+            case DEADLINE, REPEAT_UNTIL, START_DATE, NEXT_OCCURRENCE ->
+                out.writeInt((int) ((LocalDate) value).toEpochDay());
+            case PRIORITY, REPEAT_FREQUENCY -> out.writeByte(((Enum<?>) value).ordinal());
+            case GROUP_ID -> out.writeLong((Long) value);
+            case DONE, ARCHIVED -> out.writeBoolean((Boolean) value);
+            case CREATED_AT, UPDATED_AT -> {
+                LocalDateTime ts = (LocalDateTime) value;
+                out.writeLong(ts.toEpochSecond(ZoneOffset.UTC));
+                out.writeInt(ts.getNano());
+            }
+            case REPEAT_INTERVAL -> out.writeInt((Integer) value);
+            default -> throw new IllegalArgumentException("Unknown task field " + field);
+        }
+    }
+
+    static Object readField(DataInput in, int field) throws IOException {
+        if (!in.readBoolean())
+            return null;
+
+        return switch (field) {
+            case ID -> new UUID(in.readLong(), in.readLong());
+            case TITLE, REPEAT_DAYS, EXCLUDED_DATES, TIME -> readString(in);
+            case DEADLINE, REPEAT_UNTIL, START_DATE, NEXT_OCCURRENCE -> LocalDate.ofEpochDay(in.readInt());
+            case PRIORITY -> PRIORITIES[in.readByte()];
+            case REPEAT_FREQUENCY -> FREQUENCIES[in.readByte()];
+            case GROUP_ID -> in.readLong();
+            case DONE, ARCHIVED -> in.readBoolean();
+            case CREATED_AT, UPDATED_AT -> LocalDateTime.ofEpochSecond(in.readLong(), in.readInt(), ZoneOffset.UTC);
+            case REPEAT_INTERVAL -> in.readInt();
+            default -> throw new IOException("Unknown task field " + field);
+        };
+    }
+
+    // writeUTF caps strings at 64 KB, so use a plain length prefix
+    private static void writeString(DataOutput out, String s) throws IOException {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInput in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -1,88 +1,120 @@
 package com.setayesh.planit.storage;
 
+import com.setayesh.planit.core.DateSet;
+
 import org.springframework.stereotype.Repository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 
 import java.sql.*;
 import java.time.LocalDate;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.UUID;
+import java.util.*;
+import java.util.function.UnaryOperator;
 
 /**
  * Stores completed occurrences of recurring tasks.
- * Each row = one (task_id, completed_date).
+ * Each row = one (task_id, completed_date), unique per pair.
+ *
+ * Completed dates are cached per task (sorted epoch days, LRU-bounded) and
+ * kept current by write-through on every write, so lookups after the first
+ * one per task do not touch the database.
  */
 @Repository
 public class TaskInstanceRepository {
 
-    private static final String USER = "sa";
-    private static final String PASSWORD = "";
-    private final String url;
+    public static final int DEFAULT_CACHE_SIZE = 1024;
+
+    public record CacheStats(int size, int capacity, long hits, long misses, long evictions) {
+    }
+
+    private final ConnectionPool pool;
+    private final int cacheSize;
+
+    // task id -> completed dates, least recently used first; all fields below guarded by `cache`
+    private final LinkedHashMap<UUID, DateSet> cache;
+    private long hits;
+    private long misses;
+    private long evictions;
+    // Bumped by every write so a load that raced with one is not cached
+    private long writes;
 
     public TaskInstanceRepository() {
-        this.url = resolveUrl(null);
-        initSchema();
+        this(ConnectionPool.forPath(null));
     }
 
-    @Autowired
-    public TaskInstanceRepository(@Value("${planit.database.path}") String customDbPath) {
-        this.url = resolveUrl(customDbPath);
-        initSchema();
+    public TaskInstanceRepository(String customDbPath) {
+        this(ConnectionPool.forPath(customDbPath));
     }
 
-    private String resolveUrl(String customPath) {
-        if (customPath != null && customPath.startsWith("jdbc:")) {
-            return customPath;
-        } else if (customPath != null) {
-            return "jdbc:h2:file:" + customPath + ";AUTO_SERVER=TRUE";
-        } else if (System.getenv("GITHUB_ACTIONS") != null) {
-            return "jdbc:h2:mem:planit;DB_CLOSE_DELAY=-1";
-        } else {
-            String dbPath = System.getProperty("user.dir") + "/planit_db";
-            return "jdbc:h2:file:" + dbPath + ";AUTO_SERVER=TRUE";
-        }
+    public TaskInstanceRepository(ConnectionPool pool) {
+        this(pool, DEFAULT_CACHE_SIZE);
     }
 
-    private void initSchema() {
-        try (Connection conn = DriverManager.getConnection(url, USER, PASSWORD);
-                Statement stmt = conn.createStatement()) {
-
-            stmt.execute("""
-                        CREATE TABLE IF NOT EXISTS task_instances_completed (
-                            id IDENTITY PRIMARY KEY,
-                            task_id UUID NOT NULL,
-                            completed_date DATE NOT NULL
-                        );
-                    """);
-
-            // Index for faster lookup
-            stmt.execute("""
-                        CREATE INDEX IF NOT EXISTS idx_instances_task
-                        ON task_instances_completed(task_id);
-                    """);
+    @Autowired
+    public TaskInstanceRepository(ConnectionPool pool,
+            @Value("${planit.instances.cache-size:" + DEFAULT_CACHE_SIZE + "}") int cacheSize) {
+        if (cacheSize < 1)
+            throw new IllegalArgumentException("Cache size must be at least 1.");
+
+        this.pool = pool;
+        this.cacheSize = cacheSize;
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<UUID, DateSet> eldest) {
+                if (size() <= TaskInstanceRepository.this.cacheSize)
+                    return false;
+                evictions++;
+                return true;
+            }
+        };
+        initSchema();
+    }
 
-        } catch (SQLException e) {
-            System.err.println("⚠️ Error initializing task_instances_completed schema: " + e.getMessage());
-        }
+    private void initSchema() {
+        SchemaMigrations.migrate(pool);
     }
 
     /**
      * Mark a specific occurrence as completed for a given date.
+     * Idempotent: completing the same date twice keeps a single row.
      */
     public void markCompleted(UUID taskId, LocalDate date) {
-        String sql = "INSERT INTO task_instances_completed(task_id, completed_date) VALUES (?, ?)";
+        markCompleted(taskId, List.of(date));
+    }
 
-        try (Connection conn = DriverManager.getConnection(url, USER, PASSWORD);
-                PreparedStatement ps = conn.prepareStatement(sql)) {
+    /**
+     * Mark several occurrences as completed in one batch and one transaction.
+     */
+    public void markCompleted(UUID taskId, Collection<LocalDate> dates) {
+        if (dates.isEmpty()) {
+            return;
+        }
 
-            ps.setObject(1, taskId);
-            ps.setDate(2, java.sql.Date.valueOf(date));
-            ps.executeUpdate();
+        String sql = """
+                MERGE INTO task_instances_completed (task_id, completed_date)
+                KEY (task_id, completed_date) VALUES (?, ?)
+                """;
+
+        try (Connection conn = pool.getConnection()) {
+
+            conn.setAutoCommit(false);
+
+            try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                for (LocalDate date : dates) {
+                    ps.setObject(1, taskId);
+                    ps.setDate(2, java.sql.Date.valueOf(date));
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            }
+
+            conn.commit();
+            DateSet added = DateSet.of(dates);
+            update(taskId, cached -> cached.union(added));
 
         } catch (SQLException e) {
             System.err.println("⚠️ Error saving completed instance: " + e.getMessage());
+            update(taskId, null);
         }
     }
 
@@ -90,21 +122,7 @@ public class TaskInstanceRepository {
      * Check if the task occurrence for 'date' is already completed.
      */
     public boolean isCompletedOnDate(UUID taskId, LocalDate date) {
-        String sql = "SELECT 1 FROM task_instances_completed WHERE task_id = ? AND completed_date = ?";
-        try (Connection conn = DriverManager.getConnection(url, USER, PASSWORD);
-                PreparedStatement ps = conn.prepareStatement(sql)) {
-
-            ps.setObject(1, taskId);
-            ps.setDate(2, java.sql.Date.valueOf(date));
-
-            try (ResultSet rs = ps.executeQuery()) {
-                return rs.next();
-            }
-
-        } catch (SQLException e) {
-            System.err.println("⚠️ Error checking task instance: " + e.getMessage());
-            return false;
-        }
+        return completed(taskId).contains(date);
     }
 
     /**
@@ -112,14 +130,16 @@ public class TaskInstanceRepository {
      */
     public void deleteForTask(UUID taskId) {
         String sql = "DELETE FROM task_instances_completed WHERE task_id = ?";
-        try (Connection conn = DriverManager.getConnection(url, USER, PASSWORD);
+        try (Connection conn = pool.getConnection();
                 PreparedStatement ps = conn.prepareStatement(sql)) {
 
             ps.setObject(1, taskId);
             ps.executeUpdate();
+            update(taskId, cached -> DateSet.EMPTY);
 
         } catch (SQLException e) {
             System.err.println("⚠️ Error deleting task instances: " + e.getMessage());
+            update(taskId, null);
         }
     }
 
@@ -131,28 +151,100 @@ public class TaskInstanceRepository {
     }
 
     /**
-     * Return all completed dates for a task.
+     * Return all completed dates for a task, oldest first.
      */
     public List<LocalDate> findCompletedDates(UUID taskId) {
-        List<LocalDate> list = new ArrayList<>();
-        String sql = "SELECT completed_date FROM task_instances_completed WHERE task_id = ?";
+        return completed(taskId).toList();
+    }
 
-        try (Connection conn = DriverManager.getConnection(url, USER, PASSWORD);
-                PreparedStatement ps = conn.prepareStatement(sql)) {
+    /**
+     * Completed dates of many tasks within [from, to] (a null bound is open),
+     * oldest first. Every requested id gets an entry, empty if nothing was
+     * completed. Cached tasks are answered from memory; the rest are read in
+     * one range scan over uq_instances_task_date.
+     */
+    public Map<UUID, List<LocalDate>> findCompletedDates(Collection<UUID> taskIds, LocalDate from, LocalDate to) {
+        Map<UUID, List<LocalDate>> result = new LinkedHashMap<>();
+        Set<UUID> missing = new LinkedHashSet<>();
+        long version;
+
+        synchronized (cache) {
+            for (UUID id : taskIds) {
+                DateSet cached = cache.get(id);
+                if (cached != null) {
+                    hits++;
+                    result.put(id, cached.subSet(from, to).toList());
+                } else if (!result.containsKey(id) && missing.add(id)) {
+                    misses++;
+                }
+            }
+            version = writes;
+        }
+        if (missing.isEmpty()) {
+            return result;
+        }
 
-            ps.setObject(1, taskId);
+        Map<UUID, DateSet> loaded;
+        try (Connection conn = pool.getConnection()) {
+            loaded = readCompletedDates(conn, missing, from, to);
+        } catch (SQLException e) {
+            System.err.println("⚠️ Error loading instance dates: " + e.getMessage());
+            loaded = null;
+        }
+
+        // Only the full history may be cached, and only if no write raced with the read
+        if (loaded != null && from == null && to == null) {
+            synchronized (cache) {
+                if (writes == version) {
+                    for (UUID id : missing) {
+                        cache.put(id, loaded.getOrDefault(id, DateSet.EMPTY));
+                    }
+                }
+            }
+        }
+
+        for (UUID id : missing) {
+            DateSet dates = loaded == null ? DateSet.EMPTY : loaded.getOrDefault(id, DateSet.EMPTY);
+            result.put(id, dates.toList());
+        }
+        return result;
+    }
+
+    /**
+     * Bulk read on a caller's connection; ids without completions are absent.
+     * Also used by DatabaseTaskRepository, which shares the database.
+     */
+    static Map<UUID, DateSet> readCompletedDates(Connection conn, Collection<UUID> taskIds,
+            LocalDate from, LocalDate to) throws SQLException {
+        StringBuilder sql = new StringBuilder(
+                "SELECT task_id, completed_date FROM task_instances_completed WHERE task_id = ANY(?)");
+        List<Object> params = new ArrayList<>();
+        params.add(taskIds.toArray(UUID[]::new));
+        if (from != null) {
+            sql.append(" AND completed_date >= ?");
+            params.add(java.sql.Date.valueOf(from));
+        }
+        if (to != null) {
+            sql.append(" AND completed_date <= ?");
+            params.add(java.sql.Date.valueOf(to));
+        }
 
+        Map<UUID, List<LocalDate>> grouped = new HashMap<>();
+        try (PreparedStatement ps = conn.prepareStatement(sql.toString())) {
+            for (int i = 0; i < params.size(); i++) {
+                ps.setObject(i + 1, params.get(i));
+            }
             try (ResultSet rs = ps.executeQuery()) {
                 while (rs.next()) {
-                    list.add(rs.getDate("completed_date").toLocalDate());
+                    grouped.computeIfAbsent(rs.getObject(1, UUID.class), k -> new ArrayList<>())
+                            .add(rs.getObject(2, LocalDate.class));
                 }
             }
-
-        } catch (SQLException e) {
-            System.err.println("⚠️ Error loading instance dates: " + e.getMessage());
         }
 
-        return list;
+        Map<UUID, DateSet> result = new HashMap<>(grouped.size() * 2);
+        grouped.forEach((id, dates) -> result.put(id, DateSet.of(dates)));
+        return result;
     }
 
     /**
@@ -165,16 +257,92 @@ public class TaskInstanceRepository {
                     WHERE task_id = ? AND completed_date > ?
                 """;
 
-        try (Connection conn = DriverManager.getConnection(url, USER, PASSWORD);
+        try (Connection conn = pool.getConnection();
                 PreparedStatement ps = conn.prepareStatement(sql)) {
 
             ps.setObject(1, taskId);
             ps.setDate(2, java.sql.Date.valueOf(fromDate));
 
             ps.executeUpdate();
+            update(taskId, cached -> cached.headSet(fromDate));
 
         } catch (SQLException e) {
             System.err.println("⚠️ Error deleting future task instances: " + e.getMessage());
+            update(taskId, null);
+        }
+    }
+
+    public CacheStats cacheStats() {
+        synchronized (cache) {
+            return new CacheStats(cache.size(), cacheSize, hits, misses, evictions);
+        }
+    }
+
+    // ---------------------------------------------------------------------
+    // Completion cache
+    // ---------------------------------------------------------------------
+
+    private DateSet completed(UUID taskId) {
+        long version;
+        synchronized (cache) {
+            DateSet cached = cache.get(taskId);
+            if (cached != null) {
+                hits++;
+                return cached;
+            }
+            misses++;
+            version = writes;
+        }
+
+        DateSet loaded = load(taskId);
+        if (loaded == null) {
+            return DateSet.EMPTY;
+        }
+
+        synchronized (cache) {
+            if (writes == version) {
+                cache.put(taskId, loaded);
+            }
+        }
+        return loaded;
+    }
+
+    // Applies a committed write to the cached entry, if any. A null change
+    // (failed write, state unknown) drops the entry instead.
+    private void update(UUID taskId, UnaryOperator<DateSet> change) {
+        synchronized (cache) {
+            writes++;
+            if (change == null) {
+                cache.remove(taskId);
+                return;
+            }
+            DateSet cached = cache.get(taskId);
+            if (cached != null) {
+                cache.put(taskId, change.apply(cached));
+            }
+        }
+    }
+
+    // Null on error, so failures are not cached as "nothing completed"
+    private DateSet load(UUID taskId) {
+        String sql = "SELECT completed_date FROM task_instances_completed WHERE task_id = ?";
+
+        try (Connection conn = pool.getConnection();
+                PreparedStatement ps = conn.prepareStatement(sql)) {
+
+            ps.setObject(1, taskId);
+
+            List<LocalDate> dates = new ArrayList<>();
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    dates.add(rs.getDate("completed_date").toLocalDate());
+                }
+            }
+            return DateSet.of(dates);
+
+        } catch (SQLException e) {
+            System.err.println("⚠️ Error loading instance dates: " + e.getMessage());
+            return null;
         }
     }
 }
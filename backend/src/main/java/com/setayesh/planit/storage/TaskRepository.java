@@ -1,6 +1,9 @@
 package com.setayesh.planit.storage;
 
+import com.setayesh.planit.core.ArchiveQuery;
 import com.setayesh.planit.core.Task;
+import com.setayesh.planit.core.TaskPage;
+import com.setayesh.planit.core.TaskQuery;
 import java.util.*;
 
 // Abstraction for task persistence. Allows swapping JSON, in-memory, DB, etc.
@@ -11,7 +14,77 @@ public interface TaskRepository {
 
     void saveAll(List<Task> tasks);
 
+    // Persists only the given changes. `tasks` is the complete current list, so
+    // backends without row-level writes (JSON, in-memory) can simply rewrite it.
+    default void saveChanges(List<Task> tasks, TaskChangeSet changes) {
+        saveAll(tasks);
+    }
+
+    // Returns the tasks matching the query (archived ones if query.archivedOnly()).
+    // This default filters a full read; backends with indexes override it.
+    default List<Task> query(TaskQuery query) {
+        List<Task> source = query.archivedOnly() ? loadArchive() : findAll();
+        return query.apply(source.stream());
+    }
+
     List<Task> loadArchive();
 
     void saveArchive(List<Task> archive);
-}
\ No newline at end of file
+
+    // One page of the archive, newest first. This default pages a full read;
+    // the database backend runs a keyset query on an index.
+    default TaskPage findArchivePage(ArchiveQuery query) {
+        return query.apply(loadArchive().stream());
+    }
+
+    default int countArchive() {
+        return loadArchive().size();
+    }
+
+    // Moves the given active tasks into the archive and marks them archived.
+    // Unknown ids are ignored. This default rewrites both lists; the database
+    // and journal backends move only the given rows. Throws StorageException
+    // if the move could not be saved.
+    default void archive(Collection<UUID> ids) {
+        Set<UUID> moving = new HashSet<>(ids);
+        List<Task> active = new ArrayList<>();
+        List<Task> archive = new ArrayList<>(loadArchive());
+
+        for (Task t : findAll()) {
+            if (moving.contains(t.getId())) {
+                t.setArchived(true);
+                archive.add(t);
+            } else {
+                active.add(t);
+            }
+        }
+
+        saveArchive(archive);
+        saveAll(active);
+    }
+
+    // Moves archived tasks back to the active list and returns them (archived
+    // flag cleared). Unknown ids are ignored; throws StorageException like archive.
+    default List<Task> unarchive(Collection<UUID> ids) {
+        Set<UUID> moving = new HashSet<>(ids);
+        List<Task> restored = new ArrayList<>();
+        List<Task> archive = new ArrayList<>();
+
+        for (Task t : loadArchive()) {
+            if (moving.contains(t.getId())) {
+                t.setArchived(false);
+                restored.add(t);
+            } else {
+                archive.add(t);
+            }
+        }
+
+        if (!restored.isEmpty()) {
+            List<Task> active = new ArrayList<>(findAll());
+            active.addAll(restored);
+            saveAll(active);
+            saveArchive(archive);
+        }
+        return restored;
+    }
+}
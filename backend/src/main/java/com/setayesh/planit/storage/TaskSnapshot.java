@@ -0,0 +1,403 @@
+package com.setayesh.planit.storage;
+
+import com.setayesh.planit.core.Priority;
+import com.setayesh.planit.core.RepeatFrequency;
+import com.setayesh.planit.core.Task;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+
+/**
+ * Versioned, columnar binary snapshot of a task list, read through a
+ * MappedByteBuffer.
+ *
+ * Layout: a fixed header, then one fixed-width column per field (dates as
+ * epoch days, enums as ordinals, strings as indexes into a deduplicated string
+ * table), then the string table. Rows are decoded on demand, so opening a
+ * snapshot only maps the file and a single task can be read without touching
+ * the rest. close() releases the mapping at once, so the file can be replaced
+ * right after; rows cannot be read after that.
+ */
+public final class TaskSnapshot implements AutoCloseable {
+
+    private static final int MAGIC = 0x504C4E43; // "PLNC"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 24;
+
+    private static final int NULL_DAY = Integer.MIN_VALUE;
+    private static final int NULL_INT = Integer.MIN_VALUE;
+    private static final long NULL_LONG = Long.MIN_VALUE;
+    private static final int NULL_STRING = -1;
+    private static final byte NULL_ENUM = -1;
+
+    private static final byte DONE_FLAG = 1;
+    private static final byte ARCHIVED_FLAG = 2;
+
+    // Column widths in bytes, in file order
+    private static final int[] WIDTHS = {
+            16, // id
+            4, // title
+            4, // deadline
+            1, // priority
+            8, // group id
+            1, // done / archived flags
+            12, // created at (seconds + nanos)
+            12, // updated at
+            1, // repeat frequency
+            4, // repeat days
+            4, // repeat until
+            4, // excluded dates
+            4, // time
+            4, // repeat interval
+            4, // start date
+            4 // next occurrence
+    };
+    private static final int ROW_BYTES = Arrays.stream(WIDTHS).sum();
+
+    private static final int C_ID = 0;
+    private static final int C_TITLE = 1;
+    private static final int C_DEADLINE = 2;
+    private static final int C_PRIORITY = 3;
+    private static final int C_GROUP = 4;
+    private static final int C_FLAGS = 5;
+    private static final int C_CREATED = 6;
+    private static final int C_UPDATED = 7;
+    private static final int C_FREQUENCY = 8;
+    private static final int C_REPEAT_DAYS = 9;
+    private static final int C_REPEAT_UNTIL = 10;
+    private static final int C_EXCLUDED = 11;
+    private static final int C_TIME = 12;
+    private static final int C_INTERVAL = 13;
+    private static final int C_START = 14;
+    private static final int C_NEXT = 15;
+
+    private static final Priority[] PRIORITIES = Priority.values();
+    private static final RepeatFrequency[] FREQUENCIES = RepeatFrequency.values();
+
+    // Unsafe.invokeCleaner(ByteBuffer) and its receiver, or null where unavailable
+    private static final Object UNSAFE;
+    private static final Method INVOKE_CLEANER;
+
+    static {
+        Object unsafe = null;
+        Method invokeCleaner = null;
+        try {
+            Class<?> type = Class.forName("sun.misc.Unsafe");
+            Field field = type.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            unsafe = field.get(null);
+            invokeCleaner = type.getMethod("invokeCleaner", ByteBuffer.class);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // mappings are then released when the buffers are collected
+        }
+        UNSAFE = unsafe;
+        INVOKE_CLEANER = invokeCleaner;
+    }
+
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int rows;
+    private final int[] columnOffsets;
+    private final int stringOffsets;
+    private final int stringData;
+    private final String[] strings;
+    private boolean closed;
+
+    private TaskSnapshot(FileChannel channel, MappedByteBuffer buffer) throws IOException {
+        this.channel = channel;
+        this.buffer = buffer;
+
+        if (buffer.limit() < HEADER_BYTES || buffer.getInt(0) != MAGIC)
+            throw new IOException("Not a task snapshot");
+        int version = buffer.getInt(4);
+        if (version != VERSION)
+            throw new IOException("Unsupported task snapshot version " + version);
+
+        this.rows = buffer.getInt(8);
+        int stringCount = buffer.getInt(12);
+        this.stringOffsets = (int) buffer.getLong(16);
+        this.stringData = stringOffsets + (stringCount + 1) * Integer.BYTES;
+        this.columnOffsets = columnOffsets(rows);
+        this.strings = new String[stringCount];
+    }
+
+    // ---------------------------------------------------------------------
+    // Reading
+    // ---------------------------------------------------------------------
+
+    /**
+     * Maps a snapshot file. Pages are loaded by the OS as rows are read.
+     */
+    public static TaskSnapshot open(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new TaskSnapshot(channel, buffer);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public int size() {
+        return rows;
+    }
+
+    public Task get(int row) {
+        int id = at(C_ID, row);
+        byte priority = buffer.get(at(C_PRIORITY, row));
+        long group = buffer.getLong(at(C_GROUP, row));
+        byte flags = buffer.get(at(C_FLAGS, row));
+        byte frequency = buffer.get(at(C_FREQUENCY, row));
+        int interval = buffer.getInt(at(C_INTERVAL, row));
+
+        return new Task(
+                new UUID(buffer.getLong(id), buffer.getLong(id + 8)),
+                string(buffer.getInt(at(C_TITLE, row))),
+                day(buffer.getInt(at(C_DEADLINE, row))),
+                priority == NULL_ENUM ? null : PRIORITIES[priority],
+                group == NULL_LONG ? null : group,
+                (flags & DONE_FLAG) != 0,
+                (flags & ARCHIVED_FLAG) != 0,
+                timestamp(at(C_CREATED, row)),
+                timestamp(at(C_UPDATED, row)),
+                frequency == NULL_ENUM ? null : FREQUENCIES[frequency],
+                string(buffer.getInt(at(C_REPEAT_DAYS, row))),
+                day(buffer.getInt(at(C_REPEAT_UNTIL, row))),
+                string(buffer.getInt(at(C_EXCLUDED, row))),
+                string(buffer.getInt(at(C_TIME, row))),
+                interval == NULL_INT ? null : interval,
+                day(buffer.getInt(at(C_START, row))),
+                day(buffer.getInt(at(C_NEXT, row))));
+    }
+
+    public List<Task> readAll() {
+        List<Task> tasks = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++)
+            tasks.add(get(i));
+        return tasks;
+    }
+
+    // Row as TaskCodec field array (used by the journal repository)
+    Object[] fields(int row) {
+        return TaskCodec.fields(get(row));
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed)
+            return;
+        closed = true;
+        unmap(buffer);
+        channel.close();
+    }
+
+    private int at(int column, int row) {
+        if (closed)
+            throw new IllegalStateException("Task snapshot is closed");
+        if (row < 0 || row >= rows)
+            throw new IndexOutOfBoundsException("Row " + row + " of " + rows);
+        return columnOffsets[column] + row * WIDTHS[column];
+    }
+
+    private static LocalDate day(int epochDay) {
+        return epochDay == NULL_DAY ? null : LocalDate.ofEpochDay(epochDay);
+    }
+
+    private LocalDateTime timestamp(int offset) {
+        long seconds = buffer.getLong(offset);
+        return seconds == NULL_LONG ? null
+                : LocalDateTime.ofEpochSecond(seconds, buffer.getInt(offset + 8), ZoneOffset.UTC);
+    }
+
+    // Decoded once, then cached: titles and repeat days repeat a lot
+    private String string(int index) {
+        if (index == NULL_STRING)
+            return null;
+
+        String s = strings[index];
+        if (s == null) {
+            int start = buffer.getInt(stringOffsets + index * Integer.BYTES);
+            int end = buffer.getInt(stringOffsets + (index + 1) * Integer.BYTES);
+            byte[] bytes = new byte[end - start];
+            buffer.get(stringData + start, bytes);
+            s = new String(bytes, StandardCharsets.UTF_8);
+            strings[index] = s;
+        }
+        return s;
+    }
+
+    // Releases the mapping now instead of when the buffer is collected; the
+    // buffer must not be touched afterwards
+    private static void unmap(MappedByteBuffer buffer) {
+        if (INVOKE_CLEANER == null)
+            return;
+        try {
+            INVOKE_CLEANER.invoke(UNSAFE, buffer);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // left to the garbage collector
+        }
+    }
+
+    private static int[] columnOffsets(int rows) {
+        int[] offsets = new int[WIDTHS.length];
+        long offset = HEADER_BYTES;
+        for (int c = 0; c < WIDTHS.length; c++) {
+            offsets[c] = Math.toIntExact(offset);
+            offset += (long) rows * WIDTHS[c];
+        }
+        return offsets;
+    }
+
+    // ---------------------------------------------------------------------
+    // Writing
+    // ---------------------------------------------------------------------
+
+    public static void write(Path file, Collection<Task> tasks) throws IOException {
+        writeFields(file, tasks.stream().map(TaskCodec::fields).toList());
+    }
+
+    /**
+     * Writes field arrays to a temp file and atomically replaces the target.
+     */
+    static void writeFields(Path file, List<Object[]> rows) throws IOException {
+        StringTable table = new StringTable();
+        int[][] stringRefs = new int[rows.size()][];
+        for (int i = 0; i < rows.size(); i++) {
+            Object[] f = rows.get(i);
+            stringRefs[i] = new int[] {
+                    table.index((String) f[TaskCodec.TITLE]),
+                    table.index((String) f[TaskCodec.REPEAT_DAYS]),
+                    table.index((String) f[TaskCodec.EXCLUDED_DATES]),
+                    table.index((String) f[TaskCodec.TIME])
+            };
+        }
+
+        int[] columns = columnOffsets(rows.size());
+        long stringOffsets = HEADER_BYTES + (long) rows.size() * ROW_BYTES;
+        long total = stringOffsets + (table.size() + 1L) * Integer.BYTES + table.bytes();
+
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+
+            MappedByteBuffer out = channel.map(FileChannel.MapMode.READ_WRITE, 0, total);
+            out.putInt(0, MAGIC);
+            out.putInt(4, VERSION);
+            out.putInt(8, rows.size());
+            out.putInt(12, table.size());
+            out.putLong(16, stringOffsets);
+
+            for (int r = 0; r < rows.size(); r++) {
+                writeRow(out, columns, r, rows.get(r), stringRefs[r]);
+            }
+
+            table.writeTo(out, Math.toIntExact(stringOffsets));
+            out.force();
+            unmap(out);
+        }
+
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void writeRow(ByteBuffer out, int[] columns, int r, Object[] f, int[] strings) {
+        UUID id = (UUID) f[TaskCodec.ID];
+        int idAt = columns[C_ID] + r * WIDTHS[C_ID];
+        out.putLong(idAt, id.getMostSignificantBits());
+        out.putLong(idAt + 8, id.getLeastSignificantBits());
+
+        out.putInt(columns[C_TITLE] + r * 4, strings[0]);
+        out.putInt(columns[C_DEADLINE] + r * 4, epochDay(f[TaskCodec.DEADLINE]));
+        out.put(columns[C_PRIORITY] + r, ordinal(f[TaskCodec.PRIORITY]));
+
+        Long group = (Long) f[TaskCodec.GROUP_ID];
+        out.putLong(columns[C_GROUP] + r * 8, group == null ? NULL_LONG : group);
+
+        byte flags = 0;
+        if (Boolean.TRUE.equals(f[TaskCodec.DONE]))
+            flags |= DONE_FLAG;
+        if (Boolean.TRUE.equals(f[TaskCodec.ARCHIVED]))
+            flags |= ARCHIVED_FLAG;
+        out.put(columns[C_FLAGS] + r, flags);
+
+        putTimestamp(out, columns[C_CREATED] + r * 12, (LocalDateTime) f[TaskCodec.CREATED_AT]);
+        putTimestamp(out, columns[C_UPDATED] + r * 12, (LocalDateTime) f[TaskCodec.UPDATED_AT]);
+
+        out.put(columns[C_FREQUENCY] + r, ordinal(f[TaskCodec.REPEAT_FREQUENCY]));
+        out.putInt(columns[C_REPEAT_DAYS] + r * 4, strings[1]);
+        out.putInt(columns[C_REPEAT_UNTIL] + r * 4, epochDay(f[TaskCodec.REPEAT_UNTIL]));
+        out.putInt(columns[C_EXCLUDED] + r * 4, strings[2]);
+        out.putInt(columns[C_TIME] + r * 4, strings[3]);
+
+        Integer interval = (Integer) f[TaskCodec.REPEAT_INTERVAL];
+        out.putInt(columns[C_INTERVAL] + r * 4, interval == null ? NULL_INT : interval);
+
+        out.putInt(columns[C_START] + r * 4, epochDay(f[TaskCodec.START_DATE]));
+        out.putInt(columns[C_NEXT] + r * 4, epochDay(f[TaskCodec.NEXT_OCCURRENCE]));
+    }
+
+    private static int epochDay(Object date) {
+        return date == null ? NULL_DAY : (int) ((LocalDate) date).toEpochDay();
+    }
+
+    private static byte ordinal(Object value) {
+        return value == null ? NULL_ENUM : (byte) ((Enum<?>) value).ordinal();
+    }
+
+    private static void putTimestamp(ByteBuffer out, int offset, LocalDateTime ts) {
+        out.putLong(offset, ts == null ? NULL_LONG : ts.toEpochSecond(ZoneOffset.UTC));
+        out.putInt(offset + 8, ts == null ? 0 : ts.getNano());
+    }
+
+    /**
+     * Deduplicated UTF-8 strings, stored as an offset table plus the raw bytes.
+     */
+    private static final class StringTable {
+        private final Map<String, Integer> indexes = new HashMap<>();
+        private final List<byte[]> values = new ArrayList<>();
+        private long bytes;
+
+        int index(String s) {
+            if (s == null)
+                return NULL_STRING;
+            return indexes.computeIfAbsent(s, key -> {
+                byte[] encoded = key.getBytes(StandardCharsets.UTF_8);
+                values.add(encoded);
+                bytes += encoded.length;
+                return values.size() - 1;
+            });
+        }
+
+        int size() {
+            return values.size();
+        }
+
+        long bytes() {
+            return bytes;
+        }
+
+        void writeTo(ByteBuffer out, int offset) {
+            int data = offset + (values.size() + 1) * Integer.BYTES;
+            int position = 0;
+            for (int i = 0; i < values.size(); i++) {
+                out.putInt(offset + i * Integer.BYTES, position);
+                out.put(data + position, values.get(i));
+                position += values.get(i).length;
+            }
+            out.putInt(offset + values.size() * Integer.BYTES, position);
+        }
+    }
+}
@@ -21,7 +21,7 @@ public class ConsoleUI {
         while (running) {
             UIHelper.printPageHeader("home");
 
-            List<Task> tasks = service.getAll();
+            List<Task> tasks = menu.tasks();
             List<Task> archived = service.loadArchive();
             long completedCount = tasks.stream().filter(Task::isDone).count();
 
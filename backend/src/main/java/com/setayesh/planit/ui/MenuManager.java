@@ -8,6 +8,8 @@ import java.util.UUID;
 public class MenuManager {
     private final TaskService service;
     private final InputHandler input;
+    // How the CLI lists tasks; a view only, the stored order is left alone
+    private TaskQuery.Sort sort = TaskQuery.Sort.NONE;
 
     public MenuManager(TaskService service, InputHandler input) {
         this.service = service;
@@ -73,7 +75,7 @@ public class MenuManager {
     private void editTask() {
         UIHelper.printHeader(UIHelper.t("edit_title"));
 
-        List<Task> tasks = service.getAll();
+        List<Task> tasks = tasks();
         if (tasks.isEmpty()) {
             System.out.println(Colors.PASTEL_YELLOW + UIHelper.t("no_tasks") + Colors.RESET);
             return;
@@ -96,7 +98,7 @@ public class MenuManager {
     }
 
     private void toggleDone() {
-        List<Task> tasks = service.getAll();
+        List<Task> tasks = tasks();
         if (tasks.isEmpty()) {
             System.out.println(Colors.PASTEL_YELLOW + UIHelper.t("no_to_mark") + Colors.RESET);
             return;
@@ -119,7 +121,7 @@ public class MenuManager {
     }
 
     private void deleteTask() {
-        List<Task> tasks = service.getAll();
+        List<Task> tasks = tasks();
         if (tasks.isEmpty()) {
             System.out.println(Colors.PASTEL_YELLOW + UIHelper.t("no_tasks") + Colors.RESET);
             return;
@@ -137,7 +139,7 @@ public class MenuManager {
     }
 
     private void archiveTask() {
-        List<Task> tasks = service.getAll();
+        List<Task> tasks = tasks();
         if (tasks.isEmpty()) {
             System.out.println(Colors.PASTEL_YELLOW + UIHelper.t("no_tasks") + Colors.RESET);
             return;
@@ -184,14 +186,19 @@ public class MenuManager {
                 """);
         String choice = input.readLine("> ");
         switch (choice) {
-            case "1" -> service.sortByDeadline();
-            case "2" -> service.sortByPriority();
-            case "3" -> service.sortByTitle();
+            case "1" -> sort = TaskQuery.Sort.DEADLINE;
+            case "2" -> sort = TaskQuery.Sort.PRIORITY;
+            case "3" -> sort = TaskQuery.Sort.TITLE;
             default -> System.out.println(Colors.PASTEL_YELLOW + UIHelper.t("invalid_choice_simple") + Colors.RESET);
         }
         System.out.println(Colors.PASTEL_GREEN + UIHelper.t("tasks_sorted") + Colors.RESET);
     }
 
+    // The active tasks in the chosen order, as listed and numbered on screen
+    List<Task> tasks() {
+        return service.getSorted(sort);
+    }
+
     private void settingsMenu() {
         while (true) {
             UIHelper.printPageHeader("settings");
@@ -0,0 +1,28 @@
+package com.setayesh.planit.api;
+
+import com.setayesh.planit.core.Priority;
+import com.setayesh.planit.core.Task;
+import com.setayesh.planit.core.TaskService;
+import com.setayesh.planit.storage.InMemoryTaskRepository;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class CalendarControllerTest {
+
+    @Test
+    void getOccurrencesRejectsReversedOrTooLongRanges() {
+        TaskService service = new TaskService(new InMemoryTaskRepository());
+        LocalDate from = LocalDate.of(2025, 1, 1);
+        service.addTask(new Task("Due", from, Priority.MEDIUM));
+        CalendarController controller = new CalendarController(service, 31);
+
+        assertEquals(1, controller.getOccurrences(from, from.plusDays(30)).getBody().size());
+        assertEquals(400, controller.getOccurrences(from, from.plusDays(31)).getStatusCode().value());
+        assertEquals(400, controller.getOccurrences(from, from.minusDays(1)).getStatusCode().value());
+        assertEquals(400, controller.getOccurrences(LocalDate.MIN, LocalDate.MAX).getStatusCode().value());
+        service.shutdown();
+    }
+}
@@ -8,6 +8,7 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -43,6 +44,27 @@ class TaskControllerTest {
         assertEquals(8L, created.getGroupId());
     }
 
+    @Test
+    void sortedTasksAreAViewAndRejectUnknownKeys() {
+        Task low = controller.addTask(Map.of("title", "Low", "priority", "LOW")).getBody();
+        Task high = controller.addTask(Map.of("title", "High", "priority", "HIGH")).getBody();
+
+        assertEquals(List.of(high, low), controller.getSortedTasks("priority").getBody());
+        assertEquals(List.of(low, high),
+                controller.getAllTasks(null, null, null, null, null, null, null, null, null, 0).getBody());
+        assertEquals(400, controller.getSortedTasks("colour").getStatusCode().value());
+    }
+
+    @Test
+    void getAllTasksRejectsUnknownPriorityOrSort() {
+        assertEquals(400, controller.getAllTasks(null, null, null, "urgent", null, null, null, null, null, 0)
+                .getStatusCode().value());
+        assertEquals(400, controller.getAllTasks(null, null, null, null, null, null, null, null, "colour", 0)
+                .getStatusCode().value());
+        assertEquals(200, controller.getAllTasks(null, null, null, "high", null, null, null, null, "title", 0)
+                .getStatusCode().value());
+    }
+
     @Test
     void editTaskCanClearGroup() {
         Task created = controller.addTask(Map.of(
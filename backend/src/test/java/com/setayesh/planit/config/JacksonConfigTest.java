@@ -0,0 +1,67 @@
+package com.setayesh.planit.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.setayesh.planit.core.Priority;
+import com.setayesh.planit.core.Task;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JacksonConfigTest {
+
+    private final ObjectMapper plain = new ObjectMapper().findAndRegisterModules();
+    private final ObjectMapper locking = new ObjectMapper().findAndRegisterModules()
+            .registerModule(new JacksonConfig().taskLockingModule());
+
+    @Test
+    void tasksShouldSerializeAsBefore() throws Exception {
+        Task t = new Task("Report", LocalDate.of(2025, 6, 2), Priority.HIGH);
+
+        assertEquals(plain.writeValueAsString(t), locking.writeValueAsString(t));
+        assertEquals(plain.writeValueAsString(List.of(t)), locking.writeValueAsString(List.of(t)));
+    }
+
+    @Test
+    void serializationShouldWaitForAnEditHoldingTheTask() throws Exception {
+        Task t = new Task("Report", LocalDate.of(2025, 6, 2), Priority.HIGH);
+        CountDownLatch editing = new CountDownLatch(1);
+        CountDownLatch finish = new CountDownLatch(1);
+
+        Thread editor = new Thread(() -> {
+            synchronized (t) {
+                t.setTitle("Half");
+                editing.countDown();
+                try {
+                    finish.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                t.setDeadline(LocalDate.of(2025, 7, 1));
+            }
+        });
+        editor.start();
+        editing.await();
+
+        CompletableFuture<String> json = CompletableFuture.supplyAsync(() -> {
+            try {
+                return locking.writeValueAsString(t);
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        Thread.sleep(100);
+        assertFalse(json.isDone(), "serialized in the middle of an edit");
+
+        finish.countDown();
+        String done = json.get(5, TimeUnit.SECONDS);
+        assertEquals(LocalDate.of(2025, 7, 1), locking.readValue(done, Task.class).getDeadline());
+        assertTrue(done.contains("\"Half\""), done);
+        editor.join();
+    }
+}
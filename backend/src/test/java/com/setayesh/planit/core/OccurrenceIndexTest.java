@@ -0,0 +1,82 @@
+package com.setayesh.planit.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OccurrenceIndexTest {
+
+    private static final LocalDate TODAY = LocalDate.of(2025, 3, 10); // Monday
+
+    private static void assertMatchesOccursOn(OccurrenceIndex index, List<Task> tasks) {
+        for (LocalDate d = index.firstDay(); !d.isAfter(index.lastDay()); d = d.plusDays(1)) {
+            List<Task> expected = new ArrayList<>();
+            for (Task t : tasks) {
+                if (t.occursOn(d))
+                    expected.add(t);
+            }
+            assertEquals(expected, index.tasksOn(d), "on " + d);
+        }
+    }
+
+    private static Task recurring(String title, RepeatFrequency frequency, LocalDate start) {
+        Task t = new Task(title);
+        t.setStartDate(start);
+        t.setRepeatFrequency(frequency);
+        return t;
+    }
+
+    @Test
+    void lookupsShouldMatchOccursOnThroughChangesAndRolls() {
+        OccurrenceIndex index = new OccurrenceIndex(new OccurrenceWindow(10, 40), TODAY);
+
+        Task gym = recurring("Gym", RepeatFrequency.WEEKLY, TODAY.minusDays(20));
+        gym.setRepeatDays("MON,THU");
+        Task rent = recurring("Rent", RepeatFrequency.MONTHLY, TODAY.minusMonths(3));
+        Task dentist = new Task("Dentist", TODAY.plusDays(4), Priority.HIGH);
+        List<Task> tasks = List.of(gym, rent, dentist);
+
+        for (Task t : tasks) {
+            index.add(t);
+            t.setChangeListener(index);
+        }
+        assertMatchesOccursOn(index, tasks);
+
+        // setters mark the task stale; the next lookup re-evaluates it
+        gym.addExcludedDate(TODAY.plusDays(3));
+        gym.setRepeatUntil(TODAY.plusDays(25));
+        dentist.setDeadline(TODAY.plusDays(5));
+        assertMatchesOccursOn(index, tasks);
+
+        index.roll(TODAY.plusDays(7));
+        assertEquals(TODAY.minusDays(3), index.firstDay());
+        assertMatchesOccursOn(index, tasks);
+
+        index.roll(TODAY.plusDays(200)); // past the whole window
+        assertMatchesOccursOn(index, tasks);
+
+        assertNull(index.tasksOn(TODAY.minusYears(1)));
+    }
+
+    @Test
+    void removedTasksShouldLeaveTheCalendarAndFreeTheirOrdinal() {
+        OccurrenceIndex index = new OccurrenceIndex(new OccurrenceWindow(0, 14), TODAY);
+        Task daily = recurring("Daily", RepeatFrequency.DAILY, TODAY);
+        Task once = new Task("Once", TODAY.plusDays(2), Priority.LOW);
+        index.add(daily);
+        index.add(once);
+
+        index.remove(daily);
+        Task replacement = recurring("Replacement", RepeatFrequency.DAILY, TODAY.plusDays(1));
+        index.add(replacement);
+
+        assertEquals(List.of(), index.tasksOn(TODAY));
+        assertEquals(List.of(replacement, once), index.tasksOn(TODAY.plusDays(2)));
+        assertEquals(2, index.between(TODAY, TODAY.plusDays(3)).get(TODAY.plusDays(2)).size());
+        assertNull(index.between(TODAY, TODAY.plusDays(30)));
+    }
+}
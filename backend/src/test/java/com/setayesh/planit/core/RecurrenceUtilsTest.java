@@ -0,0 +1,201 @@
+package com.setayesh.planit.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RecurrenceUtilsTest {
+
+    private static final RepeatFrequency[] FREQUENCIES = {
+            RepeatFrequency.NONE, RepeatFrequency.DAILY, RepeatFrequency.WEEKLY,
+            RepeatFrequency.MONTHLY, RepeatFrequency.YEARLY };
+
+    // Starts that stress month ends and leap years
+    private static final LocalDate[] STARTS = {
+            LocalDate.of(2024, 1, 31), LocalDate.of(2024, 2, 29), LocalDate.of(2023, 3, 1),
+            LocalDate.of(2024, 12, 31), LocalDate.of(2025, 6, 15), LocalDate.of(2022, 8, 30) };
+
+    // The rule as written with ChronoUnit before it was compiled to epoch-day arithmetic
+    private static boolean referenceOccursOn(Task t, LocalDate date) {
+        if (t.getRepeatFrequency() == RepeatFrequency.NONE)
+            return date.equals(t.getDeadline());
+
+        LocalDate start = t.getStartDate() != null ? t.getStartDate() : t.getCreatedAt().toLocalDate();
+        if (date.isBefore(start) || (t.getRepeatUntil() != null && date.isAfter(t.getRepeatUntil())))
+            return false;
+        if (t.isExcluded(date))
+            return false;
+
+        int interval = t.getRepeatInterval() != null && t.getRepeatInterval() > 0 ? t.getRepeatInterval() : 1;
+        return switch (t.getRepeatFrequency()) {
+            case DAILY -> ChronoUnit.DAYS.between(start, date) % interval == 0;
+            case WEEKLY -> {
+                int days = t.getRepeatDayMask() != WeekdayMask.NONE ? t.getRepeatDayMask()
+                        : WeekdayMask.bit(start.getDayOfWeek());
+                yield WeekdayMask.contains(days, date.getDayOfWeek())
+                        && ChronoUnit.WEEKS.between(start, date) % interval == 0;
+            }
+            case MONTHLY -> date.getDayOfMonth() == start.getDayOfMonth()
+                    && ChronoUnit.MONTHS.between(start.withDayOfMonth(1), date.withDayOfMonth(1)) % interval == 0;
+            case YEARLY -> date.getDayOfYear() == start.getDayOfYear()
+                    && ChronoUnit.YEARS.between(start, date) % interval == 0;
+            default -> false;
+        };
+    }
+
+    private static List<LocalDate> bruteForce(Task t, LocalDate from, LocalDate to) {
+        List<LocalDate> dates = new ArrayList<>();
+        for (LocalDate d = from; !d.isAfter(to); d = d.plusDays(1)) {
+            boolean expected = referenceOccursOn(t, d);
+            assertEquals(expected, t.occursOn(d), "occursOn " + d);
+            if (expected)
+                dates.add(d);
+        }
+        return dates;
+    }
+
+    private static Task randomSeries(Random random, int i) {
+        LocalDate start = random.nextInt(3) == 0
+                ? STARTS[random.nextInt(STARTS.length)]
+                : LocalDate.of(2022, 1, 1).plusDays(random.nextInt(1500));
+
+        Task t = new Task("Series " + i, start.plusDays(random.nextInt(60)), Priority.LOW);
+        t.setStartDate(start);
+        t.setRepeatFrequency(FREQUENCIES[random.nextInt(FREQUENCIES.length)]);
+        t.setRepeatInterval(1 + random.nextInt(4));
+        t.setRepeatDays(random.nextBoolean() ? null : "MON,WED,SAT");
+        if (random.nextBoolean())
+            t.setRepeatUntil(start.plusDays(random.nextInt(1200)));
+        for (int e = random.nextInt(4); e > 0; e--)
+            t.addExcludedDate(start.plusDays(random.nextInt(400)));
+        return t;
+    }
+
+    @Test
+    void occurrencesBetweenShouldMatchOccursOnForRandomSeries() {
+        Random random = new Random(42);
+
+        for (int i = 0; i < 2000; i++) {
+            Task t = randomSeries(random, i);
+
+            LocalDate from = LocalDate.of(2021, 6, 1).plusDays(random.nextInt(2000));
+            LocalDate to = from.plusDays(random.nextInt(1500));
+
+            assertEquals(bruteForce(t, from, to), RecurrenceUtils.occurrencesBetween(t, from, to),
+                    t.getRepeatFrequency() + " every " + t.getRepeatInterval() + " from " + t.getStartDate()
+                            + " in [" + from + ", " + to + "]");
+        }
+    }
+
+    @Test
+    void occurrencesBetweenShouldBeEmptyForAnInvertedRange() {
+        Task daily = new Task("Daily");
+        daily.setRepeatFrequency(RepeatFrequency.DAILY);
+        LocalDate today = LocalDate.now();
+
+        assertTrue(RecurrenceUtils.occurrencesBetween(daily, today, today.minusDays(1)).isEmpty());
+        assertEquals(List.of(today), RecurrenceUtils.occurrencesBetween(daily, today, today));
+    }
+
+    @Test
+    void nextWeeklyShouldJumpToTheNextSelectedWeekday() {
+        assertEquals(0, WeekdayMask.daysUntil(WeekdayMask.parse("MON,THU"), java.time.DayOfWeek.MONDAY));
+        assertEquals(2, WeekdayMask.daysUntil(WeekdayMask.parse("MON,THU"), java.time.DayOfWeek.TUESDAY));
+        assertEquals(3, WeekdayMask.daysUntil(WeekdayMask.parse("MON,THU"), java.time.DayOfWeek.FRIDAY));
+        assertEquals(6, WeekdayMask.daysUntil(WeekdayMask.parse("SUN"), java.time.DayOfWeek.MONDAY));
+        assertEquals(-1, WeekdayMask.daysUntil(WeekdayMask.NONE, java.time.DayOfWeek.MONDAY));
+    }
+
+    @Test
+    void nextOnOrAfterShouldMatchDayByDaySearch() {
+        Random random = new Random(7);
+
+        for (int i = 0; i < 3000; i++) {
+            Task t = randomSeries(random, i);
+            if (t.getRepeatFrequency() == RepeatFrequency.NONE)
+                continue;
+            LocalDate from = LocalDate.of(2021, 6, 1).plusDays(random.nextInt(2500));
+
+            // 25 years covers every interval, leap-day start and exclusion drawn above
+            LocalDate horizon = from.plusYears(25);
+            LocalDate expected = null;
+            for (LocalDate d = from; !d.isAfter(horizon); d = d.plusDays(1)) {
+                if (referenceOccursOn(t, d)) {
+                    expected = d;
+                    break;
+                }
+            }
+
+            assertEquals(expected, t.recurrence().nextOnOrAfter(from),
+                    t.getRepeatFrequency() + " every " + t.getRepeatInterval() + " from " + t.getStartDate()
+                            + " days " + t.getRepeatDays() + " until " + t.getRepeatUntil() + ", next after " + from);
+        }
+    }
+
+    @Test
+    void computeNextOccurrenceShouldHonorTheInterval() {
+        LocalDate today = LocalDate.now();
+        Task t = new Task("Every third day");
+        t.setStartDate(today.minusDays(10));
+        t.setRepeatFrequency(RepeatFrequency.DAILY);
+        t.setRepeatInterval(3);
+
+        // start + 12 is the first occurrence from today on (start + 10)
+        assertEquals(today.plusDays(2), RecurrenceUtils.computeNextOccurrence(t, List.of()));
+        assertEquals(today.plusDays(5),
+                RecurrenceUtils.computeNextOccurrence(t, List.of(today.minusDays(4), today.plusDays(2))));
+
+        t.setRepeatUntil(today.plusDays(4));
+        assertNull(RecurrenceUtils.computeNextOccurrence(t, List.of(today.plusDays(2))));
+    }
+
+    @Test
+    void computeNextOccurrenceShouldAcceptCompletionsInAnyOrder() {
+        LocalDate today = LocalDate.now();
+        Task t = new Task("Daily");
+        t.setStartDate(today.minusDays(10));
+        t.setRepeatFrequency(RepeatFrequency.DAILY);
+
+        List<LocalDate> completed = List.of(today.plusDays(3), today.minusDays(2), today, today.plusDays(1));
+        List<LocalDate> reversed = new java.util.ArrayList<>(completed);
+        java.util.Collections.reverse(reversed);
+
+        assertEquals(today.plusDays(4), RecurrenceUtils.computeNextOccurrence(t, completed));
+        assertEquals(today.plusDays(4), RecurrenceUtils.computeNextOccurrence(t, reversed));
+    }
+
+    @Test
+    void occurrencesShouldStreamLazilyAndSplitForParallelUse() {
+        Task gym = new Task("Gym");
+        gym.setStartDate(LocalDate.of(2025, 1, 6)); // Monday
+        gym.setRepeatFrequency(RepeatFrequency.WEEKLY);
+        gym.setRepeatDays("MON,THU");
+        gym.addExcludedDate(LocalDate.of(2025, 1, 9));
+
+        // open-ended: the next n occurrences
+        assertEquals(List.of(LocalDate.of(2025, 1, 6), LocalDate.of(2025, 1, 13), LocalDate.of(2025, 1, 16)),
+                RecurrenceUtils.occurrences(gym, LocalDate.of(2025, 1, 1), null).limit(3).toList());
+
+        // a stream keeps the rule it started with
+        var stream = RecurrenceUtils.occurrences(gym, LocalDate.of(2025, 1, 1), null);
+        gym.setRepeatDays("FRI");
+        assertEquals(LocalDate.of(2025, 1, 6), stream.findFirst().orElseThrow());
+
+        // a bounded range splits and parallel traversal keeps the order
+        LocalDate from = LocalDate.of(2025, 1, 1);
+        LocalDate to = LocalDate.of(2035, 12, 31);
+        var spliterator = RecurrenceUtils.spliterator(gym, from, to);
+        assertNotNull(spliterator.trySplit());
+        assertEquals(RecurrenceUtils.occurrencesBetween(gym, from, to),
+                RecurrenceUtils.occurrences(gym, from, to).parallel().toList());
+
+        gym.setRepeatUntil(LocalDate.of(2025, 2, 1));
+        assertEquals(4, RecurrenceUtils.occurrences(gym, from, null).count());
+    }
+}
@@ -0,0 +1,81 @@
+package com.setayesh.planit.core;
+
+import com.setayesh.planit.storage.InMemoryTaskRepository;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TaskServiceConcurrencyTest {
+
+    private static final int WRITERS = 8;
+    private static final int ROUNDS = 250;
+
+    @Test
+    void concurrentWritersShouldNotLoseUpdatesWhileReadersIterate() throws Exception {
+        var repo = new InMemoryTaskRepository();
+        var service = new TaskService(repo);
+
+        Task counter = new Task("Counter");
+        counter.setRepeatInterval(0);
+        service.addTask(counter);
+
+        ExecutorService pool = Executors.newFixedThreadPool(WRITERS + 1);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicBoolean writing = new AtomicBoolean(true);
+        List<Future<?>> writers = new ArrayList<>();
+
+        for (int w = 0; w < WRITERS; w++) {
+            int writer = w;
+            writers.add(pool.submit(() -> {
+                start.await();
+                for (int i = 0; i < ROUNDS; i++) {
+                    Task t = new Task("w" + writer + "-" + i);
+                    service.addTask(t);
+                    service.update(counter.getId(), c -> c.setRepeatInterval(c.getRepeatInterval() + 1));
+                    if (i % 2 == 0) {
+                        service.deleteTask(t.getId());
+                    }
+                }
+                return null;
+            }));
+        }
+
+        // Reader: iterates snapshots while they are being replaced
+        Future<Long> reader = pool.submit(() -> {
+            start.await();
+            long lastVersion = -1;
+            long reads = 0;
+            while (writing.get()) {
+                TaskService.Snapshot snap = service.snapshot();
+                assertTrue(snap.version() >= lastVersion);
+                lastVersion = snap.version();
+                for (Task t : snap.tasks()) {
+                    assertSame(t, snap.byId().get(t.getId()));
+                }
+                reads++;
+            }
+            return reads;
+        });
+
+        start.countDown();
+        for (Future<?> f : writers) {
+            f.get(30, TimeUnit.SECONDS);
+        }
+        writing.set(false);
+        assertTrue(reader.get(30, TimeUnit.SECONDS) > 0);
+        pool.shutdown();
+
+        int expected = 1 + WRITERS * ROUNDS / 2;
+        assertEquals(WRITERS * ROUNDS, service.findById(counter.getId()).orElseThrow().getRepeatInterval());
+        assertEquals(expected, service.getAll().size());
+        assertEquals(expected, repo.findAll().size());
+        for (Task t : service.getAll()) {
+            assertTrue(service.findById(t.getId()).isPresent());
+        }
+    }
+}
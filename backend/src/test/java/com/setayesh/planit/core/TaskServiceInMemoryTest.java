@@ -66,4 +66,29 @@ class TaskServiceInMemoryTest {
         assertEquals("09:30", loaded.getTime());
         assertEquals("2025-02-01", loaded.getExcludedDates());
     }
+
+    @Test
+    void queryShouldUseCurrentValuesAfterEdits() {
+        LocalDate today = LocalDate.of(2025, 5, 1);
+        Task a = new Task("A", today, Priority.HIGH);
+        Task b = new Task("B", today.plusDays(3), Priority.LOW);
+        Task c = new Task("C", null, Priority.HIGH);
+        a.setGroupId(1L);
+        b.setGroupId(1L);
+        service.addTask(a);
+        service.addTask(b);
+        service.addTask(c);
+
+        TaskQuery week = TaskQuery.all().deadlineBetween(today, today.plusDays(6));
+        assertEquals(List.of(a, b), service.query(week.sortBy(TaskQuery.Sort.DEADLINE)));
+
+        // edited in place, re-indexed on the flush done by query()
+        b.setDeadline(today.plusDays(10));
+        c.setDeadline(today.plusDays(1));
+
+        assertEquals(List.of(a, c), service.query(week.sortBy(TaskQuery.Sort.DEADLINE)));
+        assertEquals(List.of(a), service.query(TaskQuery.all().group(1L).priority(Priority.HIGH)));
+        assertEquals(List.of(c), service.query(TaskQuery.all().priority(Priority.HIGH)
+                .sortBy(TaskQuery.Sort.DEADLINE).limit(2).deadlineBetween(today.plusDays(1), null)));
+    }
 }
@@ -1,6 +1,8 @@
 package com.setayesh.planit.core;
 
 import com.setayesh.planit.storage.InMemoryTaskRepository;
+import com.setayesh.planit.storage.StorageException;
+import com.setayesh.planit.storage.TaskChangeSet;
 import org.junit.jupiter.api.Test;
 
 import java.time.LocalDate;
@@ -150,4 +152,431 @@ class TaskServiceTest {
         assertEquals(34L, other.getGroupId());
         assertNull(repo.findAll().get(0).getGroupId());
     }
+
+    @Test
+    void writeBehind_shouldDeferRepositoryWriteUntilFlush() {
+        var repo = new InMemoryTaskRepository();
+        var service = new TaskService(repo, null, new WriteBehindSettings(true, 60_000, 1_000));
+
+        service.addTask(new Task("Queued"));
+        service.markDone(service.getAll().get(0).getId());
+
+        assertEquals(1, service.getAll().size());
+        assertTrue(repo.findAll().isEmpty());
+
+        service.flush();
+
+        assertEquals(1, repo.findAll().size());
+        assertTrue(repo.findAll().get(0).isDone());
+        service.shutdown();
+    }
+
+    @Test
+    void writeBehind_shouldFlushOnceBatchSizeIsReached() throws InterruptedException {
+        var repo = new InMemoryTaskRepository();
+        var service = new TaskService(repo, null, new WriteBehindSettings(true, 60_000, 2));
+
+        service.addTask(new Task("First"));
+        service.addTask(new Task("Second"));
+
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (repo.findAll().size() < 2 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+
+        assertEquals(2, repo.findAll().size());
+        service.shutdown();
+    }
+
+    // Fails every write while `failing` is set
+    private static class FailingRepository extends InMemoryTaskRepository {
+        volatile boolean failing;
+
+        @Override
+        public void saveAll(java.util.List<Task> tasks) {
+            if (failing)
+                throw new StorageException("disk full", null);
+            super.saveAll(tasks);
+        }
+
+        @Override
+        public void saveChanges(java.util.List<Task> tasks, TaskChangeSet changes) {
+            if (failing)
+                throw new StorageException("disk full", null);
+            super.saveChanges(tasks, changes);
+        }
+
+        @Override
+        public void archive(java.util.Collection<UUID> ids) {
+            if (failing)
+                throw new StorageException("disk full", null);
+            super.archive(ids);
+        }
+    }
+
+    @Test
+    void flush_shouldKeepChangesPendingWhenTheWriteFails() {
+        var repo = new FailingRepository();
+        var service = new TaskService(repo);
+        var gone = new Task("Gone");
+        service.addTask(gone);
+
+        repo.failing = true;
+        var kept = new Task("Kept");
+        assertThrows(StorageException.class, () -> service.addTask(kept));
+        assertThrows(StorageException.class, () -> service.deleteTask(gone.getId()));
+        assertEquals(java.util.List.of(kept), service.getAll());
+        assertEquals(java.util.List.of(gone), repo.findAll());
+
+        repo.failing = false;
+        service.flush();
+
+        assertEquals(java.util.List.of(kept), repo.findAll());
+        assertFalse(kept.isDirty());
+    }
+
+    @Test
+    void archiveTasks_shouldKeepTasksActiveWhenTheMoveFails() {
+        var repo = new FailingRepository() {
+            @Override
+            public void archive(java.util.Collection<UUID> ids) {
+                failing = true; // the flush before the move still succeeds
+                super.archive(ids);
+            }
+        };
+        var service = new TaskService(repo);
+        var t = new Task("Stays");
+        service.addTask(t);
+
+        assertThrows(StorageException.class, () -> service.archiveTask(t.getId()));
+        assertEquals(java.util.List.of(t), service.getAll());
+        assertFalse(t.isArchived());
+        assertTrue(repo.loadArchive().isEmpty());
+
+        repo.failing = false;
+        service.flush();
+        assertFalse(repo.findAll().get(0).isArchived());
+    }
+
+    @Test
+    void writeBehind_shouldRetryAFailedFlush() throws InterruptedException {
+        var repo = new FailingRepository();
+        repo.failing = true;
+        var service = new TaskService(repo, null, new WriteBehindSettings(true, 20, 1_000));
+
+        service.addTask(new Task("Retried"));
+        Thread.sleep(100); // at least one failed attempt
+        repo.failing = false;
+
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (repo.findAll().isEmpty() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+
+        assertEquals(1, repo.findAll().size());
+        service.shutdown();
+    }
+
+    @Test
+    void writeBehind_shouldStopRetryingAfterTheBound() throws InterruptedException {
+        var attempts = new java.util.concurrent.atomic.AtomicInteger();
+        var repo = new FailingRepository() {
+            @Override
+            public void saveChanges(java.util.List<Task> tasks, TaskChangeSet changes) {
+                attempts.incrementAndGet();
+                super.saveChanges(tasks, changes);
+            }
+        };
+        repo.failing = true;
+        var service = new TaskService(repo, null, new WriteBehindSettings(true, 5, 1_000));
+
+        service.addTask(new Task("Never saved"));
+        Thread.sleep(1_000); // 5 + 10 + 20 + 40 + 80 ms of backoff, with room to spare
+
+        assertEquals(1 + WriteBehindQueue.MAX_RETRIES, attempts.get());
+        repo.failing = false;
+        service.shutdown();
+        assertEquals(1, repo.findAll().size());
+    }
+
+    @Test
+    void save_shouldWriteSynchronouslyAfterShutdown() {
+        var repo = new InMemoryTaskRepository();
+        var service = new TaskService(repo, null, new WriteBehindSettings(true, 60_000, 1_000));
+        service.shutdown();
+
+        service.addTask(new Task("Late"));
+
+        assertEquals(1, repo.findAll().size());
+    }
+
+    @Test
+    void shutdown_shouldDrainPendingWrites() {
+        var repo = new InMemoryTaskRepository();
+        var service = new TaskService(repo, null, new WriteBehindSettings(true, 60_000, 1_000));
+
+        service.addTask(new Task("Pending"));
+        service.shutdown();
+
+        assertEquals(1, repo.findAll().size());
+    }
+
+    @Test
+    void archiveTasksAndUnarchive_shouldMoveInBulk() {
+        var repo = new InMemoryTaskRepository();
+        var service = new TaskService(repo);
+
+        var a = new Task("A", null, Priority.LOW);
+        var b = new Task("B", null, Priority.LOW);
+        var c = new Task("C", null, Priority.LOW);
+        service.addTask(a);
+        service.addTask(b);
+        service.addTask(c);
+
+        assertEquals(2, service.archiveTasks(java.util.List.of(a.getId(), c.getId(), UUID.randomUUID())));
+        assertEquals(java.util.List.of(b), service.getAll());
+        assertEquals(2, service.loadArchive().size());
+
+        var restored = service.unarchiveTasks(java.util.List.of(c.getId()));
+        assertEquals(1, restored.size());
+        assertFalse(restored.get(0).isArchived());
+        assertTrue(service.findById(c.getId()).isPresent());
+        assertEquals(1, service.loadArchive().size());
+        assertEquals(2, repo.findAll().size());
+    }
+
+    @Test
+    void unarchiveTasks_shouldRestoreSeveralIds() {
+        var repo = new InMemoryTaskRepository();
+        var service = new TaskService(repo);
+
+        var a = new Task("A", null, Priority.LOW);
+        var b = new Task("B", null, Priority.LOW);
+        service.addTask(a);
+        service.addTask(b);
+        service.archiveTasks(java.util.List.of(a.getId(), b.getId()));
+
+        var restored = service.unarchiveTasks(java.util.List.of(a.getId(), b.getId()));
+        assertEquals(2, restored.size());
+        assertTrue(service.findById(a.getId()).isPresent());
+        assertTrue(service.findById(b.getId()).isPresent());
+        assertTrue(service.loadArchive().isEmpty());
+        assertEquals(2, repo.findAll().size());
+    }
+
+    @Test
+    void findArchivePage_shouldPageNewestFirst() {
+        var repo = new InMemoryTaskRepository();
+        var service = new TaskService(repo);
+
+        var tasks = new java.util.ArrayList<Task>();
+        for (int i = 0; i < 5; i++) {
+            var t = new Task("Old " + i, null, Priority.LOW);
+            service.addTask(t);
+            tasks.add(t);
+        }
+        service.archiveTasks(tasks.stream().map(Task::getId).toList());
+
+        var first = service.findArchivePage(new ArchiveQuery(null, null, null, null, null, 3));
+        assertEquals(3, first.items().size());
+        assertNotNull(first.nextCursor());
+
+        var second = service.findArchivePage(new ArchiveQuery(null, null, null, null, first.nextCursor(), 3));
+        assertEquals(2, second.items().size());
+        assertNull(second.nextCursor());
+
+        var all = new java.util.ArrayList<>(first.items());
+        all.addAll(second.items());
+        assertEquals(all.stream().sorted(ArchiveQuery.ORDER).toList(), all);
+        assertEquals(5, service.countArchive());
+
+        assertThrows(IllegalArgumentException.class,
+                () -> service.findArchivePage(new ArchiveQuery(null, null, null, null, "not-a-cursor", 3)));
+    }
+
+    @Test
+    void recomputeNextOccurrences_shouldMoveStaleDatesForward() {
+        var repo = new InMemoryTaskRepository();
+        var service = new TaskService(repo);
+        LocalDate today = LocalDate.now();
+
+        Task daily = new Task("Water plants", null, Priority.LOW);
+        daily.setStartDate(today.minusDays(10));
+        daily.setRepeatFrequency(RepeatFrequency.DAILY);
+        daily.setNextOccurrence(today.minusDays(3));
+        Task once = new Task("Dentist", today.plusDays(2), Priority.HIGH);
+        service.addTask(daily);
+        service.addTask(once);
+
+        service.markInstanceCompleted(daily.getId(), today);
+        daily.setNextOccurrence(today.minusDays(3));
+
+        assertEquals(1, service.recomputeNextOccurrences());
+        assertEquals(today.plusDays(1), daily.getNextOccurrence());
+        assertEquals(0, service.recomputeNextOccurrences());
+    }
+
+    @Test
+    void findById_shouldFollowAddDeleteArchiveAndClear() {
+        var service = new TaskService(new InMemoryTaskRepository());
+
+        Task a = new Task("b-task", LocalDate.of(2025, 3, 1), Priority.LOW);
+        Task b = new Task("A-task", null, Priority.HIGH);
+        Task c = new Task("c-task", LocalDate.of(2025, 1, 1), Priority.MEDIUM);
+        Task d = new Task("d-task", null, Priority.LOW);
+        service.addTask(a);
+        service.addTask(b);
+        service.addTask(c);
+        service.addTask(d);
+
+        assertEquals(java.util.List.of(b, a, c, d), service.getSorted(TaskQuery.Sort.TITLE));
+        assertEquals(java.util.List.of(c, a, b, d), service.getSorted(TaskQuery.Sort.DEADLINE));
+        assertSame(a, service.findById(a.getId()).orElseThrow());
+
+        service.deleteTask(a.getId());
+        service.archiveTask(b.getId());
+        service.markDone(c.getId());
+        service.clearCompletedNotArchived();
+
+        assertTrue(service.findById(a.getId()).isEmpty());
+        assertTrue(service.findById(b.getId()).isEmpty());
+        assertTrue(service.findById(c.getId()).isEmpty());
+        assertEquals(java.util.List.of(d), service.getAll());
+
+        service.unarchiveTasks(java.util.List.of(b.getId()));
+        assertEquals(java.util.List.of(d, b), service.getAll());
+        assertTrue(service.findById(b.getId()).isPresent());
+    }
+
+    @Test
+    void getSorted_shouldFollowChangesWithoutReordering() {
+        var service = new TaskService(new InMemoryTaskRepository());
+
+        Task a = new Task("b-task", LocalDate.of(2025, 3, 1), Priority.LOW);
+        Task b = new Task("A-task", null, Priority.HIGH);
+        Task c = new Task("c-task", LocalDate.of(2025, 1, 1), Priority.MEDIUM);
+        service.addTask(a);
+        service.addTask(b);
+        service.addTask(c);
+
+        assertEquals(java.util.List.of(b, a, c), service.getSorted(TaskQuery.Sort.TITLE));
+        assertEquals(java.util.List.of(c, a, b), service.getSorted(TaskQuery.Sort.DEADLINE));
+        assertEquals(java.util.List.of(b, c, a), service.getSorted(TaskQuery.Sort.PRIORITY));
+
+        service.editTask(a.getId(), "0-task", LocalDate.of(2024, 12, 1), Priority.HIGH);
+        service.update(c.getId(), t -> t.setPriority(Priority.LOW));
+
+        assertEquals(java.util.List.of(a, b, c), service.getSorted(TaskQuery.Sort.TITLE));
+        assertEquals(java.util.List.of(a, c, b), service.getSorted(TaskQuery.Sort.DEADLINE));
+        var byPriority = service.getSorted(TaskQuery.Sort.PRIORITY);
+        assertEquals(java.util.Set.of(a, b), java.util.Set.copyOf(byPriority.subList(0, 2))); // both HIGH
+        assertSame(c, byPriority.get(2));
+
+        service.deleteTask(b.getId());
+        assertEquals(java.util.List.of(a, c), service.getSorted(TaskQuery.Sort.TITLE));
+
+        // the stored list order is untouched
+        assertEquals(java.util.List.of(a, c), service.getAll());
+        assertEquals(service.getAll(), service.getSorted(TaskQuery.Sort.NONE));
+    }
+
+    @Test
+    void indexes_shouldFollowSetterChanges() {
+        var service = new TaskService(new InMemoryTaskRepository());
+        LocalDate monday = LocalDate.of(2025, 6, 2);
+
+        Task report = new Task("Report", monday, Priority.HIGH);
+        report.setGroupId(4L);
+        Task call = new Task("Call", monday.plusDays(3), Priority.LOW);
+        Task later = new Task("Later", monday.plusDays(30), Priority.LOW);
+        service.addTask(report);
+        service.addTask(call);
+        service.addTask(later);
+
+        assertEquals(java.util.List.of(report, call), service.getTasksDueBetween(monday, monday.plusDays(6)));
+        assertEquals(java.util.List.of(report), service.getTasksForDate(monday));
+
+        // moving a deadline re-files the task
+        service.update(report.getId(), t -> t.setDeadline(monday.plusDays(5)));
+        assertEquals(java.util.List.of(call, report), service.getTasksDueBetween(monday, monday.plusDays(6)));
+        assertTrue(service.getTasksForDate(monday).isEmpty());
+
+        // the TaskQuery path uses the same index
+        var query = TaskQuery.all().deadlineBetween(monday, monday.plusDays(6)).priority(Priority.HIGH);
+        assertEquals(java.util.List.of(report), service.query(query));
+
+        service.removeGroupFromTasks(4L);
+        assertNull(report.getGroupId());
+        assertTrue(service.getTasksInGroup(4L).isEmpty());
+
+        service.deleteTask(call.getId());
+        call.setDeadline(monday); // detached: no longer indexed
+        assertEquals(java.util.List.of(report), service.getTasksDueBetween(monday, monday.plusDays(6)));
+    }
+
+    @Test
+    void getOccurrences_shouldListEveryOccurrenceWithCompletion() {
+        var service = new TaskService(new InMemoryTaskRepository());
+        LocalDate monday = LocalDate.of(2025, 6, 2);
+
+        Task gym = new Task("Gym", null, Priority.MEDIUM);
+        gym.setStartDate(monday);
+        gym.setRepeatFrequency(RepeatFrequency.WEEKLY);
+        gym.setRepeatDays("MON,THU");
+        Task dentist = new Task("Dentist", monday.plusDays(3), Priority.HIGH);
+        Task outside = new Task("Outside", monday.plusDays(30), Priority.LOW);
+        service.addTask(gym);
+        service.addTask(dentist);
+        service.addTask(outside);
+
+        service.markInstanceCompleted(gym.getId(), monday.plusDays(3));
+        service.markDone(dentist.getId());
+
+        assertEquals(java.util.List.of(
+                new Occurrence(gym.getId(), monday, false),
+                new Occurrence(gym.getId(), monday.plusDays(3), true),
+                new Occurrence(dentist.getId(), monday.plusDays(3), true),
+                new Occurrence(gym.getId(), monday.plusDays(7), false)),
+                service.getOccurrences(monday, monday.plusDays(9)));
+
+        assertThrows(IllegalArgumentException.class, () -> service.getOccurrences(monday, monday.minusDays(1)));
+    }
+
+    @Test
+    void rollover_shouldMoveOnlyStaleNextOccurrences() {
+        var service = new TaskService(new InMemoryTaskRepository());
+        var rollover = new RolloverService(service);
+        LocalDate today = LocalDate.now();
+
+        Task daily = new Task("Stretch");
+        daily.setStartDate(today.minusDays(30));
+        daily.setRepeatFrequency(RepeatFrequency.DAILY);
+        daily.setRepeatInterval(2);
+        Task weekly = new Task("Review");
+        weekly.setStartDate(today.minusDays(28));
+        weekly.setRepeatFrequency(RepeatFrequency.WEEKLY);
+        Task ended = new Task("Course");
+        ended.setStartDate(today.minusDays(30));
+        ended.setRepeatFrequency(RepeatFrequency.DAILY);
+        ended.setRepeatUntil(today.minusDays(5));
+        Task overdue = new Task("Taxes", today.minusDays(3), Priority.HIGH);
+        for (Task t : java.util.List.of(daily, weekly, ended, overdue))
+            service.addTask(t);
+
+        // left over from earlier days; the weekly one is still current
+        daily.setNextOccurrence(today.minusDays(2));
+        weekly.setNextOccurrence(today.plusDays(7));
+        ended.setNextOccurrence(today.minusDays(6));
+        service.markInstanceCompleted(daily.getId(), today);
+        daily.setNextOccurrence(today.minusDays(2));
+
+        assertEquals(2, rollover.rollover(today));
+        assertEquals(today.plusDays(2), daily.getNextOccurrence()); // today was completed
+        assertNull(ended.getNextOccurrence());
+        assertEquals(today.plusDays(7), weekly.getNextOccurrence());
+        assertEquals(java.util.List.of(daily),
+                service.getTasksWithNextOccurrenceBetween(null, today.plusDays(6)));
+
+        assertEquals(0, rollover.rollover(today));
+    }
 }
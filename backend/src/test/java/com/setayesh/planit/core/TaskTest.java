@@ -95,4 +95,80 @@ class TaskTest {
 
         assertTrue(t.getUpdatedAt().isAfter(t.getCreatedAt()));
     }
+
+    @Test
+    void excludedDates_shouldBeSortedDistinctAndSkipOccurrence() {
+        Task t = new Task("Standup");
+        t.setStartDate(LocalDate.of(2025, 1, 1));
+        t.setRepeatFrequency(RepeatFrequency.DAILY);
+
+        t.addExcludedDate(LocalDate.of(2025, 1, 9));
+        t.addExcludedDate(LocalDate.of(2025, 1, 2));
+        t.addExcludedDate(LocalDate.of(2025, 1, 9));
+
+        assertEquals("2025-01-02,2025-01-09", t.getExcludedDates());
+        assertFalse(t.occursOn(LocalDate.of(2025, 1, 2)));
+        assertTrue(t.occursOn(LocalDate.of(2025, 1, 3)));
+    }
+
+    @Test
+    void repeatDays_shouldUseCanonicalWeekdayOrder() {
+        Task t = new Task("Gym");
+        t.setStartDate(LocalDate.of(2025, 1, 6)); // Monday
+        t.setRepeatFrequency(RepeatFrequency.WEEKLY);
+        t.setRepeatDays("fri, mon");
+
+        assertEquals("MON,FRI", t.getRepeatDays());
+        assertTrue(t.occursOn(LocalDate.of(2025, 1, 10)));
+        assertFalse(t.occursOn(LocalDate.of(2025, 1, 8)));
+
+        t.setRepeatDays("");
+        assertNull(t.getRepeatDays());
+    }
+
+    @Test
+    void occursOn_shouldFollowEveryRecurrenceSetter() {
+        Task t = new Task("Review");
+        LocalDate monday = LocalDate.of(2025, 1, 6);
+        t.setStartDate(monday);
+        t.setRepeatFrequency(RepeatFrequency.DAILY);
+        assertTrue(t.occursOn(monday.plusDays(1)));
+
+        t.setRepeatInterval(2);
+        assertFalse(t.occursOn(monday.plusDays(1)));
+        t.setStartDate(monday.plusDays(1));
+        assertTrue(t.occursOn(monday.plusDays(1)));
+        t.setRepeatUntil(monday.plusDays(2));
+        assertFalse(t.occursOn(monday.plusDays(3)));
+        t.addExcludedDate(monday.plusDays(1));
+        assertFalse(t.occursOn(monday.plusDays(1)));
+        t.setExcludedDates(null);
+        assertTrue(t.occursOn(monday.plusDays(1)));
+
+        t.setRepeatFrequency(RepeatFrequency.WEEKLY);
+        t.setRepeatDays("TUE");
+        t.setRepeatUntil(null);
+        t.setRepeatInterval(1);
+        assertTrue(t.occursOn(monday.plusDays(8)));
+        t.setRepeatDays("WED");
+        assertFalse(t.occursOn(monday.plusDays(8)));
+    }
+
+    @Test
+    void recurrence_shouldBeCompiledEagerlyAndReplacedBySetters() {
+        Task t = new Task("Review");
+        CompiledRecurrence initial = t.recurrence();
+        assertNotNull(initial); // readers never compile it themselves
+        assertEquals(RepeatFrequency.NONE, initial.frequency());
+
+        t.setRepeatFrequency(RepeatFrequency.DAILY);
+        CompiledRecurrence daily = t.recurrence();
+        assertNotSame(initial, daily);
+        assertEquals(RepeatFrequency.DAILY, daily.frequency());
+        assertSame(daily, t.recurrence());
+
+        t.setRepeatInterval(3);
+        assertEquals(3, t.recurrence().interval());
+        assertEquals(1, daily.interval()); // published rules are never changed
+    }
 }
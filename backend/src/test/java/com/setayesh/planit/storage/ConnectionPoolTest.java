@@ -0,0 +1,54 @@
+package com.setayesh.planit.storage;
+
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConnectionPoolTest {
+
+    @Test
+    void repositoriesOnSameUrlShareOnePool() {
+        String url = "jdbc:h2:mem:pool-test-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1";
+
+        assertSame(ConnectionPool.forPath(url), ConnectionPool.forPath(url));
+    }
+
+    @Test
+    void statsShouldCountAcquiredConnections() throws Exception {
+        ConnectionPool pool = ConnectionPool.forPath(
+                "jdbc:h2:mem:pool-stats-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+
+        try (Connection conn = pool.getConnection()) {
+            assertEquals(1, pool.stats().active());
+        }
+
+        ConnectionPool.Stats stats = pool.stats();
+        assertEquals(0, stats.active());
+        assertTrue(stats.acquired() >= 1);
+        assertEquals(0, stats.timeouts());
+        pool.close();
+    }
+
+    @Test
+    void dropShouldDiscardAPrivateInMemoryDatabase() throws Exception {
+        String url = "jdbc:h2:mem:pool-drop-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1";
+        ConnectionPool pool = ConnectionPool.forPath(url);
+        try (Connection conn = pool.getConnection(); Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE scratch (id INT)");
+        }
+
+        pool.drop();
+        pool.drop(); // second call is a no-op
+
+        ConnectionPool reopened = ConnectionPool.forPath(url);
+        assertNotSame(pool, reopened);
+        try (Connection conn = reopened.getConnection(); Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE scratch (id INT)"); // fresh database, no clash
+        }
+        reopened.drop();
+    }
+}
@@ -2,13 +2,25 @@ package com.setayesh.planit.storage;
 
 import com.setayesh.planit.core.Task;
 import com.setayesh.planit.core.Priority;
+import com.setayesh.planit.core.ArchiveQuery;
+import com.setayesh.planit.core.DateSet;
+import com.setayesh.planit.core.RepeatFrequency;
+import com.setayesh.planit.core.TaskPage;
+import com.setayesh.planit.core.TaskQuery;
+import com.setayesh.planit.core.TaskService;
 import org.junit.jupiter.api.*;
 import org.junit.jupiter.api.io.TempDir;
 
 import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
 import java.nio.file.Path;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Set;
+import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -63,4 +75,252 @@ class DatabaseTaskRepositoryIntegrationTest {
         assertTrue(archive.get(0).isArchived());
         assertNull(archive.get(0).getStartDate());
     }
+
+    @Test
+    void saveChangesShouldUpsertAndDeleteOnlyGivenRows() {
+        Task keep = new Task("keep", null, Priority.LOW);
+        Task drop = new Task("drop", null, Priority.LOW);
+        repo.saveAll(List.of(keep, drop));
+
+        keep.setTitle("kept");
+        Task added = new Task("added", null, Priority.HIGH);
+
+        repo.saveChanges(List.of(keep, added),
+                new TaskChangeSet(List.of(keep, added), Set.of(drop.getId())));
+
+        List<Task> loaded = repo.findAll();
+        assertEquals(2, loaded.size());
+        assertTrue(loaded.stream().anyMatch(t -> t.getTitle().equals("kept")));
+        assertTrue(loaded.stream().anyMatch(t -> t.getTitle().equals("added")));
+        assertFalse(loaded.stream().anyMatch(t -> t.getId().equals(drop.getId())));
+    }
+
+    @Test
+    void reloadedTasksShouldNotBeRewrittenByTheNextChange() {
+        TaskService first = new TaskService(repo);
+        for (int i = 0; i < 5; i++) {
+            first.addTask(new Task("task " + i, null, Priority.LOW)); // next occurrence stays NULL
+        }
+
+        List<Integer> upserts = new java.util.ArrayList<>();
+        DatabaseTaskRepository counting = new DatabaseTaskRepository(tempDir.resolve("planit-test").toString()) {
+            @Override
+            public void saveChanges(List<Task> tasks, TaskChangeSet changes) {
+                upserts.add(changes.upserts().size());
+                super.saveChanges(tasks, changes);
+            }
+        };
+        TaskService reloaded = new TaskService(counting);
+        reloaded.markDone(reloaded.getAll().get(0).getId());
+
+        assertEquals(List.of(1), upserts);
+    }
+
+    @Test
+    void recurrenceFieldsShouldRoundTripWithoutLengthLimit() {
+        Task t = new Task("Daily", null, Priority.LOW);
+        t.setRepeatFrequency(RepeatFrequency.DAILY);
+        t.setRepeatDays("TUE,SAT");
+        for (int i = 0; i < 200; i++)
+            t.addExcludedDate(LocalDate.of(2025, 1, 1).plusDays(i * 2L));
+        repo.saveAll(List.of(t));
+
+        t.addExcludedDate(LocalDate.of(2030, 1, 1));
+        repo.saveChanges(List.of(t), new TaskChangeSet(List.of(t), Set.of()));
+
+        Task loaded = repo.findAll().get(0);
+        assertEquals("TUE,SAT", loaded.getRepeatDays());
+        assertEquals(201, loaded.getExcludedDateSet().size());
+        assertEquals(t.getExcludedDates(), loaded.getExcludedDates());
+    }
+
+    @Test
+    void legacyStringColumnsShouldBeMigrated() throws Exception {
+        String url = "jdbc:h2:" + tempDir.resolve("legacy");
+        try (Connection conn = DriverManager.getConnection(url, "sa", "");
+                Statement stmt = conn.createStatement()) {
+            stmt.execute("""
+                    CREATE TABLE tasks (
+                        id UUID PRIMARY KEY, title VARCHAR(255) NOT NULL, deadline DATE,
+                        priority VARCHAR(50), done BOOLEAN, archived BOOLEAN,
+                        created_at TIMESTAMP, updated_at TIMESTAMP, group_id BIGINT,
+                        repeat_frequency VARCHAR(20), repeat_days VARCHAR(50), repeat_until DATE,
+                        repeat_interval INT, time VARCHAR(20), excluded_dates VARCHAR(500),
+                        start_date DATE, next_occurrence DATE)
+                    """);
+            stmt.execute("""
+                    INSERT INTO tasks (id, title, repeat_frequency, repeat_days, excluded_dates, created_at)
+                    VALUES (RANDOM_UUID(), 'legacy', 'WEEKLY', 'WED,MON', '2025-03-05,2025-03-03',
+                            CURRENT_TIMESTAMP)
+                    """);
+        }
+
+        Task loaded = new DatabaseTaskRepository(url).findAll().get(0);
+
+        assertEquals("MON,WED", loaded.getRepeatDays());
+        assertEquals("2025-03-03,2025-03-05", loaded.getExcludedDates());
+    }
+
+    @Test
+    void queryShouldFilterSortAndLimitInSql() {
+        LocalDate day = LocalDate.of(2025, 5, 1);
+        Task a = new Task("alpha", day.plusDays(2), Priority.LOW);
+        Task b = new Task("Bravo", day, Priority.HIGH);
+        Task c = new Task("charlie", day.plusDays(1), Priority.MEDIUM);
+        Task d = new Task("delta", null, Priority.HIGH);
+        b.setGroupId(5L);
+        c.setGroupId(5L);
+        c.markDone();
+        c.addExcludedDate(day);
+        repo.saveAll(List.of(a, b, c, d));
+
+        List<Task> byDeadline = repo.query(TaskQuery.all()
+                .deadlineBetween(day, day.plusDays(2))
+                .sortBy(TaskQuery.Sort.DEADLINE));
+        assertEquals(List.of(b, c, a), byDeadline);
+
+        List<Task> group = repo.query(TaskQuery.all().group(5L).done(true));
+        assertEquals(List.of(c), group);
+        assertEquals(day.toString(), group.get(0).getExcludedDates());
+
+        List<Task> top = repo.query(TaskQuery.all().sortBy(TaskQuery.Sort.PRIORITY).limit(3));
+        assertEquals(3, top.size());
+        assertEquals(Priority.HIGH, top.get(0).getPriority());
+        assertEquals(Priority.HIGH, top.get(1).getPriority());
+        assertEquals(Priority.MEDIUM, top.get(2).getPriority());
+
+        List<Task> titles = repo.query(TaskQuery.all().sortBy(TaskQuery.Sort.TITLE));
+        assertEquals(List.of(a, b, c, d), titles);
+    }
+
+    @Test
+    void archiveAndUnarchiveShouldMoveRowsWithExcludedDates() {
+        Task stays = new Task("stays", null, Priority.LOW);
+        Task moves = new Task("moves", null, Priority.LOW);
+        moves.addExcludedDate(LocalDate.of(2025, 4, 1));
+        repo.saveAll(List.of(stays, moves));
+
+        repo.archive(List.of(moves.getId()));
+
+        assertEquals(List.of(stays), repo.findAll());
+        List<Task> archive = repo.loadArchive();
+        assertEquals(List.of(moves), archive);
+        assertTrue(archive.get(0).isArchived());
+        assertEquals("2025-04-01", archive.get(0).getExcludedDates());
+
+        List<Task> restored = repo.unarchive(List.of(moves.getId()));
+
+        assertEquals(List.of(moves), restored);
+        assertFalse(restored.get(0).isArchived());
+        assertEquals("2025-04-01", restored.get(0).getExcludedDates());
+        assertTrue(repo.loadArchive().isEmpty());
+        assertEquals(2, repo.findAll().size());
+    }
+
+    @Test
+    void unarchiveShouldRestoreSeveralTasksAtOnce() {
+        Task a = new Task("a", null, Priority.LOW);
+        Task b = new Task("b", null, Priority.LOW);
+        Task c = new Task("c", null, Priority.LOW);
+        b.addExcludedDate(LocalDate.of(2025, 4, 1));
+        repo.saveAll(List.of(a, b, c));
+        repo.archive(List.of(a.getId(), b.getId(), c.getId()));
+
+        List<Task> restored = repo.unarchive(List.of(a.getId(), b.getId(), UUID.randomUUID()));
+
+        assertEquals(Set.of(a, b), Set.copyOf(restored));
+        assertTrue(restored.stream().noneMatch(Task::isArchived));
+        assertEquals(Set.of(a, b), Set.copyOf(repo.findAll()));
+        assertEquals(List.of(c), repo.loadArchive());
+    }
+
+    @Test
+    void serviceShouldKeepSeveralUnarchivedTasksAcrossLaterSaves() {
+        TaskService service = new TaskService(repo);
+        Task a = new Task("a", null, Priority.LOW);
+        Task b = new Task("b", null, Priority.LOW);
+        service.addTask(a);
+        service.addTask(b);
+        service.archiveTasks(List.of(a.getId(), b.getId()));
+
+        assertEquals(2, service.unarchiveTasks(List.of(a.getId(), b.getId())).size());
+        assertEquals(Set.of(a, b), Set.copyOf(service.getAll()));
+
+        // a full rewrite must not drop the restored rows
+        repo.saveAll(service.getAll());
+        assertEquals(Set.of(a, b), Set.copyOf(repo.findAll()));
+    }
+
+    @Test
+    void archivePagesShouldFollowKeysetCursor() {
+        LocalDateTime base = LocalDateTime.of(2025, 3, 1, 12, 0);
+        List<Task> archived = new java.util.ArrayList<>();
+        for (int i = 0; i < 7; i++) {
+            archived.add(archivedTask("note " + i, i % 2 == 0 ? 1L : 2L, base.plusDays(i)));
+        }
+        // same timestamp as "note 6", ordered by id
+        archived.add(archivedTask("twin", 1L, base.plusDays(6)));
+        repo.saveArchive(archived);
+
+        List<String> titles = new java.util.ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            TaskPage page = repo.findArchivePage(new ArchiveQuery(null, null, null, null, cursor, 3));
+            page.items().forEach(t -> titles.add(t.getTitle()));
+            cursor = page.nextCursor();
+            pages++;
+        } while (cursor != null);
+
+        assertEquals(3, pages);
+        assertEquals(8, titles.size());
+        assertEquals(8, Set.copyOf(titles).size());
+        assertTrue(Set.of("note 6", "twin").containsAll(titles.subList(0, 2)));
+        assertEquals(List.of("note 5", "note 4", "note 3", "note 2", "note 1", "note 0"), titles.subList(2, 8));
+
+        TaskPage filtered = repo.findArchivePage(new ArchiveQuery("NOTE", 1L,
+                LocalDate.of(2025, 3, 2), LocalDate.of(2025, 3, 6), null, 0));
+        assertEquals(List.of("note 4", "note 2"), filtered.items().stream().map(Task::getTitle).toList());
+        assertNull(filtered.nextCursor());
+
+        assertEquals(8, repo.countArchive());
+    }
+
+    private static Task archivedTask(String title, Long groupId, LocalDateTime updatedAt) {
+        return new Task(UUID.randomUUID(), title, null, Priority.LOW, groupId, false, true,
+                updatedAt, updatedAt, RepeatFrequency.NONE, 0, null, DateSet.EMPTY, null, null, null, null);
+    }
+
+    @Test
+    void missingNextOccurrencesShouldBeComputedInParallelOnLoad() {
+        ConnectionPool pool = ConnectionPool.forPath(tempDir.resolve("parallel").toString());
+        DatabaseTaskRepository parallelRepo = new DatabaseTaskRepository(pool, 1);
+        TaskInstanceRepository instances = new TaskInstanceRepository(pool);
+        LocalDate today = LocalDate.now();
+
+        List<Task> series = new java.util.ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            Task t = new Task("series " + i);
+            t.setStartDate(today.minusDays(i));
+            t.setRepeatFrequency(i % 2 == 0 ? RepeatFrequency.DAILY : RepeatFrequency.WEEKLY);
+            t.setRepeatInterval(1 + i % 3);
+            series.add(t);
+        }
+        parallelRepo.saveAll(series);
+        instances.markCompleted(series.get(0).getId(), List.of(today, today.plusDays(1)));
+
+        List<Task> loaded = parallelRepo.findAll();
+        assertEquals(40, loaded.size());
+        for (Task t : loaded) {
+            List<LocalDate> history = instances.findCompletedDates(t.getId());
+            assertNotNull(t.getNextOccurrence(), t.getTitle());
+            assertEquals(com.setayesh.planit.core.RecurrenceUtils.computeNextOccurrence(t, history),
+                    t.getNextOccurrence(), t.getTitle());
+        }
+        assertEquals(today.plusDays(2), loaded.stream()
+                .filter(t -> t.getTitle().equals("series 0")).findFirst().orElseThrow().getNextOccurrence());
+
+        assertThrows(IllegalArgumentException.class, () -> new DatabaseTaskRepository(pool, 0));
+        pool.close();
+    }
 }
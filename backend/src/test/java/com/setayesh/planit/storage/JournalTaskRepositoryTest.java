@@ -0,0 +1,182 @@
+package com.setayesh.planit.storage;
+
+import com.setayesh.planit.core.Priority;
+import com.setayesh.planit.core.RepeatFrequency;
+import com.setayesh.planit.core.Task;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JournalTaskRepositoryTest {
+
+    @TempDir
+    Path tempDir;
+
+    private JournalTaskRepository open() {
+        return new JournalTaskRepository(tempDir.toString(), new JournalTaskRepository.Settings(
+                JournalTaskRepository.FsyncPolicy.PER_WRITE, 1, 1_000, Long.MAX_VALUE));
+    }
+
+    @Test
+    void reopenShouldReplayJournal() {
+        Task t1 = new Task("Journal 1", LocalDate.of(2025, 3, 1), Priority.HIGH);
+        Task t2 = new Task("Journal 2");
+        t2.setRepeatFrequency(RepeatFrequency.WEEKLY);
+        t2.setRepeatDays("MON,WED");
+
+        try (JournalTaskRepository repo = open()) {
+            repo.saveAll(List.of(t1, t2));
+            t1.markDone();
+            repo.saveChanges(List.of(t1, t2), new TaskChangeSet(List.of(t1), Set.of()));
+        }
+
+        try (JournalTaskRepository repo = open()) {
+            List<Task> loaded = repo.findAll();
+            assertEquals(2, loaded.size());
+            assertTrue(loaded.get(0).isDone());
+            assertEquals(LocalDate.of(2025, 3, 1), loaded.get(0).getDeadline());
+            assertEquals("MON,WED", loaded.get(1).getRepeatDays());
+            assertEquals(t1.getUpdatedAt(), loaded.get(0).getUpdatedAt());
+        }
+    }
+
+    @Test
+    void unchangedTasksShouldNotGrowJournal() throws Exception {
+        Task t = new Task("Stable");
+        try (JournalTaskRepository repo = open()) {
+            repo.saveAll(List.of(t));
+            long size = Files.size(tempDir.resolve("planit_tasks.journal"));
+
+            repo.saveAll(List.of(t));
+
+            assertEquals(size, Files.size(tempDir.resolve("planit_tasks.journal")));
+        }
+    }
+
+    @Test
+    void deleteAndArchiveShouldSurviveRestart() {
+        Task keep = new Task("Keep");
+        Task archived = new Task("Archive me");
+        Task deleted = new Task("Delete me");
+
+        try (JournalTaskRepository repo = open()) {
+            repo.saveAll(List.of(keep, archived, deleted));
+            archived.setArchived(true);
+            repo.saveArchive(List.of(archived));
+            repo.saveChanges(List.of(keep), new TaskChangeSet(List.of(), Set.of(deleted.getId())));
+        }
+
+        try (JournalTaskRepository repo = open()) {
+            assertEquals(List.of(keep.getId()), repo.findAll().stream().map(Task::getId).toList());
+            assertEquals(1, repo.loadArchive().size());
+            assertTrue(repo.loadArchive().get(0).isArchived());
+        }
+    }
+
+    @Test
+    void compactShouldWriteSnapshotAndTruncateJournal() throws Exception {
+        Task t = new Task("Compacted");
+
+        try (JournalTaskRepository repo = open()) {
+            repo.saveAll(List.of(t));
+            repo.compact();
+        }
+
+        assertEquals(0, Files.size(tempDir.resolve("planit_tasks.journal")));
+        assertTrue(Files.exists(tempDir.resolve("planit_tasks.snapshot")));
+
+        try (JournalTaskRepository repo = open()) {
+            assertEquals("Compacted", repo.findAll().get(0).getTitle());
+        }
+    }
+
+    @Test
+    void compactShouldKeepRecordsAppendedAfterIt() throws Exception {
+        Task first = new Task("First");
+        Task second = new Task("Second");
+
+        try (JournalTaskRepository repo = open()) {
+            repo.saveAll(List.of(first));
+            repo.compact();
+            repo.saveAll(List.of(first, second));
+            repo.compact();
+            first.setTitle("First, renamed");
+            repo.saveChanges(List.of(first, second), new TaskChangeSet(List.of(first), java.util.Set.of()));
+        }
+
+        assertTrue(Files.size(tempDir.resolve("planit_tasks.journal")) > 0);
+        assertFalse(Files.exists(tempDir.resolve("planit_tasks.snapshot.next")));
+        try (JournalTaskRepository repo = open()) {
+            assertEquals(List.of("First, renamed", "Second"), repo.findAll().stream().map(Task::getTitle).toList());
+        }
+    }
+
+    @Test
+    void tornTailShouldBeDiscarded() throws Exception {
+        try (JournalTaskRepository repo = open()) {
+            repo.saveAll(List.of(new Task("Intact")));
+        }
+
+        Path journal = tempDir.resolve("planit_tasks.journal");
+        long intact = Files.size(journal);
+        try (FileChannel ch = FileChannel.open(journal, StandardOpenOption.APPEND)) {
+            ch.write(java.nio.ByteBuffer.wrap(new byte[] { 0, 0, 0, 40, 1, 2, 3 }));
+        }
+
+        try (JournalTaskRepository repo = open()) {
+            assertEquals(1, repo.findAll().size());
+        }
+        assertEquals(intact, Files.size(journal));
+    }
+
+    @Test
+    void archiveAndUnarchiveShouldMoveOnlyGivenTasks() {
+        Task stays = new Task("Stays");
+        Task moves = new Task("Moves");
+
+        try (JournalTaskRepository repo = open()) {
+            repo.saveAll(List.of(stays, moves));
+            repo.archive(List.of(moves.getId(), UUID.randomUUID()));
+        }
+
+        try (JournalTaskRepository repo = open()) {
+            assertEquals(List.of(stays.getId()), repo.findAll().stream().map(Task::getId).toList());
+            assertTrue(repo.loadArchive().get(0).isArchived());
+
+            List<Task> restored = repo.unarchive(List.of(moves.getId()));
+            assertEquals(1, restored.size());
+            assertFalse(restored.get(0).isArchived());
+        }
+
+        try (JournalTaskRepository repo = open()) {
+            assertEquals(2, repo.findAll().size());
+            assertTrue(repo.loadArchive().isEmpty());
+        }
+    }
+
+    @Test
+    void groupedFsyncShouldNotWaitLongerThanThePeriod() throws Exception {
+        var settings = new JournalTaskRepository.Settings(
+                JournalTaskRepository.FsyncPolicy.GROUPED, 1_000, 50, Long.MAX_VALUE);
+        try (JournalTaskRepository repo = new JournalTaskRepository(tempDir.toString(), settings)) {
+            repo.saveAll(List.of(new Task("Quiet")));
+            // one record, far below the group size: only the timer can force it
+
+            long deadline = System.currentTimeMillis() + 5_000;
+            while (repo.unsyncedRecords() > 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(0, repo.unsyncedRecords());
+        }
+    }
+}
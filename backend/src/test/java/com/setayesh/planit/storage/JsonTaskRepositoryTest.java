@@ -9,6 +9,7 @@ import java.io.IOException;
 import java.nio.file.*;
 import java.time.LocalDate;
 import java.util.List;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -100,4 +101,118 @@ class JsonTaskRepositoryTest {
         assertTrue(mainFile.exists(), "Main file should exist after save");
         assertFalse(tempFile.exists(), "Temporary file should be cleaned up");
     }
+
+    @Test
+    void write_shouldProduceCompactJson() throws IOException {
+        repo.saveAll(List.of(new Task("Compact", null, Priority.LOW)));
+
+        String json = Files.readString(tempDir.resolve("planit_tasks.json"));
+
+        assertTrue(json.startsWith("[{"));
+        assertFalse(json.contains("\n"));
+    }
+
+    @Test
+    void segmented_shouldRoundTripAcrossSegments() {
+        JsonTaskRepository segmented = new JsonTaskRepository(tempDir.toString(), 4);
+        List<Task> tasks = new java.util.ArrayList<>();
+        for (int i = 0; i < 20; i++)
+            tasks.add(new Task("Task " + i, null, Priority.MEDIUM));
+
+        segmented.saveAll(tasks);
+
+        List<Task> loaded = segmented.findAll();
+        assertEquals(20, loaded.size());
+        assertTrue(loaded.containsAll(tasks));
+    }
+
+    @Test
+    void segmented_saveChangesShouldRewriteOnlyAffectedSegments() throws IOException {
+        JsonTaskRepository segmented = new JsonTaskRepository(tempDir.toString(), 8);
+        List<Task> tasks = new java.util.ArrayList<>();
+        for (int i = 0; i < 40; i++)
+            tasks.add(new Task("Task " + i, null, Priority.MEDIUM));
+        segmented.saveAll(tasks);
+
+        Task changed = tasks.get(0);
+        int changedSegment = Math.floorMod(changed.getId().hashCode(), 8);
+        int untouched = (changedSegment + 1) % 8;
+        Path untouchedFile = tempDir.resolve("planit_tasks").resolve("segment-%03d.json".formatted(untouched));
+        Files.delete(untouchedFile);
+
+        changed.markDone();
+        segmented.saveChanges(tasks, new TaskChangeSet(List.of(changed), Set.of()));
+
+        assertFalse(Files.exists(untouchedFile), "Unaffected segment must not be rewritten");
+        assertTrue(segmented.findAll().stream()
+                .anyMatch(t -> t.getId().equals(changed.getId()) && t.isDone()));
+    }
+
+    @Test
+    void segmented_corruptSegmentShouldYieldNoneOfItsTasks() throws IOException {
+        JsonTaskRepository segmented = new JsonTaskRepository(tempDir.toString(), 2);
+        List<Task> tasks = new java.util.ArrayList<>();
+        for (int i = 0; i < 10; i++)
+            tasks.add(new Task("Task " + i, null, Priority.MEDIUM));
+        segmented.saveAll(tasks);
+
+        // cut the segment after its first task
+        Path segment = tempDir.resolve("planit_tasks").resolve("segment-000.json");
+        String json = Files.readString(segment);
+        Files.writeString(segment, json.substring(0, json.indexOf("},{") + 2) + "{ broken");
+
+        List<Task> loaded = segmented.findAll();
+
+        assertTrue(loaded.stream().allMatch(t -> Math.floorMod(t.getId().hashCode(), 2) == 1),
+                "Tasks read before the parse error must be dropped with their segment");
+        assertEquals("[]", Files.readString(segment));
+        assertTrue(Files.exists(segment.resolveSibling("segment-000.json.corrupted")));
+    }
+
+    @Test
+    void forEach_shouldStreamAndReportTasksOfACorruptedFile() throws IOException {
+        JsonTaskRepository json = new JsonTaskRepository(tempDir.toString());
+        json.saveAll(List.of(new Task("First", null, Priority.LOW), new Task("Second", null, Priority.LOW)));
+        Path file = tempDir.resolve("planit_tasks.json");
+        String content = Files.readString(file);
+        Files.writeString(file, content.substring(0, content.indexOf("},{") + 2) + "{ broken");
+
+        List<String> seen = new java.util.ArrayList<>();
+        int[] discarded = { 0 };
+        json.forEach(t -> seen.add(t.getTitle()), n -> discarded[0] += n);
+
+        assertEquals(List.of("First"), seen, "Tasks reach the consumer as they are parsed");
+        assertEquals(1, discarded[0]);
+        assertTrue(json.findAll().isEmpty());
+    }
+
+    @Test
+    void segmented_shouldKeepListOrderAcrossSegments() {
+        JsonTaskRepository segmented = new JsonTaskRepository(tempDir.toString(), 4);
+        List<Task> tasks = new java.util.ArrayList<>();
+        for (int i = 0; i < 20; i++)
+            tasks.add(new Task("Task " + i, null, Priority.MEDIUM));
+        segmented.saveAll(tasks);
+
+        Task added = new Task("Added", null, Priority.MEDIUM);
+        Task gone = tasks.remove(3);
+        tasks.add(added);
+        segmented.saveChanges(tasks, new TaskChangeSet(List.of(added), Set.of(gone.getId())));
+
+        assertEquals(tasks, new JsonTaskRepository(tempDir.toString(), 4).findAll());
+    }
+
+    @Test
+    void segmented_shouldMigrateASingleFileStore() {
+        List<Task> tasks = new java.util.ArrayList<>();
+        for (int i = 0; i < 10; i++)
+            tasks.add(new Task("Task " + i, null, Priority.MEDIUM));
+        repo.saveAll(tasks);
+
+        JsonTaskRepository segmented = new JsonTaskRepository(tempDir.toString(), 4);
+
+        assertEquals(tasks, segmented.findAll());
+        assertFalse(Files.exists(tempDir.resolve("planit_tasks.json")));
+        assertTrue(Files.exists(tempDir.resolve("planit_tasks.json.migrated")));
+    }
 }
@@ -0,0 +1,61 @@
+package com.setayesh.planit.storage;
+
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SchemaMigrationsTest {
+
+    private static String freshUrl() {
+        return "jdbc:h2:mem:schema-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1";
+    }
+
+    private static int count(Connection conn, String sql) throws Exception {
+        try (Statement stmt = conn.createStatement();
+                ResultSet rs = stmt.executeQuery(sql)) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+
+    @Test
+    void freshDatabaseShouldRecordEveryStepOnce() throws Exception {
+        String url = freshUrl();
+
+        try (Connection conn = DriverManager.getConnection(url, "sa", "")) {
+            assertEquals(SchemaMigrations.LATEST_VERSION, SchemaMigrations.migrate(conn));
+            assertEquals(SchemaMigrations.LATEST_VERSION, SchemaMigrations.migrate(conn));
+
+            assertEquals(SchemaMigrations.LATEST_VERSION, count(conn, "SELECT COUNT(*) FROM schema_version"));
+            assertEquals(1, count(conn, """
+                    SELECT COUNT(*) FROM INFORMATION_SCHEMA.INDEXES
+                    WHERE INDEX_NAME = 'IDX_ARCHIVE_UPDATED_ID'
+                    """));
+        }
+    }
+
+    @Test
+    void unversionedDatabaseShouldBeAdoptedWithoutLosingRows() throws Exception {
+        String url = freshUrl();
+
+        // Schema as created before versioning, with one group already saved
+        try (Connection conn = DriverManager.getConnection(url, "sa", "");
+                Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE categories (id IDENTITY PRIMARY KEY, name VARCHAR(255) NOT NULL)");
+            stmt.execute("INSERT INTO categories (name) VALUES ('Uni')");
+        }
+
+        DatabaseGroupRepository groups = new DatabaseGroupRepository(url);
+
+        assertEquals(1, groups.findAll().size());
+        try (Connection conn = DriverManager.getConnection(url, "sa", "")) {
+            assertEquals(SchemaMigrations.LATEST_VERSION, SchemaMigrations.currentVersion(conn));
+        }
+    }
+}
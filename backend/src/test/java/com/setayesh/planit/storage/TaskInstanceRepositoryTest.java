@@ -0,0 +1,136 @@
+package com.setayesh.planit.storage;
+
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TaskInstanceRepositoryTest {
+
+    private static String freshUrl() {
+        return "jdbc:h2:mem:instances-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1";
+    }
+
+    @Test
+    void markCompletedShouldBeIdempotent() {
+        TaskInstanceRepository repo = new TaskInstanceRepository(freshUrl());
+        UUID task = UUID.randomUUID();
+        LocalDate day = LocalDate.of(2025, 2, 15);
+
+        repo.markCompleted(task, day);
+        repo.markCompleted(task, day);
+
+        assertEquals(List.of(day), repo.findCompletedDates(task));
+    }
+
+    @Test
+    void batchShouldCompleteAllDatesOnce() {
+        TaskInstanceRepository repo = new TaskInstanceRepository(freshUrl());
+        UUID task = UUID.randomUUID();
+        LocalDate day = LocalDate.of(2025, 2, 15);
+
+        repo.markCompleted(task, day);
+        repo.markCompleted(task, List.of(day, day.plusDays(1), day.plusDays(2), day.plusDays(1)));
+
+        assertEquals(3, repo.findCompletedDates(task).size());
+        assertTrue(repo.exists(task, day.plusDays(2)));
+    }
+
+    @Test
+    void existingDuplicatesShouldBeRemovedOnStartup() throws Exception {
+        String url = freshUrl();
+        UUID task = UUID.randomUUID();
+
+        try (Connection conn = DriverManager.getConnection(url, "sa", "");
+                Statement stmt = conn.createStatement()) {
+            stmt.execute("""
+                    CREATE TABLE task_instances_completed (
+                        id IDENTITY PRIMARY KEY,
+                        task_id UUID NOT NULL,
+                        completed_date DATE NOT NULL)
+                    """);
+            stmt.execute("CREATE INDEX idx_instances_task ON task_instances_completed(task_id)");
+            for (int i = 0; i < 3; i++) {
+                stmt.execute("INSERT INTO task_instances_completed (task_id, completed_date) VALUES ('"
+                        + task + "', DATE '2025-01-0" + (1 + i % 2) + "')");
+            }
+        }
+
+        TaskInstanceRepository repo = new TaskInstanceRepository(url);
+
+        assertEquals(2, repo.findCompletedDates(task).size());
+        try (Connection conn = DriverManager.getConnection(url, "sa", "");
+                Statement stmt = conn.createStatement();
+                ResultSet rs = stmt.executeQuery("""
+                        SELECT COUNT(*) FROM INFORMATION_SCHEMA.INDEXES
+                        WHERE INDEX_NAME IN ('UQ_INSTANCES_TASK_DATE', 'IDX_INSTANCES_TASK')
+                        """)) {
+            rs.next();
+            assertEquals(1, rs.getInt(1));
+        }
+    }
+
+    @Test
+    void cacheShouldServeReadsAndStayCurrentOnWrites() {
+        TaskInstanceRepository repo = new TaskInstanceRepository(ConnectionPool.forPath(freshUrl()), 2);
+        UUID task = UUID.randomUUID();
+        LocalDate day = LocalDate.of(2025, 3, 1);
+
+        repo.markCompleted(task, List.of(day, day.plusDays(5)));
+        assertEquals(List.of(day, day.plusDays(5)), repo.findCompletedDates(task)); // miss, loads
+        assertTrue(repo.exists(task, day));                                        // hit
+
+        repo.markCompleted(task, day.plusDays(1));
+        assertTrue(repo.exists(task, day.plusDays(1)));
+
+        repo.deleteFutureInstances(task, day.plusDays(1));
+        assertEquals(List.of(day, day.plusDays(1)), repo.findCompletedDates(task));
+
+        repo.deleteForTask(task);
+        assertFalse(repo.exists(task, day));
+
+        TaskInstanceRepository.CacheStats stats = repo.cacheStats();
+        assertEquals(1, stats.misses());
+        assertEquals(4, stats.hits());
+
+        // capacity 2: a third task evicts the least recently used one
+        repo.findCompletedDates(UUID.randomUUID());
+        repo.findCompletedDates(UUID.randomUUID());
+        assertEquals(2, repo.cacheStats().size());
+        assertEquals(1, repo.cacheStats().evictions());
+    }
+
+    @Test
+    void bulkLookupShouldReturnRangeForEveryTaskInOneRead() {
+        TaskInstanceRepository repo = new TaskInstanceRepository(freshUrl());
+        UUID a = UUID.randomUUID();
+        UUID b = UUID.randomUUID();
+        UUID none = UUID.randomUUID();
+        LocalDate day = LocalDate.of(2025, 4, 1);
+
+        repo.markCompleted(a, List.of(day, day.plusDays(10), day.plusDays(40)));
+        repo.markCompleted(b, day.plusDays(3));
+        repo.findCompletedDates(a); // a is cached, b and none are read from the table
+
+        Map<UUID, List<LocalDate>> month = repo.findCompletedDates(
+                List.of(a, b, none), day, day.plusMonths(1).minusDays(1));
+
+        assertEquals(List.of(day, day.plusDays(10)), month.get(a));
+        assertEquals(List.of(day.plusDays(3)), month.get(b));
+        assertEquals(List.of(), month.get(none));
+
+        // an open range loads the full history and caches it
+        long misses = repo.cacheStats().misses();
+        repo.findCompletedDates(List.of(b, none), null, null);
+        assertEquals(List.of(day.plusDays(3)), repo.findCompletedDates(b));
+        assertEquals(misses + 2, repo.cacheStats().misses());
+    }
+}
@@ -0,0 +1,113 @@
+package com.setayesh.planit.storage;
+
+import com.setayesh.planit.core.Priority;
+import com.setayesh.planit.core.RepeatFrequency;
+import com.setayesh.planit.core.Task;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TaskSnapshotTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void roundTripShouldKeepEveryField() throws IOException {
+        Task full = new Task("Water plants", LocalDate.of(2025, 6, 1), Priority.MEDIUM);
+        full.setGroupId(3L);
+        full.markDone();
+        full.setRepeatFrequency(RepeatFrequency.WEEKLY);
+        full.setRepeatDays("MON,THU");
+        full.setRepeatUntil(LocalDate.of(2025, 12, 31));
+        full.setRepeatInterval(2);
+        full.setTime("08:15");
+        full.addExcludedDate(LocalDate.of(2025, 6, 5));
+        full.setStartDate(LocalDate.of(2025, 6, 2));
+        full.setNextOccurrence(LocalDate.of(2025, 6, 2));
+        Task empty = new Task("Bare");
+
+        Path file = tempDir.resolve("tasks.snapshot");
+        TaskSnapshot.write(file, List.of(full, empty));
+
+        try (TaskSnapshot snapshot = TaskSnapshot.open(file)) {
+            assertEquals(2, snapshot.size());
+
+            Task a = snapshot.get(0);
+            assertEquals(full.getId(), a.getId());
+            assertEquals("Water plants", a.getTitle());
+            assertEquals(LocalDate.of(2025, 6, 1), a.getDeadline());
+            assertEquals(Priority.MEDIUM, a.getPriority());
+            assertEquals(3L, a.getGroupId());
+            assertTrue(a.isDone());
+            assertEquals(full.getCreatedAt(), a.getCreatedAt());
+            assertEquals(full.getUpdatedAt(), a.getUpdatedAt());
+            assertEquals(RepeatFrequency.WEEKLY, a.getRepeatFrequency());
+            assertEquals("MON,THU", a.getRepeatDays());
+            assertEquals(LocalDate.of(2025, 12, 31), a.getRepeatUntil());
+            assertEquals(2, a.getRepeatInterval());
+            assertEquals("08:15", a.getTime());
+            assertEquals(full.getExcludedDates(), a.getExcludedDates());
+            assertEquals(LocalDate.of(2025, 6, 2), a.getStartDate());
+            assertEquals(LocalDate.of(2025, 6, 2), a.getNextOccurrence());
+
+            Task b = snapshot.get(1);
+            assertNull(b.getDeadline());
+            assertNull(b.getPriority());
+            assertNull(b.getGroupId());
+            assertNull(b.getRepeatInterval());
+            assertNull(b.getTime());
+            assertFalse(b.isDone());
+        }
+    }
+
+    @Test
+    void repeatedTitlesShouldShareOneStringTableEntry() throws IOException {
+        List<Task> tasks = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++)
+            tasks.add(new Task("Daily standup"));
+
+        Path file = tempDir.resolve("many.snapshot");
+        TaskSnapshot.write(file, tasks);
+
+        // 10k fixed-width rows plus a single "Daily standup" entry
+        assertTrue(Files.size(file) < 10_000L * 100);
+        try (TaskSnapshot snapshot = TaskSnapshot.open(file)) {
+            assertEquals(10_000, snapshot.readAll().size());
+            assertEquals("Daily standup", snapshot.get(9_999).getTitle());
+        }
+    }
+
+    @Test
+    void openShouldRejectForeignFiles() throws IOException {
+        Path file = tempDir.resolve("garbage.snapshot");
+        Files.writeString(file, "not a snapshot at all, sorry");
+
+        assertThrows(IOException.class, () -> TaskSnapshot.open(file));
+    }
+
+    @Test
+    void closeShouldReleaseTheMappingSoTheFileCanBeReplaced() throws IOException {
+        Path file = tempDir.resolve("replaced.snapshot");
+        TaskSnapshot.write(file, List.of(new Task("Old")));
+
+        TaskSnapshot snapshot = TaskSnapshot.open(file);
+        assertEquals("Old", snapshot.get(0).getTitle());
+        snapshot.close();
+        snapshot.close(); // idempotent
+
+        assertThrows(IllegalStateException.class, () -> snapshot.get(0));
+        TaskSnapshot.write(file, List.of(new Task("New")));
+        try (TaskSnapshot replaced = TaskSnapshot.open(file)) {
+            assertEquals("New", replaced.get(0).getTitle());
+        }
+    }
+}
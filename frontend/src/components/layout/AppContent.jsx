@@ -16,7 +16,8 @@ import {
   updateTask,
   deleteTask,
   archiveTask,
-  getArchivedTasks,
+  getArchivedPage,
+  getArchivedCount,
   markInstanceCompleted,
   deleteOneOccurrence,
   deleteFutureOccurrences,
@@ -35,13 +36,22 @@ const AppContent = forwardRef(function AppContent(
   const [presetDate, setPresetDate] = useState(null);
   const [showArchive, setShowArchive] = useState(false);
   const [archivedCount, setArchivedCount] = useState(0);
+  // Cursor of the next archive page, null once everything is loaded
+  const [archiveCursor, setArchiveCursor] = useState(null);
 
   // ---------------------------------------------------------
   // LOAD TASKS
   // ---------------------------------------------------------
   const fetchTasksState = useCallback(async (archived = false) => {
     try {
-      const data = archived ? await getArchivedTasks() : await getTasks();
+      let data;
+      if (archived) {
+        const page = await getArchivedPage();
+        data = page.items;
+        setArchiveCursor(page.nextCursor ?? null);
+      } else {
+        data = await getTasks();
+      }
       setTasks(data);
       onTasksUpdate?.(data);
     } catch (e) {
@@ -49,10 +59,23 @@ const AppContent = forwardRef(function AppContent(
     }
   }, [onTasksUpdate]);
 
+  // Appends the next archive page
+  const loadMoreArchived = async () => {
+    if (!archiveCursor) return;
+    try {
+      const page = await getArchivedPage({ cursor: archiveCursor });
+      const data = [...tasks, ...page.items];
+      setTasks(data);
+      setArchiveCursor(page.nextCursor ?? null);
+      onTasksUpdate?.(data);
+    } catch (e) {
+      console.error("Failed to load more archived tasks:", e);
+    }
+  };
+
   const fetchArchivedCount = useCallback(async () => {
     try {
-      const data = await getArchivedTasks();
-      setArchivedCount(data.length);
+      setArchivedCount(await getArchivedCount());
     } catch (error) {
       console.error("Failed to load archived task count:", error);
     }
@@ -274,6 +297,16 @@ const AppContent = forwardRef(function AppContent(
           onSelect={setSelectedTaskId}
           selectedTask={selectedTaskId}
         />
+
+        {showArchive && archiveCursor && (
+          <button
+            type="button"
+            onClick={loadMoreArchived}
+            className="self-center px-5 py-2.5 rounded-xl bg-slate-100 text-purple-800 font-medium shadow-[5px_5px_10px_#d1d9e6,_-5px_-5px_10px_#ffffff] transition-all hover:shadow-[inset_5px_5px_10px_#d1d9e6,_inset_-5px_-5px_10px_#ffffff] dark:bg-slate-800 dark:text-purple-300 dark:shadow-[5px_5px_10px_#0f172a,_-5px_-5px_10px_#334155] dark:hover:shadow-[inset_5px_5px_10px_#0f172a,_inset_-5px_-5px_10px_#334155]"
+          >
+            Load more
+          </button>
+        )}
       </div>
 
       {/* ADD DIALOG */}
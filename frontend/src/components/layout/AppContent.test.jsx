@@ -1,7 +1,7 @@
 import React, { createRef } from "react";
-import { act, render, screen, waitFor } from "@testing-library/react";
+import { act, fireEvent, render, screen, waitFor } from "@testing-library/react";
 import AppContent from "./AppContent";
-import { getArchivedTasks, getTasks } from "../../services/api.js";
+import { getArchivedCount, getArchivedPage, getTasks } from "../../services/api.js";
 
 jest.mock("../../services/api.js", () => ({
   getTasks: jest.fn(),
@@ -9,7 +9,8 @@ jest.mock("../../services/api.js", () => ({
   updateTask: jest.fn(),
   deleteTask: jest.fn(),
   archiveTask: jest.fn(),
-  getArchivedTasks: jest.fn(),
+  getArchivedPage: jest.fn(),
+  getArchivedCount: jest.fn(),
   markInstanceCompleted: jest.fn(),
   deleteOneOccurrence: jest.fn(),
   deleteFutureOccurrences: jest.fn(),
@@ -19,7 +20,8 @@ jest.mock("../../services/api.js", () => ({
 describe("AppContent", () => {
   beforeEach(() => {
     jest.clearAllMocks();
-    getArchivedTasks.mockResolvedValue([]);
+    getArchivedPage.mockResolvedValue({ items: [], nextCursor: null });
+    getArchivedCount.mockResolvedValue(0);
   });
 
   test("filters the task list by the selected category", async () => {
@@ -37,9 +39,10 @@ describe("AppContent", () => {
   test("shows archived tasks in the archive view", async () => {
     const ref = createRef();
     getTasks.mockResolvedValue([]);
-    getArchivedTasks.mockResolvedValue([
-      { id: "archived-1", title: "Archived task", archived: true },
-    ]);
+    getArchivedPage.mockResolvedValue({
+      items: [{ id: "archived-1", title: "Archived task", archived: true }],
+      nextCursor: null,
+    });
 
     render(<AppContent ref={ref} />);
     await waitFor(() => expect(ref.current).not.toBeNull());
@@ -50,4 +53,38 @@ describe("AppContent", () => {
 
     expect(await screen.findByText("Archived task")).toBeInTheDocument();
   });
+
+  test("loads every archive page through the next cursor", async () => {
+    const ref = createRef();
+    const archived = (from, to) =>
+      Array.from({ length: to - from }, (_, i) => ({
+        id: `archived-${from + i}`,
+        title: `Archived ${from + i}`,
+        archived: true,
+      }));
+    getTasks.mockResolvedValue([]);
+    getArchivedPage.mockImplementation(async ({ cursor } = {}) => {
+      if (!cursor) return { items: archived(0, 50), nextCursor: "page-2" };
+      if (cursor === "page-2") return { items: archived(50, 100), nextCursor: "page-3" };
+      return { items: archived(100, 120), nextCursor: null };
+    });
+
+    render(<AppContent ref={ref} />);
+    await waitFor(() => expect(ref.current).not.toBeNull());
+
+    await act(async () => {
+      await ref.current.showArchiveView();
+    });
+    expect(await screen.findByText("Archived 49")).toBeInTheDocument();
+    expect(screen.queryByText("Archived 50")).not.toBeInTheDocument();
+
+    fireEvent.click(screen.getByRole("button", { name: "Load more" }));
+    expect(await screen.findByText("Archived 99")).toBeInTheDocument();
+
+    fireEvent.click(screen.getByRole("button", { name: "Load more" }));
+    expect(await screen.findByText("Archived 119")).toBeInTheDocument();
+    expect(screen.getByText("Archived 0")).toBeInTheDocument();
+    expect(screen.queryByRole("button", { name: "Load more" })).not.toBeInTheDocument();
+    expect(getArchivedPage).toHaveBeenLastCalledWith({ cursor: "page-3" });
+  });
 });
@@ -6,7 +6,7 @@ import { useState, useEffect } from "react";
 import { HiDotsVertical, HiPlus } from "react-icons/hi";
 import DeleteRecurringDialog from "../tasks/DeleteRecurringDialog";
 
-import { getCompletedInstances } from "../../services/api.js";
+import { getCalendar } from "../../services/api.js";
 
 // Neumorphic styles for FullCalendar
 const calendarStyles = `
@@ -151,169 +151,42 @@ export default function CalendarView({
     if (!Array.isArray(tasks)) return;
 
     const today = new Date();
+    const oneYearAgo = new Date();
+    oneYearAgo.setFullYear(today.getFullYear() - 1);
     const oneYearLater = new Date();
     oneYearLater.setFullYear(today.getFullYear() + 1);
+    const iso = (d) => d.toISOString().split("T")[0];
 
     // Softer colors for neumorphism style
     const colorDone = "#a7f3d0"; // tailwind green-200
-    const colorPurple = "#d8b4fe"; // tailwind purple-300
-    const colorPink = "#fbcfe8"; // tailwind pink-200
-    const colorYellow = "#fef08a"; // tailwind yellow-200
-    const colorBlue = "#bfdbfe"; // tailwind blue-200
+    const colorByFrequency = {
+      NONE: "#d8b4fe", // tailwind purple-300
+      DAILY: "#d8b4fe", // tailwind purple-300
+      WEEKLY: "#fbcfe8", // tailwind pink-200
+      MONTHLY: "#fef08a", // tailwind yellow-200
+      YEARLY: "#bfdbfe", // tailwind blue-200
+    };
 
     async function buildEvents() {
-      const completedMap = {};
-
-      // 1) LOAD COMPLETED INSTANCES FROM BACKEND
-      await Promise.all(
-        tasks.map(async (t) => {
-          if (t.repeatFrequency && t.repeatFrequency !== "NONE") {
-            const arr = await getCompletedInstances(t.id);
-            completedMap[t.id] = Array.isArray(arr) ? arr : [];
-          } else {
-            completedMap[t.id] = [];
-          }
-        })
-      );
+      const byId = new Map(tasks.map((t) => [t.id, t]));
 
-      const built = [];
+      // The backend enumerates occurrences and their completion in one call
+      const occurrences = await getCalendar(iso(oneYearAgo), iso(oneYearLater));
 
-      for (const t of tasks) {
-        const excludedSet = new Set(
-          (t.excludedDates || "")
-            .split(",")
-            .map((s) => s.trim())
-            .filter(Boolean)
-        );
-
-        const isExcluded = (iso) => excludedSet.has(iso);
-
-        const repeatDaysList = Array.isArray(t.repeatDays)
-          ? t.repeatDays
-          : (t.repeatDays || "").split(",").filter(Boolean);
-
-        const end = t.repeatUntil ? new Date(t.repeatUntil) : oneYearLater;
-        const completedDates = completedMap[t.id] || [];
-
-        const start = t.startDate
-          ? new Date(t.startDate)
-          : t.deadline
-          ? new Date(t.deadline)
-          : new Date(today);
-
-        // -----------------------------------------------------
-        // ONE-TIME TASK
-        // -----------------------------------------------------
-        if (!t.repeatFrequency || t.repeatFrequency === "NONE") {
-          if (t.deadline && !isExcluded(t.deadline)) {
-            built.push({
-              taskId: t.id,
-              date: t.deadline,
-              title: t.title,
-              color: t.done ? colorDone : colorPurple,
-              task: t,
-            });
-          }
-          continue;
-        }
-
-        // -----------------------------------------------------
-        // RECURRING TASKS
-        // -----------------------------------------------------
-        const freq = t.repeatFrequency;
-        const interval = Number(t.repeatInterval) || 1;
-
-        // DAILY
-        if (freq === "DAILY") {
-          let d = new Date(start);
-          while (d <= end) {
-            const iso = d.toISOString().split("T")[0];
-            if (!isExcluded(iso)) {
-              built.push({
-                taskId: t.id,
-                date: iso,
-                title: t.title,
-                color: completedDates.includes(iso) ? colorDone : colorPurple,
-                task: t,
-              });
-            }
-            d.setDate(d.getDate() + interval);
-          }
-        }
-
-        // WEEKLY
-        if (freq === "WEEKLY") {
-          const dayCode = {
-            MON: 1,
-            TUE: 2,
-            WED: 3,
-            THU: 4,
-            FRI: 5,
-            SAT: 6,
-            SUN: 0,
-          };
-
-          let d = new Date(start);
-
-          while (d <= end) {
-            const iso = d.toISOString().split("T")[0];
-            const weekday = Object.keys(dayCode).find(
-              (k) => dayCode[k] === d.getDay()
-            );
-
-            if (repeatDaysList.includes(weekday) && !isExcluded(iso)) {
-              built.push({
-                taskId: t.id,
-                date: iso,
-                title: t.title,
-                color: completedDates.includes(iso) ? colorDone : colorPink,
-                task: t,
-              });
-            }
-
-            d.setDate(d.getDate() + 1);
-          }
-        }
-
-        // MONTHLY
-        if (freq === "MONTHLY") {
-          let d = new Date(start);
-
-          while (d <= end) {
-            const iso = d.toISOString().split("T")[0];
-
-            if (d.getDate() === start.getDate() && !isExcluded(iso)) {
-              built.push({
-                taskId: t.id,
-                date: iso,
-                title: t.title,
-                color: completedDates.includes(iso) ? colorDone : colorYellow,
-                task: t,
-              });
-            }
-
-            d.setMonth(d.getMonth() + interval);
-          }
-        }
-
-        // YEARLY
-        if (freq === "YEARLY") {
-          let d = new Date(start);
-
-          while (d <= end) {
-            const iso = d.toISOString().split("T")[0];
-            if (!isExcluded(iso)) {
-              built.push({
-                taskId: t.id,
-                date: iso,
-                title: t.title,
-                color: completedDates.includes(iso) ? colorDone : colorBlue,
-                task: t,
-              });
-            }
-            d.setFullYear(d.getFullYear() + interval);
-          }
-        }
+      const built = [];
+      for (const o of occurrences || []) {
+        const t = byId.get(o.taskId);
+        if (!t) continue;
+
+        built.push({
+          taskId: t.id,
+          date: o.date,
+          title: t.title,
+          color: o.completed
+            ? colorDone
+            : colorByFrequency[t.repeatFrequency || "NONE"],
+          task: t,
+        });
       }
 
       setEvents(built);
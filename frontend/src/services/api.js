@@ -61,11 +61,39 @@ export async function archiveTask(id) {
   return jsonOrThrow(res);
 }
 
-export async function getArchivedTasks() {
-  const res = await fetch(`${API_URL}/archive`);
+export async function archiveTasks(ids) {
+  const res = await fetch(`${API_URL}/archive`, {
+    method: "POST",
+    headers: { "Content-Type": "application/json" },
+    body: JSON.stringify(ids),
+  });
+  return jsonOrThrow(res); // returns { archived: n }
+}
+
+export async function unarchiveTask(id) {
+  const res = await fetch(`${API_URL}/${id}/unarchive`, { method: "POST" });
+  return jsonOrThrow(res);
+}
+
+// Returns one page of the archive, newest first: { items, nextCursor }.
+// Pass nextCursor back as params.cursor to load the following page.
+// One page of the archive, newest first: { items, nextCursor }. Pass
+// nextCursor back as `cursor` for the next page; it is null on the last one.
+export async function getArchivedPage(params = {}) {
+  const url = new URL(`${API_URL}/archive`, window.location.origin);
+  Object.entries(params).forEach(([k, v]) => {
+    if (v != null) url.searchParams.set(k, v);
+  });
+  const res = await fetch(url);
   return jsonOrThrow(res);
 }
 
+export async function getArchivedCount() {
+  const res = await fetch(`${API_URL}/archive/count`);
+  const data = await jsonOrThrow(res);
+  return data.count;
+}
+
 export async function clearCompleted() {
   const res = await fetch(`${API_URL}/clear-completed`, { method: "DELETE" });
   return jsonOrThrow(res);
@@ -92,6 +120,29 @@ export async function markInstanceCompleted(taskId, date) {
   return jsonOrThrow(res);
 }
 
+export async function markInstancesCompleted(taskId, dates) {
+  const res = await fetch(`${API_URL}/${taskId}/complete`, {
+    method: "POST",
+    headers: { "Content-Type": "application/json" },
+    body: JSON.stringify(dates), // ["2025-02-15", ...]
+  });
+  return jsonOrThrow(res);
+}
+
+// ------------------------------------------------------------
+//  CALENDAR
+// ------------------------------------------------------------
+
+// Returns every occurrence in [from, to] (ISO dates), ordered by date:
+// [{ taskId, date, completed }, ...]
+export async function getCalendar(from, to) {
+  const url = new URL(`${BASE_URL}/api/calendar`, window.location.origin);
+  url.searchParams.set("from", from);
+  url.searchParams.set("to", to);
+  const res = await fetch(url);
+  return jsonOrThrow(res);
+}
+
 // ------------------------------------------------------------
 //  RECURRING: delete logic
 // ------------------------------------------------------------